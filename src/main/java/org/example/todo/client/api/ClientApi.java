@@ -6,6 +6,9 @@ import org.example.todo.client.net.TcpClient;
 import org.example.todo.server.protocol.*;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
 
 import static org.example.todo.client.protocol.ProtocolJson.GSON;
 
@@ -14,6 +17,8 @@ public class ClientApi {
     private final TcpClient tcpClient;
     private final ClientState clientState;
     private static final long TIMEOUT_MS = 5000;
+    private static final long BULK_TIMEOUT_MS = 60_000;
+    private static final int IMPORT_CHUNK_CHARS = 1 << 20;
 
     public ClientApi(TcpClient tcpClient, ClientState clientState) {
         this.tcpClient = tcpClient;
@@ -71,8 +76,18 @@ public class ClientApi {
         send("delete_board", p, true);
     }
     public ViewBoardResponse viewBoard(String boardId) throws Exception {
+        return viewBoard(boardId, null, null, null);
+    }
+
+    /** With a {@code limit}, the response also holds the first page of tasks, as {@link #listTasks} would return it. */
+    public ViewBoardResponse viewBoard(String boardId, JsonObject filters, JsonObject sort, Integer limit) throws Exception {
         JsonObject p = new JsonObject();
         p.addProperty("boardId", boardId);
+        if (limit != null) {
+            p.addProperty("limit", limit);
+            if (filters != null && filters.entrySet().size() > 0) p.add("filters", filters);
+            if (sort != null && sort.entrySet().size() > 0) p.add("sort", sort);
+        }
         TcpClient.Env response = send("view_board", p, true);
         return GSON.fromJson(response.payload, ViewBoardResponse.class);
     }
@@ -105,6 +120,10 @@ public class ClientApi {
     }
 
     public ListTasksResponse listTasks(String boardId, JsonObject filters, JsonObject sort) throws Exception {
+        return listTasks(boardId, filters, sort, null, null);
+    }
+
+    public ListTasksResponse listTasks(String boardId, JsonObject filters, JsonObject sort, Integer limit, String cursor) throws Exception {
         JsonObject p = new JsonObject();
         p.addProperty("boardId", boardId);
         if (filters != null && filters.entrySet().size() > 0) {
@@ -113,6 +132,12 @@ public class ClientApi {
         if (sort != null && sort.entrySet().size() > 0) {
             p.add("sort", sort);
         }
+        if (limit != null) {
+            p.addProperty("limit", limit);
+        }
+        if (cursor != null) {
+            p.addProperty("cursor", cursor);
+        }
         TcpClient.Env response = send("list_tasks", p, true);
         return GSON.fromJson(response.payload, ListTasksResponse.class);
     }
@@ -133,12 +158,57 @@ public class ClientApi {
         send("delete_task", p, true);
     }
 
+    /** Sends add_task / update_task_status / delete_task items as one request; results come back in item order. */
+    public BatchResponse batch(List<BatchRequest.Item> items) throws Exception {
+        JsonObject p = new JsonObject();
+        p.add("items", GSON.toJsonTree(items));
+        TcpClient.Env response = send("batch", p, true);
+        return GSON.fromJson(response.payload, BatchResponse.class);
+    }
+
+    /** Sends {@code in} (JSONL or CSV) in chunks as one import; returns the totals once the last chunk is written. */
+    public ImportTasksResponse importTasks(String boardId, String format, Reader in) throws Exception {
+        char[] buf = new char[IMPORT_CHUNK_CHARS];
+        String importId = null;
+        while (true) {
+            int n = in.read(buf);
+            JsonObject p = new JsonObject();
+            p.addProperty("boardId", boardId);
+            if (importId == null && format != null) p.addProperty("format", format);
+            if (importId != null) p.addProperty("importId", importId);
+            if (n > 0) p.addProperty("data", new String(buf, 0, n));
+            if (n < 0) p.addProperty("done", true);
+            ImportTasksResponse r = GSON.fromJson(send("import_tasks", p, true, BULK_TIMEOUT_MS).payload, ImportTasksResponse.class);
+            if (r.done) return r;
+            importId = r.importId;
+        }
+    }
+
+    /** Writes every task of the board to {@code out}, oldest first, fetching it chunk by chunk. */
+    public void exportTasks(String boardId, String format, Writer out) throws Exception {
+        String cursor = null;
+        do {
+            JsonObject p = new JsonObject();
+            p.addProperty("boardId", boardId);
+            if (format != null) p.addProperty("format", format);
+            if (cursor != null) p.addProperty("cursor", cursor);
+            ExportTasksResponse r = GSON.fromJson(send("export_tasks", p, true, BULK_TIMEOUT_MS).payload, ExportTasksResponse.class);
+            if (r.data != null) out.write(r.data);
+            cursor = r.nextCursor;
+        } while (cursor != null);
+        out.flush();
+    }
+
     private TcpClient.Env send(String action, JsonObject payload, boolean requireAuth) throws Exception {
+        return send(action, payload, requireAuth, TIMEOUT_MS);
+    }
+
+    private TcpClient.Env send(String action, JsonObject payload, boolean requireAuth, long timeoutMs) throws Exception {
         String token = null;
         if (requireAuth) {
             token = clientState.getToken().orElseThrow(() -> new IllegalStateException("Not logged in."));
         }
-        TcpClient.Env response = tcpClient.sendAndAwait(action, payload, token, TIMEOUT_MS);
+        TcpClient.Env response = tcpClient.sendAndAwait(action, payload, token, timeoutMs);
 
         if ("error".equals(response.type)) {
             JsonObject error = response.payload.getAsJsonObject("error");
@@ -15,6 +15,8 @@ public class ClientMain {
         String host = System.getProperty("host", "127.0.0.1");
         int port = Integer.getInteger("port", 5050);
         boolean useGui = Arrays.asList(args).contains("--gui");
+        String encoding = System.getProperty("encoding", "json");
+        boolean deflate = "deflate".equals(System.getProperty("compression"));
 
         System.out.println("═══════════════════════════════════════════");
         System.out.println("     Todo List Management System");
@@ -25,6 +27,9 @@ public class ClientMain {
         UdpListener udp = null;
         try {
             tcp = new TcpClient(host, port);
+            if (!"json".equals(encoding) || deflate) {
+                System.out.println("✓ Wire encoding: " + tcp.negotiate(encoding, deflate, 5000));
+            }
             udp = new UdpListener();
 
             ClientState state = new ClientState();
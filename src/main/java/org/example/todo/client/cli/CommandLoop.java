@@ -7,11 +7,18 @@ import org.example.todo.client.app.ClientState;
 import org.example.todo.client.net.PushNotificationListener;
 import org.example.todo.client.net.UdpListener;
 
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 import static org.example.todo.client.protocol.ProtocolJson.GSON;
 
 public class CommandLoop implements Runnable, PushNotificationListener {
+    private static final int PAGE_SIZE = 200;
+
     private final Scanner scanner = new Scanner(System.in);
     private final ClientApi api;
     private final ClientState state;
@@ -55,6 +62,8 @@ public class CommandLoop implements Runnable, PushNotificationListener {
                     case "list_tasks" -> doListTasks(args);
                     case "update_task_status" -> doUpdateTaskStatus(args);
                     case "delete_task" -> doDeleteTask(args);
+                    case "import_tasks" -> doImportTasks(args);
+                    case "export_tasks" -> doExportTasks(args);
                     default -> System.out.println("unknown command. type 'help'.");
                 }
             } catch (Exception e) {
@@ -157,13 +166,21 @@ public class CommandLoop implements Runnable, PushNotificationListener {
         if (kv.containsKey("by"))    sort.addProperty("by", kv.get("by"));
         if (kv.containsKey("order")) sort.addProperty("order", kv.get("order"));
 
-        var resp = api.listTasks(boardId, filters, sort);
+        Integer limit = null;
+        if (kv.containsKey("limit")) { try { limit = Integer.parseInt(kv.get("limit")); } catch (Exception ignore) {} }
+        String cursor = kv.get("cursor");
+
         System.out.println("tasks:");
-        for (var t : resp.tasks) {
-            String dueStr = (t.dueDate != null) ? String.valueOf(t.dueDate) : "-";
-            System.out.printf("- %s | %s | %s | pr=%s | due=%s | created=%d%n",
-                    t.id, t.title, t.status, t.priority, dueStr, t.createdAt);
-        }
+        do {
+            var resp = api.listTasks(boardId, filters, sort, limit != null ? limit : PAGE_SIZE, cursor);
+            for (var t : resp.tasks) {
+                String dueStr = (t.dueDate != null) ? String.valueOf(t.dueDate) : "-";
+                System.out.printf("- %s | %s | %s | pr=%s | due=%s | created=%d%n",
+                        t.id, t.title, t.status, t.priority, dueStr, t.createdAt);
+            }
+            cursor = resp.nextCursor;
+        } while (cursor != null && limit == null);
+        if (cursor != null) System.out.println("(more: add cursor=" + cursor + ")");
     }
 
     private void doUpdateTaskStatus(List<String> a) throws Exception {
@@ -182,6 +199,35 @@ public class CommandLoop implements Runnable, PushNotificationListener {
         System.out.println("task deleted.");
     }
 
+    private void doImportTasks(List<String> a) throws Exception {
+        var boardId = state.getCurrentBoard().orElse(null);
+        if (boardId == null) { System.out.println("not in board mode. run: view_board <boardId>"); return; }
+        if (a.size() < 2) { System.out.println("usage: import_tasks <file> [jsonl|csv]"); return; }
+        Path file = Path.of(a.get(1));
+        long start = System.nanoTime();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            var r = api.importTasks(boardId, a.size() >= 3 ? a.get(2) : formatOf(file), in);
+            System.out.printf("imported %d tasks, rejected %d, in %d ms%n", r.imported, r.rejected, (System.nanoTime() - start) / 1_000_000);
+            if (r.errors != null) for (String e : r.errors) System.out.println("  " + e);
+        }
+    }
+
+    private void doExportTasks(List<String> a) throws Exception {
+        var boardId = state.getCurrentBoard().orElse(null);
+        if (boardId == null) { System.out.println("not in board mode. run: view_board <boardId>"); return; }
+        if (a.size() < 2) { System.out.println("usage: export_tasks <file> [jsonl|csv]"); return; }
+        Path file = Path.of(a.get(1));
+        long start = System.nanoTime();
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            api.exportTasks(boardId, a.size() >= 3 ? a.get(2) : formatOf(file), out);
+        }
+        System.out.printf("exported to %s in %d ms%n", file, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static String formatOf(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? "csv" : "jsonl";
+    }
+
     private void doAutoUnsubscribe() {
         try {
             var boardOpt = state.getCurrentBoard();
@@ -201,7 +247,7 @@ public class CommandLoop implements Runnable, PushNotificationListener {
     }
 
     private static void printHelp() {
-        System.out.println("commands:\n  register <u> <p>\n  login <u> <p>\n  logout\n  create_board <name>\n  list_boards\n  add_user_to_board <boardId> <userId>\n  view_board <boardId>\n  subscribe_board [boardId]\n  unsubscribe_board [boardId]\n\n  add_task \"<title>\" \"<desc>\" <low|medium|high> [dueMillis]\n  list_tasks [by=createdAt|due|priority] [order=asc|desc] [status=...] [priority=...] [dueBefore=ms] [dueAfter=ms]\n  update_task_status <taskId> <todo|inProgress|done>\n  delete_task <taskId>\n  help\n  exit");
+        System.out.println("commands:\n  register <u> <p>\n  login <u> <p>\n  logout\n  create_board <name>\n  list_boards\n  add_user_to_board <boardId> <userId>\n  view_board <boardId>\n  subscribe_board [boardId]\n  unsubscribe_board [boardId]\n\n  add_task \"<title>\" \"<desc>\" <low|medium|high> [dueMillis]\n  list_tasks [by=createdAt|due|priority] [order=asc|desc] [status=...] [priority=...] [dueBefore=ms] [dueAfter=ms] [limit=n] [cursor=...]\n  update_task_status <taskId> <todo|inProgress|done>\n  delete_task <taskId>\n  import_tasks <file> [jsonl|csv]\n  export_tasks <file> [jsonl|csv]\n  help\n  exit");
     }
 
     private static List<String> parseArgs(String line) {
@@ -13,10 +13,13 @@ import java.awt.*;
 import java.util.List;
 
 public class BoardViewPanel extends JPanel {
+    private static final int PAGE_SIZE = 200;
+
     private final MainFrame mainFrame;
     private final ClientApi api;
     private final ClientState state;
     private String currentBoardId;
+    private volatile int loadGeneration;
 
     private final JLabel boardTitleLabel = new JLabel();
     private final DefaultListModel<TaskView> taskListModel = new DefaultListModel<>();
@@ -109,10 +112,14 @@ public class BoardViewPanel extends JPanel {
         this.currentBoardId = boardId;
         state.setCurrentBoard(boardId);
 
+        JsonObject filters = taskFilters();
+        JsonObject sort = taskSort();
+        int generation = ++loadGeneration;
+        taskListModel.clear();
         new SwingWorker<ViewBoardResponse, Void>() {
             @Override
             protected ViewBoardResponse doInBackground() throws Exception {
-                return api.viewBoard(boardId);
+                return api.viewBoard(boardId, filters, sort, PAGE_SIZE);
             }
 
             @Override
@@ -124,7 +131,10 @@ public class BoardViewPanel extends JPanel {
                     memberListModel.clear();
                     memberListModel.addAll(response.members);
 
-                    loadTasks();
+                    if (generation != loadGeneration) return;
+                    if (response.tasks == null) loadTasks(generation, filters, sort, null); // server without combined view
+                    else taskListModel.addAll(response.tasks);
+                    if (response.nextCursor != null) loadTasks(generation, filters, sort, response.nextCursor);
 
                 } catch (Exception e) {
                     JOptionPane.showMessageDialog(mainFrame, "Failed to load board details: " + e.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -136,8 +146,12 @@ public class BoardViewPanel extends JPanel {
 
     public void loadTasks() {
         if (currentBoardId == null) return;
+        int generation = ++loadGeneration;
+        taskListModel.clear();
+        loadTasks(generation, taskFilters(), taskSort(), null);
+    }
 
-
+    private JsonObject taskFilters() {
         JsonObject filters = new JsonObject();
         String selectedStatus = (String) statusFilterBox.getSelectedItem();
         if (selectedStatus != null && !selectedStatus.equals("All Statuses")) {
@@ -150,7 +164,10 @@ public class BoardViewPanel extends JPanel {
             statusArray.add(protocolStatus);
             filters.add("status", statusArray);
         }
+        return filters;
+    }
 
+    private JsonObject taskSort() {
         JsonObject sort = new JsonObject();
         String sortBy = (String) sortBox.getSelectedItem();
         if (sortBy != null) {
@@ -166,17 +183,33 @@ public class BoardViewPanel extends JPanel {
         if (sortOrder != null) {
             sort.addProperty("order", sortOrder.equals("Ascending") ? "asc" : "desc");
         }
+        return sort;
+    }
 
-        new SwingWorker<List<TaskView>, Void>() {
+    /** Appends the pages from {@code cursor} on (from the first when null) until a newer load starts. */
+    private void loadTasks(int generation, JsonObject filters, JsonObject sort, String cursor) {
+        String boardId = currentBoardId;
+        new SwingWorker<Void, List<TaskView>>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                String next = cursor;
+                do {
+                    if (generation != loadGeneration) return null;
+                    var page = api.listTasks(boardId, filters, sort, PAGE_SIZE, next);
+                    publish(page.tasks);
+                    next = page.nextCursor;
+                } while (next != null);
+                return null;
+            }
             @Override
-            protected List<TaskView> doInBackground() throws Exception {
-                return api.listTasks(currentBoardId, filters, sort).tasks;
+            protected void process(List<List<TaskView>> pages) {
+                if (generation != loadGeneration) return;
+                for (List<TaskView> page : pages) taskListModel.addAll(page);
             }
             @Override
             protected void done() {
                 try {
-                    taskListModel.clear();
-                    taskListModel.addAll(get());
+                    get();
                 } catch (Exception e) {
                     JOptionPane.showMessageDialog(mainFrame, "Failed to load tasks: " + e.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -1,30 +1,93 @@
 package org.example.todo.client.net;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.example.todo.server.protocol.BinaryProtocol;
+import org.example.todo.server.protocol.ByteSink;
+import org.example.todo.server.protocol.FrameCompression;
+
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
 
+import static org.example.todo.client.protocol.ProtocolJson.GSON;
 
+/**
+ * Frame codec for one connection, mirroring the server's: read and encode buffers are reused across
+ * frames and drop back to their initial size after an unusually large frame. Frames flagged as
+ * compressed are inflated, and large requests are deflated once the server has agreed to it.
+ */
 public final class MessageCodec {
-    private MessageCodec() {}
-
-    public static void writeJson(OutputStream os, String json) throws IOException {
-        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
-        DataOutputStream dos = new DataOutputStream(os);
-        dos.writeInt(bytes.length);
-        dos.write(bytes);
-        dos.flush();
+    private static final int MAX_FRAME = 16 * 1024 * 1024;
+    private static final int INITIAL_BUFFER = 4 * 1024;
+    private static final int RETAINED_BUFFER = 256 * 1024;
+
+    private final InputStream in;
+    private final OutputStream out;
+    private byte[] readBuf = new byte[INITIAL_BUFFER];
+    private final ByteSink writeBuf = new ByteSink(INITIAL_BUFFER);
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final FrameCompression compression;
+
+    public MessageCodec(InputStream in, OutputStream out, FrameCompression compression) {
+        this.in = in;
+        this.out = out;
+        this.compression = compression;
+    }
+
+    /** Blocks for the next frame and decodes it in whichever encoding it arrived. */
+    public JsonObject read() throws IOException {
+        readFully(readBuf, 4);
+        int header = ((readBuf[0] & 0xFF) << 24) | ((readBuf[1] & 0xFF) << 16) | ((readBuf[2] & 0xFF) << 8) | (readBuf[3] & 0xFF);
+        int len = header & ~FrameCompression.FLAG;
+        if (len > MAX_FRAME) throw new IOException("Invalid frame length: " + len);
+        if (len > readBuf.length) readBuf = new byte[len];
+        readFully(readBuf, len);
+        JsonObject tree;
+        if (header < 0) {
+            ByteSink plain = compression.inflate(readBuf, 0, len, MAX_FRAME);
+            tree = decode(plain.array(), plain.size());
+        } else {
+            tree = decode(readBuf, len);
+        }
+        if (readBuf.length > RETAINED_BUFFER) readBuf = new byte[INITIAL_BUFFER];
+        return tree;
     }
 
-    public static String readJson(InputStream is) throws IOException {
-        DataInputStream dis = new DataInputStream(is);
-        int len = dis.readInt();
-        if (len < 0 || len > (16 * 1024 * 1024)) throw new IOException("Invalid frame length: " + len);
-        byte[] buf = new byte[len];
-        dis.readFully(buf);
-        return new String(buf, StandardCharsets.UTF_8);
+    private static JsonObject decode(byte[] buf, int len) {
+        return BinaryProtocol.isBinary(buf, 0, len)
+                ? BinaryProtocol.decode(buf, 0, len)
+                : JsonParser.parseString(new String(buf, 0, len, StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    public void write(JsonObject env, boolean binary) throws IOException {
+        writeLock.lock();
+        try {
+            writeBuf.putInt(0);
+            if (binary) BinaryProtocol.encode(env, writeBuf);
+            else { GSON.toJson(env, writeBuf); writeBuf.flush(); }
+            boolean deflated = compression.compress(writeBuf, 4);
+            writeBuf.putIntAt(0, deflated ? (writeBuf.size() - 4) | FrameCompression.FLAG : writeBuf.size() - 4);
+            out.write(writeBuf.array(), 0, writeBuf.size());
+            out.flush();
+        } finally {
+            writeBuf.reset();
+            writeBuf.trim(RETAINED_BUFFER);
+            writeLock.unlock();
+        }
+    }
+
+    public void close() { compression.end(); }
+
+    private void readFully(byte[] buf, int len) throws IOException {
+        int n = 0;
+        while (n < len) {
+            int r = in.read(buf, n, len - n);
+            if (r < 0) throw new EOFException();
+            n += r;
+        }
     }
 }
@@ -1,4 +1,5 @@
 package org.example.todo.client.net;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import java.io.*;
 import java.net.InetSocketAddress;
@@ -6,14 +7,32 @@ import java.net.Socket;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.*;
+import org.example.todo.server.protocol.FrameCompression;
 import static org.example.todo.client.protocol.ProtocolJson.GSON;
 
 
 public class TcpClient implements Closeable {
+    private static final int COMPRESSION_MIN_BYTES = 1024;
+    private static final int MAX_OVERLOAD_RETRIES = 3;
+    private static final long DEFAULT_RETRY_AFTER_MS = 200;
+    private static final long MAX_BACKOFF_MS = 5000;
+    // Well inside the server's default 120 s idle timeout, so an idle but healthy session is never reaped.
+    private static final long DEFAULT_HEARTBEAT_MS = 30_000;
+
     private final Socket socket;
-    private final InputStream in;
-    private final OutputStream out;
+    private final MessageCodec codec;
+    private final FrameCompression compression = new FrameCompression(COMPRESSION_MIN_BYTES);
+    private volatile boolean binary = false;
     private final Map<String, CompletableFuture<Env>> pending = new ConcurrentHashMap<>();
+    private volatile String closeReason = "Connection closed";
+    private volatile boolean readerDone;
+    private volatile long lastSent = System.nanoTime();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "tcp-client-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> heartbeatTask;
     private final ExecutorService reader = Executors.newSingleThreadExecutor(r -> {
         Thread t = new Thread(r, "tcp-client-reader");
         t.setDaemon(true);
@@ -24,16 +43,42 @@ public class TcpClient implements Closeable {
         this.socket = new Socket();
         this.socket.connect(new InetSocketAddress(host, port), 5000);
         this.socket.setTcpNoDelay(true);
-        this.in = socket.getInputStream();
-        this.out = socket.getOutputStream();
+        this.codec = new MessageCodec(socket.getInputStream(), socket.getOutputStream(), compression);
         reader.submit(this::readLoop);
+        scheduleHeartbeat(DEFAULT_HEARTBEAT_MS);
+    }
+
+    /**
+     * Sends a {@code ping} whenever nothing else was sent for {@code intervalMs}, so the server's idle
+     * reaper keeps this connection; a ping that gets no answer closes the socket, failing pending calls.
+     * {@code 0} turns heartbeats off.
+     */
+    public void heartbeat(long intervalMs) {
+        scheduleHeartbeat(intervalMs);
+    }
+
+    private synchronized void scheduleHeartbeat(long intervalMs) {
+        if (heartbeatTask != null) heartbeatTask.cancel(false);
+        heartbeatTask = null;
+        if (intervalMs <= 0) return;
+        long nanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        long check = Math.max(50, intervalMs / 4);
+        heartbeatTask = heartbeat.scheduleWithFixedDelay(() -> {
+            if (socket.isClosed() || System.nanoTime() - lastSent < nanos) return;
+            try {
+                sendOnce("ping", null, null, Math.max(5000, intervalMs));
+            } catch (Exception e) {
+                closeReason = "Heartbeat failed: " + e.getMessage();
+                try { socket.close(); } catch (IOException ignore) {}
+            }
+        }, check, check, TimeUnit.MILLISECONDS);
     }
 
     private void readLoop() {
         try {
             while (!socket.isClosed()) {
-                String json = MessageCodec.readJson(in);
-                Env env = GSON.fromJson(json, Env.class);
+                JsonObject tree = codec.read();
+                Env env = GSON.fromJson(tree, Env.class);
                 if (env != null && env.reqId != null) {
                     CompletableFuture<Env> f = pending.remove(env.reqId);
                     if (f != null) {
@@ -42,27 +87,90 @@ public class TcpClient implements Closeable {
                     }
                 }
 
-                if (env != null && "push".equals(env.type)) {
-                    System.out.println("\n[PUSH from TCP]: " + json);
+                if (env != null && "error".equals(env.type) && env.reqId == null && isOverloaded(env)) {
+                    closeReason = "Server refused connection: " + env.payload.getAsJsonObject("error").get("message").getAsString();
+                } else if (env != null && "push".equals(env.type)) {
+                    System.out.println("\n[PUSH from TCP]: " + GSON.toJson(tree));
                     System.out.print("todo> ");
                 } else if (env != null) {
-                    System.out.println("Unexpected message: " + json);
+                    System.out.println("Unexpected message: " + GSON.toJson(tree));
                 }
             }
         } catch (IOException e) {
-            if (!socket.isClosed()) {
+            if (!socket.isClosed() && e.getMessage() != null) {
                 System.err.println("Read error: " + e.getMessage());
             }
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
-            IOException ex = new IOException("Connection closed");
+            readerDone = true;
+            IOException ex = new IOException(closeReason);
             pending.values().forEach(f -> f.completeExceptionally(ex));
             pending.clear();
         }
     }
 
+    public String negotiateEncoding(String encoding, long timeoutMs) throws Exception {
+        return negotiate(encoding, false, timeoutMs);
+    }
+
+    /**
+     * Offers {@code encoding} ("binary" or "json") and, with {@code deflate}, frame compression to the
+     * server; whatever it accepts applies to every later frame. Servers without the hello action keep
+     * the connection on uncompressed JSON. Returns the agreed format, e.g. "binary+deflate".
+     */
+    public String negotiate(String encoding, boolean deflate, long timeoutMs) throws Exception {
+        JsonObject p = new JsonObject();
+        JsonArray offered = new JsonArray();
+        offered.add(encoding);
+        offered.add("json");
+        p.add("encodings", offered);
+        if (deflate) {
+            JsonArray compressions = new JsonArray();
+            compressions.add(FrameCompression.DEFLATE);
+            p.add("compression", compressions);
+        }
+        Env resp = sendAndAwait("hello", p, null, timeoutMs);
+        boolean ok = "response".equals(resp.type) && resp.payload != null;
+        String chosen = ok && resp.payload.has("encoding") ? resp.payload.get("encoding").getAsString() : "json";
+        binary = "binary".equals(chosen);
+        if (ok && resp.payload.has("compression") && FrameCompression.DEFLATE.equals(resp.payload.get("compression").getAsString())) {
+            compression.enable();
+            chosen += "+" + FrameCompression.DEFLATE;
+        }
+        return chosen;
+    }
+
+    /**
+     * Sends one request and waits for its reply. An {@code OVERLOADED} reply was not processed, so the
+     * request is resent after the server's retry-after hint, doubled per attempt with random jitter so
+     * clients rejected together do not come back together; the last reply is returned once the retries
+     * or the timeout run out.
+     */
     public Env sendAndAwait(String action, JsonObject payload, String token, long timeoutMs) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        for (int attempt = 0; ; attempt++) {
+            Env resp = sendOnce(action, payload, token, Math.max(1, deadline - System.currentTimeMillis()));
+            if (attempt >= MAX_OVERLOAD_RETRIES || !isOverloaded(resp)) return resp;
+            long backoff = Math.min(MAX_BACKOFF_MS, retryAfterMs(resp) << attempt);
+            long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            if (System.currentTimeMillis() + delay >= deadline) return resp;
+            Thread.sleep(delay);
+        }
+    }
+
+    private static boolean isOverloaded(Env env) {
+        if (!"error".equals(env.type) || env.payload == null || !env.payload.has("error")) return false;
+        JsonObject err = env.payload.getAsJsonObject("error");
+        return err.has("code") && "OVERLOADED".equals(err.get("code").getAsString());
+    }
+
+    private static long retryAfterMs(Env env) {
+        JsonObject err = env.payload.getAsJsonObject("error");
+        return err.has("retryAfterMs") ? Math.max(1, err.get("retryAfterMs").getAsLong()) : DEFAULT_RETRY_AFTER_MS;
+    }
+
+    private Env sendOnce(String action, JsonObject payload, String token, long timeoutMs) throws Exception {
         String reqId = UUID.randomUUID().toString();
         JsonObject env = new JsonObject();
         env.addProperty("type", "request");
@@ -72,12 +180,14 @@ public class TcpClient implements Closeable {
         if (payload != null) env.add("payload", payload);
         CompletableFuture<Env> fut = new CompletableFuture<>();
         pending.put(reqId, fut);
-
-        String json = GSON.toJson(env);
-        synchronized (out) {
-            MessageCodec.writeJson(out, json);
+        if (readerDone) {
+            pending.remove(reqId);
+            throw new IOException(closeReason);
         }
 
+        codec.write(env, binary);
+        lastSent = System.nanoTime();
+
         try {
             return fut.get(timeoutMs, TimeUnit.MILLISECONDS);
         } catch (TimeoutException e) {
@@ -88,6 +198,7 @@ public class TcpClient implements Closeable {
 
     @Override
     public void close() throws IOException {
+        heartbeat.shutdownNow();
         try {
             reader.shutdownNow();
             reader.awaitTermination(1, TimeUnit.SECONDS);
@@ -95,6 +206,7 @@ public class TcpClient implements Closeable {
         try {
             socket.close();
         } catch (Exception ignore) {}
+        codec.close();
     }
 
     public static class Env {
@@ -3,8 +3,10 @@ package org.example.todo.server.app;
 import org.example.todo.server.auth.AuthService;
 import org.example.todo.server.auth.JwtService;
 import org.example.todo.server.auth.PasswordHasher;
+import org.example.todo.server.auth.SessionSweeper;
 import org.example.todo.server.db.DataSourceProvider;
 import org.example.todo.server.db.SchemaMigrator;
+import org.example.todo.server.net.tcp.NioTcpServer;
 import org.example.todo.server.net.tcp.TcpServer;
 import org.example.todo.server.push.PushService;
 import org.example.todo.server.push.SubscriptionRegistry;
@@ -19,17 +21,20 @@ public class ServerApp {
 
     public static void main(String[] args) throws Exception {
         ServerConfig cfg = ServerConfig.loadFromEnvOrDefaults();
-        log.info("Booting with TCP:{} UDP:{} DB:{}", cfg.getTcpPort(), cfg.getUdpPort(), cfg.getJdbcUrl());
+        log.info("Booting with TCP:{} ({}) UDP:{} DB:{}", cfg.getTcpPort(), cfg.getTcpTransport(), cfg.getUdpPort(), cfg.getJdbcUrl());
 
         DataSourceProvider dsp = new DataSourceProvider(cfg);
-        new SchemaMigrator(dsp).ensureSchema();
+        new SchemaMigrator(dsp, cfg).ensureSchema();
+        Runtime.getRuntime().addShutdownHook(new Thread(dsp::close, "db-close"));
 
         PasswordHasher hasher = new PasswordHasher();
         JwtService jwt = new JwtService(cfg.getJwtSecret());
         UserRepository userRepo = new UserRepository(dsp);
-        SessionRepository sessRepo = new SessionRepository(dsp);
+        SessionRepository sessRepo = new SessionRepository(dsp, cfg.getSessionCacheSize());
         UserService userService = new UserService(cfg, hasher, jwt, userRepo, sessRepo);
         AuthService authService = new AuthService(jwt, sessRepo);
+        SessionSweeper sweeper = new SessionSweeper(sessRepo, cfg);
+        Runtime.getRuntime().addShutdownHook(new Thread(sweeper::close, "session-sweeper-close"));
 
         BoardRepository boardRepo = new BoardRepository(dsp);
         MembershipRepository membershipRepo = new MembershipRepository(dsp);
@@ -38,13 +43,19 @@ public class ServerApp {
         UdpPushServer udp = new UdpPushServer(cfg.getUdpPort());
         PushService push = new PushService(registry, udp);
 
-        BoardService boardService = new BoardService(boardRepo, membershipRepo, userRepo, dsp, push);
+        BoardService boardService = new BoardService(boardRepo, membershipRepo, userRepo, dsp, push, cfg.getBoardAccessCacheSize());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> log.info("Board access cache: {}", boardService.accessCacheStats()), "board-cache-stats"));
 
         TaskRepository taskRepo = new TaskRepository(dsp);
-        TaskService taskService = new TaskService(taskRepo, boardService, push);
-
-        TcpServer tcpServer = new TcpServer(cfg.getTcpPort(), userService, authService, boardService, taskService, push);
-        tcpServer.start();
+        for (String p : taskRepo.checkListPlans()) log.warn("list_tasks query does not use its index: {}", p);
+        TaskService taskService = new TaskService(taskRepo, boardService, dsp, push, cfg.getTaskCacheBytes(), cfg.isTaskCacheVerify());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> log.info("Task cache: {}", taskService.taskCacheStats()), "task-cache-stats"));
+
+        if (cfg.getTcpTransport() == ServerConfig.TcpTransport.NIO) {
+            new NioTcpServer(cfg, userService, authService, boardService, taskService, push).start();
+        } else {
+            new TcpServer(cfg, userService, authService, boardService, taskService, push).start();
+        }
 
         log.info("Server TCP started. Press Ctrl+C to exit.");
     }
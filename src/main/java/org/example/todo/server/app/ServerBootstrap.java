@@ -20,7 +20,7 @@ public final class ServerBootstrap {
         log.info("Starting bootstrap. TCP:{} UDP:{} DB:{}", cfg.getTcpPort(), cfg.getUdpPort(), cfg.getJdbcUrl());
 
         DataSourceProvider dsp = new DataSourceProvider(cfg);
-        new SchemaMigrator(dsp).ensureSchema();
+        new SchemaMigrator(dsp, cfg).ensureSchema();
 
         PasswordHasher hasher = new PasswordHasher();
         JwtService jwt = new JwtService(cfg.getJwtSecret());
@@ -2,43 +2,160 @@ package org.example.todo.server.app;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Function;
 
 
 public final class ServerConfig {
+    public enum TcpTransport { BLOCKING, NIO }
+    public enum StorageProfile { DURABLE, BALANCED, THROUGHPUT }
+
     private final int tcpPort;
     private final int udpPort;
     private final String jdbcUrl;
     private final byte[] jwtSecret;
     private final Duration tokenTtl;
+    private final TcpTransport tcpTransport;
+    private final int nioEventLoops;
+    private final int workerThreads;
+    private final int workerQueueCapacity;
+    private final boolean virtualConnectionThreads;
+    private final boolean virtualRequestThreads;
+    private final int dbMaxConcurrency;
+    private final int dbReadPoolSize;
+    private final int dbWritePoolSize;
+    private final int dbPoolTimeoutMs;
+    private final int dbLeakDetectionMs;
+    private final int dbStatementCacheSize;
+    private final boolean groupCommit;
+    private final int groupCommitMaxBatch;
+    private final int groupCommitMaxWaitMicros;
+    private final StorageProfile storageProfile;
+    private final int walCheckpointMs;
+    private final int dbMigrationChunkRows;
+    private final boolean pipelining;
+    private final int maxInFlightPerConnection;
+    private final boolean compression;
+    private final int compressionThreshold;
+    private final int maxConnections;
+    private final int maxInFlightPerUser;
+    private final int retryAfterMs;
+    private final Duration idleTimeout;
+    private final Duration sessionSweepInterval;
+    private final int sessionSweepChunkRows;
+    private final int sessionCacheSize;
+    private final int boardAccessCacheSize;
+    private final int taskCacheMb;
+    private final boolean taskCacheVerify;
 
-    private ServerConfig(int tcpPort, int udpPort, String jdbcUrl, byte[] jwtSecret, Duration tokenTtl) {
-        this.tcpPort = tcpPort;
-        this.udpPort = udpPort;
-        this.jdbcUrl = jdbcUrl;
-        this.jwtSecret = jwtSecret;
-        this.tokenTtl = tokenTtl;
+    private ServerConfig(Function<String, String> env) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.tcpPort = parseIntOrDefault(env.apply("TODO_TCP_PORT"), 5050);
+        this.udpPort = parseIntOrDefault(env.apply("TODO_UDP_PORT"), 5051);
+        String dbFile = env.apply("TODO_DB_FILE");
+        if (dbFile == null || dbFile.isBlank()) dbFile = "data/todo.db";
+        this.jdbcUrl = "jdbc:sqlite:" + dbFile;
+        String secret = env.apply("TODO_JWT_SECRET");
+        if (secret == null || secret.isBlank()) secret = "dev-secret-change-me";
+        this.jwtSecret = secret.getBytes(StandardCharsets.UTF_8);
+        this.tokenTtl = Duration.ofHours(parseIntOrDefault(env.apply("TODO_TOKEN_TTL_HOURS"), 24));
+        this.tcpTransport = parseEnumOrDefault(env.apply("TODO_TCP_TRANSPORT"), TcpTransport.BLOCKING);
+        this.nioEventLoops = parseIntOrDefault(env.apply("TODO_NIO_EVENT_LOOPS"), Math.max(1, cores / 2));
+        this.workerThreads = parseIntOrDefault(env.apply("TODO_WORKER_THREADS"), cores * 2);
+        this.workerQueueCapacity = parseIntOrDefault(env.apply("TODO_WORKER_QUEUE"), 1024);
+        this.virtualConnectionThreads = parseBoolOrDefault(env.apply("TODO_VIRTUAL_CONNECTIONS"), false);
+        this.virtualRequestThreads = parseBoolOrDefault(env.apply("TODO_VIRTUAL_REQUESTS"), false);
+        this.dbMaxConcurrency = parseIntOrDefault(env.apply("TODO_DB_MAX_CONCURRENCY"), Math.max(1, cores - 1));
+        this.dbReadPoolSize = parseIntOrDefault(env.apply("TODO_DB_READ_POOL_SIZE"), Math.max(2, cores)); // 0 = no pooling
+        this.dbWritePoolSize = parseIntOrDefault(env.apply("TODO_DB_WRITE_POOL_SIZE"), 1);
+        this.dbPoolTimeoutMs = parseIntOrDefault(env.apply("TODO_DB_POOL_TIMEOUT_MS"), 5000);
+        this.dbLeakDetectionMs = parseIntOrDefault(env.apply("TODO_DB_LEAK_DETECTION_MS"), 0); // 0 = off
+        this.dbStatementCacheSize = parseIntOrDefault(env.apply("TODO_DB_STATEMENT_CACHE"), 64); // per connection, 0 = off
+        this.groupCommit = parseBoolOrDefault(env.apply("TODO_DB_GROUP_COMMIT"), true);
+        this.groupCommitMaxBatch = parseIntOrDefault(env.apply("TODO_DB_GROUP_MAX_BATCH"), 128);
+        this.groupCommitMaxWaitMicros = parseIntOrDefault(env.apply("TODO_DB_GROUP_MAX_WAIT_MICROS"), 0);
+        this.storageProfile = parseEnumOrDefault(env.apply("TODO_DB_PROFILE"), StorageProfile.BALANCED);
+        this.walCheckpointMs = parseIntOrDefault(env.apply("TODO_DB_CHECKPOINT_MS"), 1000); // 0 = SQLite's auto-checkpoint only
+        this.dbMigrationChunkRows = parseIntOrDefault(env.apply("TODO_DB_MIGRATION_CHUNK_ROWS"), 5000);
+        this.pipelining = parseBoolOrDefault(env.apply("TODO_PIPELINING"), false);
+        this.maxInFlightPerConnection = parseIntOrDefault(env.apply("TODO_MAX_IN_FLIGHT"), 16);
+        this.compression = parseBoolOrDefault(env.apply("TODO_COMPRESSION"), true);
+        this.compressionThreshold = parseIntOrDefault(env.apply("TODO_COMPRESSION_MIN_BYTES"), 1024);
+        this.maxConnections = parseIntOrDefault(env.apply("TODO_MAX_CONNECTIONS"), 0); // 0 = no cap
+        this.maxInFlightPerUser = parseIntOrDefault(env.apply("TODO_MAX_IN_FLIGHT_PER_USER"), 32);
+        this.retryAfterMs = parseIntOrDefault(env.apply("TODO_RETRY_AFTER_MS"), 200);
+        this.idleTimeout = Duration.ofSeconds(parseIntOrDefault(env.apply("TODO_IDLE_TIMEOUT_SECONDS"), 120)); // 0 = never reap
+        this.sessionSweepInterval = Duration.ofSeconds(parseIntOrDefault(env.apply("TODO_SESSION_SWEEP_SECONDS"), 300)); // 0 = never sweep
+        this.sessionSweepChunkRows = parseIntOrDefault(env.apply("TODO_SESSION_SWEEP_CHUNK_ROWS"), 500);
+        this.sessionCacheSize = parseIntOrDefault(env.apply("TODO_SESSION_CACHE_SIZE"), 10_000); // 0 = off
+        this.boardAccessCacheSize = parseIntOrDefault(env.apply("TODO_BOARD_ACCESS_CACHE_SIZE"), 50_000); // 0 = off
+        this.taskCacheMb = parseIntOrDefault(env.apply("TODO_TASK_CACHE_MB"), 64); // 0 = off
+        this.taskCacheVerify = parseBoolOrDefault(env.apply("TODO_TASK_CACHE_VERIFY"), false);
     }
 
     public static ServerConfig loadFromEnvOrDefaults() {
-        int tcp = parseIntOrDefault(System.getenv("TODO_TCP_PORT"), 5050);
-        int udp = parseIntOrDefault(System.getenv("TODO_UDP_PORT"), 5051);
-        String dbFile = System.getenv("TODO_DB_FILE");
-        if (dbFile == null || dbFile.isBlank()) dbFile = "data/todo.db";
-        String jdbc = "jdbc:sqlite:" + dbFile;
-        String secret = System.getenv("TODO_JWT_SECRET");
-        if (secret == null || secret.isBlank()) secret = "dev-secret-change-me";
-        String ttl = System.getenv("TODO_TOKEN_TTL_HOURS");
-        Duration tokenTtl = Duration.ofHours(ttl != null ? parseIntOrDefault(ttl, 24) : 24);
-        return new ServerConfig(tcp, udp, jdbc, secret.getBytes(StandardCharsets.UTF_8), tokenTtl);
+        return new ServerConfig(System::getenv);
+    }
+
+    /** Settings read from {@code env} instead of the process environment, e.g. by tests. */
+    public static ServerConfig fromEnv(Function<String, String> env) {
+        return new ServerConfig(env);
     }
 
     private static int parseIntOrDefault(String s, int def) {
         try { return Integer.parseInt(s); } catch (Exception e) { return def; }
     }
 
+    private static boolean parseBoolOrDefault(String s, boolean def) {
+        if (s == null || s.isBlank()) return def;
+        return switch (s.trim().toLowerCase(Locale.ROOT)) {
+            case "1", "true", "yes", "on" -> true;
+            case "0", "false", "no", "off" -> false;
+            default -> def;
+        };
+    }
+
+    private static <E extends Enum<E>> E parseEnumOrDefault(String s, E def) {
+        if (s == null || s.isBlank()) return def;
+        try { return Enum.valueOf(def.getDeclaringClass(), s.trim().toUpperCase(Locale.ROOT)); } catch (Exception e) { return def; }
+    }
+
     public int getTcpPort() { return tcpPort; }
     public int getUdpPort() { return udpPort; }
     public String getJdbcUrl() { return jdbcUrl; }
     public byte[] getJwtSecret() { return jwtSecret; }
     public Duration getTokenTtl() { return tokenTtl; }
+    public TcpTransport getTcpTransport() { return tcpTransport; }
+    public int getNioEventLoops() { return nioEventLoops; }
+    public int getWorkerThreads() { return workerThreads; }
+    public int getWorkerQueueCapacity() { return workerQueueCapacity; }
+    public boolean isVirtualConnectionThreads() { return virtualConnectionThreads; }
+    public boolean isVirtualRequestThreads() { return virtualRequestThreads; }
+    public boolean usesVirtualThreads() { return virtualConnectionThreads || virtualRequestThreads; }
+    public int getDbMaxConcurrency() { return dbMaxConcurrency; }
+    public int getDbReadPoolSize() { return dbReadPoolSize; }
+    public int getDbWritePoolSize() { return dbWritePoolSize; }
+    public int getDbPoolTimeoutMs() { return dbPoolTimeoutMs; }
+    public int getDbLeakDetectionMs() { return dbLeakDetectionMs; }
+    public int getDbStatementCacheSize() { return dbStatementCacheSize; }
+    public boolean isGroupCommit() { return groupCommit; }
+    public int getGroupCommitMaxBatch() { return groupCommitMaxBatch; }
+    public int getGroupCommitMaxWaitMicros() { return groupCommitMaxWaitMicros; }
+    public StorageProfile getStorageProfile() { return storageProfile; }
+    public int getWalCheckpointMs() { return walCheckpointMs; }
+    public int getDbMigrationChunkRows() { return dbMigrationChunkRows; }
+    public boolean isPipelining() { return pipelining; }
+    public int getMaxInFlightPerConnection() { return maxInFlightPerConnection; }
+    public boolean isCompressionEnabled() { return compression; }
+    public int getCompressionThreshold() { return compressionThreshold; }
+    public int getMaxConnections() { return maxConnections; }
+    public int getMaxInFlightPerUser() { return maxInFlightPerUser; }
+    public int getRetryAfterMs() { return retryAfterMs; }
+    public Duration getIdleTimeout() { return idleTimeout; }
+    public Duration getSessionSweepInterval() { return sessionSweepInterval; }
+    public int getSessionSweepChunkRows() { return sessionSweepChunkRows; }
+    public int getSessionCacheSize() { return sessionCacheSize; }
+    public int getBoardAccessCacheSize() { return boardAccessCacheSize; }
+    public long getTaskCacheBytes() { return (long) Math.max(0, taskCacheMb) << 20; }
+    public boolean isTaskCacheVerify() { return taskCacheVerify; }
 }
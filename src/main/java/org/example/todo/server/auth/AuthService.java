@@ -21,6 +21,15 @@ public class AuthService {
         this.sessions = Objects.requireNonNull(sessions);
     }
 
+    /** User id of a correctly signed, unexpired token, without the session lookup; null if the token is not valid. */
+    public String verifiedUserId(String token) {
+        try {
+            return jwt.parseAndValidate(token).userId;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
     public AuthContext authenticate(String token) throws SQLException {
         var claims = jwt.parseAndValidate(token);
         var opt = sessions.findByJti(claims.jti);
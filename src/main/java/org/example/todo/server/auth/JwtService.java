@@ -5,66 +5,180 @@ import com.google.gson.annotations.SerializedName;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-
+/**
+ * HS256 tokens. Verification runs on every request, so it avoids what costs there: initialized {@link Mac}s are
+ * pooled, the token is scanned for its dots and signed in place, the signature is compared in its Base64 form and
+ * the payload is read by {@link #parsePayload}, which only falls back to Gson for payloads this class does not write.
+ */
 public class JwtService {
     private static final Gson GSON = new Gson();
     private static final Base64.Encoder B64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
     private static final Base64.Decoder B64_URL_DECODER = Base64.getUrlDecoder();
 
-    private final byte[] secret;
+    private final SecretKeySpec key;
+    private final Queue<Mac> macs = new ConcurrentLinkedQueue<>(); // a pool rather than a ThreadLocal: request threads may be virtual
+
+    public record Issued(String token, String jti) {}
 
     public JwtService(byte[] secret) {
-        this.secret = Objects.requireNonNull(secret);
+        this.key = new SecretKeySpec(Objects.requireNonNull(secret).clone(), "HmacSHA256");
     }
 
     public String createToken(String userId, String username, long iatMillis, long expMillis) {
+        return issue(userId, username, iatMillis, expMillis).token();
+    }
+
+    /** A new token together with its {@code jti}, so login does not parse what it just built. */
+    public Issued issue(String userId, String username, long iatMillis, long expMillis) {
         Header hdr = new Header("HS256", "JWT");
         Payload p = new Payload(userId, username, millisToSeconds(iatMillis), millisToSeconds(expMillis), UUID.randomUUID().toString());
         String header64 = B64_URL_ENCODER.encodeToString(GSON.toJson(hdr).getBytes(StandardCharsets.UTF_8));
         String payload64 = B64_URL_ENCODER.encodeToString(GSON.toJson(p).getBytes(StandardCharsets.UTF_8));
         String signingInput = header64 + "." + payload64;
-        String sig64 = B64_URL_ENCODER.encodeToString(hmacSha256(signingInput.getBytes(StandardCharsets.UTF_8)));
-        return signingInput + "." + sig64;
+        byte[] input = signingInput.getBytes(StandardCharsets.US_ASCII);
+        String sig64 = B64_URL_ENCODER.encodeToString(hmacSha256(input, input.length));
+        return new Issued(signingInput + "." + sig64, p.jti);
     }
 
     public Claims parseAndValidate(String token) {
-        String[] parts = token.split("\\.");
-        if (parts.length != 3) throw new IllegalArgumentException("Invalid JWT format");
-        String header64 = parts[0], payload64 = parts[1], sig64 = parts[2];
-        byte[] expectedSig = hmacSha256((header64 + "." + payload64).getBytes(StandardCharsets.UTF_8));
-        byte[] providedSig = B64_URL_DECODER.decode(sig64);
-        if (!PasswordHasher.constantTimeEquals(expectedSig, providedSig))
-            throw new SecurityException("Invalid JWT signature");
-
-        Payload p = GSON.fromJson(new String(B64_URL_DECODER.decode(payload64), StandardCharsets.UTF_8), Payload.class);
+        byte[] b = token.getBytes(StandardCharsets.ISO_8859_1);
+        int dot1 = indexOf(b, '.', 0), dot2 = dot1 < 0 ? -1 : indexOf(b, '.', dot1 + 1);
+        if (dot2 < 0 || indexOf(b, '.', dot2 + 1) >= 0) throw new IllegalArgumentException("Invalid JWT format");
+        byte[] expectedSig = hmacSha256(b, dot2);
+        if (!regionEquals(B64_URL_ENCODER.encode(expectedSig), b, dot2 + 1)) {
+            // not our own encoding: padded or non-canonical base64 still verifies, bad base64 fails as malformed
+            byte[] providedSig = B64_URL_DECODER.decode(Arrays.copyOfRange(b, dot2 + 1, b.length));
+            if (!PasswordHasher.constantTimeEquals(expectedSig, providedSig))
+                throw new SecurityException("Invalid JWT signature");
+        }
+
+        Payload p = decodePayload(b, dot1, dot2);
         long nowSec = millisToSeconds(Instant.now().toEpochMilli());
         if (p.exp < nowSec) throw new SecurityException("Token expired");
         return new Claims(p.sub, p.username, secondsToMillis(p.iat), secondsToMillis(p.exp), p.jti);
     }
 
+    /** The {@code jti} claim, signature not checked. */
     public String getJti(String token) {
-        String[] parts = token.split("\\.");
-        if (parts.length != 3) throw new IllegalArgumentException("Invalid JWT");
-        Payload p = GSON.fromJson(new String(B64_URL_DECODER.decode(parts[1]), StandardCharsets.UTF_8), Payload.class);
-        return p.jti;
+        byte[] b = token.getBytes(StandardCharsets.ISO_8859_1);
+        int dot1 = indexOf(b, '.', 0), dot2 = dot1 < 0 ? -1 : indexOf(b, '.', dot1 + 1);
+        if (dot2 < 0 || indexOf(b, '.', dot2 + 1) >= 0) throw new IllegalArgumentException("Invalid JWT");
+        return decodePayload(b, dot1, dot2).jti;
     }
 
-    private byte[] hmacSha256(byte[] data) {
+    private byte[] hmacSha256(byte[] data, int len) {
+        Mac mac = macs.poll();
         try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
-            return mac.doFinal(data);
-        } catch (Exception e) {
+            if (mac == null) {
+                mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+            }
+            mac.update(data, 0, len);
+            byte[] sig = mac.doFinal(); // also resets the Mac for its next use
+            macs.offer(mac);
+            return sig;
+        } catch (GeneralSecurityException e) {
             throw new IllegalStateException("HMAC failed", e);
         }
     }
 
+    private static int indexOf(byte[] b, char c, int from) {
+        for (int i = from; i < b.length; i++) if (b[i] == c) return i;
+        return -1;
+    }
+
+    /** Constant-time unless the lengths differ, which the token's length already tells. */
+    private static boolean regionEquals(byte[] expected, byte[] b, int from) {
+        if (b.length - from != expected.length) return false;
+        int r = 0;
+        for (int i = 0; i < expected.length; i++) r |= expected[i] ^ b[from + i];
+        return r == 0;
+    }
+
+    private static Payload decodePayload(byte[] b, int dot1, int dot2) {
+        ByteBuffer json = B64_URL_DECODER.decode(ByteBuffer.wrap(b, dot1 + 1, dot2 - dot1 - 1));
+        Payload p = parsePayload(json.array(), json.limit());
+        return p != null ? p : GSON.fromJson(new String(json.array(), 0, json.limit(), StandardCharsets.UTF_8), Payload.class);
+    }
+
+    /**
+     * Reads a flat object of string and integer members, the payload {@link #issue} writes, without reflection.
+     * Returns null, for Gson to take over, on anything else: escapes, nesting, other literals, a member of the
+     * wrong type.
+     */
+    private static Payload parsePayload(byte[] b, int len) {
+        Payload p = new Payload(null, null, 0, 0, null);
+        int i = skipSpace(b, 0, len);
+        if (i >= len || b[i] != '{') return null;
+        i = skipSpace(b, i + 1, len);
+        if (i < len && b[i] == '}') return p;
+        while (i < len && b[i] == '"') {
+            int keyEnd = stringEnd(b, i + 1, len);
+            if (keyEnd < 0) return null;
+            int keyStart = i + 1;
+            i = skipSpace(b, keyEnd + 1, len);
+            if (i >= len || b[i] != ':') return null;
+            i = skipSpace(b, i + 1, len);
+            if (i >= len) return null;
+            if (b[i] == '"') {
+                int end = stringEnd(b, i + 1, len);
+                if (end < 0) return null;
+                String v = new String(b, i + 1, end - i - 1, StandardCharsets.UTF_8);
+                if (is(b, keyStart, keyEnd, "sub")) p.sub = v;
+                else if (is(b, keyStart, keyEnd, "username")) p.username = v;
+                else if (is(b, keyStart, keyEnd, "jti")) p.jti = v;
+                else if (is(b, keyStart, keyEnd, "iat") || is(b, keyStart, keyEnd, "exp")) return null;
+                i = end + 1;
+            } else {
+                int start = i;
+                if (b[i] == '-') i++;
+                while (i < len && b[i] >= '0' && b[i] <= '9') i++;
+                int digits = i - start - (b[start] == '-' ? 1 : 0);
+                if (digits == 0 || digits > 18 || (i < len && (b[i] == '.' || b[i] == 'e' || b[i] == 'E'))) return null;
+                long v = Long.parseLong(new String(b, start, i - start, StandardCharsets.US_ASCII));
+                if (is(b, keyStart, keyEnd, "iat")) p.iat = v;
+                else if (is(b, keyStart, keyEnd, "exp")) p.exp = v;
+                else if (is(b, keyStart, keyEnd, "sub") || is(b, keyStart, keyEnd, "username") || is(b, keyStart, keyEnd, "jti")) return null;
+            }
+            i = skipSpace(b, i, len);
+            if (i < len && b[i] == '}') return skipSpace(b, i + 1, len) == len ? p : null;
+            if (i >= len || b[i] != ',') return null;
+            i = skipSpace(b, i + 1, len);
+        }
+        return null;
+    }
+
+    private static int skipSpace(byte[] b, int i, int len) {
+        while (i < len && (b[i] == ' ' || b[i] == '\t' || b[i] == '\n' || b[i] == '\r')) i++;
+        return i;
+    }
+
+    /** Index of the quote closing a string that starts at {@code from}; -1 if it has an escape or no end. */
+    private static int stringEnd(byte[] b, int from, int len) {
+        for (int i = from; i < len; i++) {
+            if (b[i] == '"') return i;
+            if (b[i] == '\\') return -1;
+        }
+        return -1;
+    }
+
+    private static boolean is(byte[] b, int from, int to, String name) {
+        if (to - from != name.length()) return false;
+        for (int i = 0; i < name.length(); i++) if (b[from + i] != name.charAt(i)) return false;
+        return true;
+    }
+
     private static long millisToSeconds(long ms) { return ms / 1000L; }
     private static long secondsToMillis(long s) { return s * 1000L; }
 
@@ -0,0 +1,72 @@
+package org.example.todo.server.auth;
+
+import org.example.todo.server.app.ServerConfig;
+import org.example.todo.server.repository.SessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deletes expired sessions every {@code TODO_SESSION_SWEEP_SECONDS}; otherwise every login adds a row that
+ * stays forever. A sweep deletes {@code TODO_SESSION_SWEEP_CHUNK_ROWS} rows per write, each its own turn at the
+ * writer, so requests queued behind it wait for one chunk rather than the whole backlog. {@link AuthService}
+ * rejects expired sessions itself, so how late a sweep runs only affects the table's size.
+ */
+public final class SessionSweeper implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SessionSweeper.class);
+
+    private final SessionRepository sessions;
+    private final int chunkRows;
+    private final LongAdder purged = new LongAdder();
+    private final LongAdder sweeps = new LongAdder();
+    private final LongAdder sweepNanos = new LongAdder();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "session-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SessionSweeper(SessionRepository sessions, ServerConfig config) {
+        this.sessions = sessions;
+        this.chunkRows = Math.max(1, config.getSessionSweepChunkRows());
+        long period = config.getSessionSweepInterval().toMillis();
+        if (period > 0) timer.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** Deletes every session expired by now, a chunk at a time; returns how many. */
+    public int sweep() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        int total = 0, n;
+        try {
+            do {
+                n = sessions.deleteExpired(now, chunkRows);
+                total += n;
+            } while (n == chunkRows && !Thread.currentThread().isInterrupted());
+        } catch (SQLException e) {
+            log.warn("Session sweep stopped after {} row(s): {}", total, e.getMessage());
+        }
+        long nanos = System.nanoTime() - start;
+        sweeps.increment();
+        sweepNanos.add(nanos);
+        purged.add(total);
+        if (total > 0) log.info("Purged {} expired session(s) in {} ms, {} so far", total, TimeUnit.NANOSECONDS.toMillis(nanos), purged.sum());
+        var cache = sessions.cacheStats();
+        if (cache.hits() + cache.negativeHits() + cache.misses() > 0) log.info("Session cache: {}", cache);
+        return total;
+    }
+
+    public long purged() { return purged.sum(); }
+
+    public long sweeps() { return sweeps.sum(); }
+
+    public long sweepMillis() { return TimeUnit.NANOSECONDS.toMillis(sweepNanos.sum()); }
+
+    @Override
+    public void close() { timer.shutdownNow(); }
+}
@@ -0,0 +1,222 @@
+package org.example.todo.server.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One bounded pool of SQLite connections, see {@link DataSourceProvider} for how the pools are used.
+ * {@code close()} on a borrowed connection returns it, rolling back anything left uncommitted.
+ * A connection that sat idle for a while is validated before it is handed out; broken ones are dropped.
+ */
+final class ConnectionPool {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+    private static final long VALIDATE_AFTER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @FunctionalInterface
+    interface Opener {
+        Connection open() throws SQLException;
+    }
+
+    private final String name;
+    private final Opener opener;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final long leakThresholdMs;
+    private final int statementCacheSize;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<Physical> idle = new ConcurrentLinkedDeque<>();
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    private volatile boolean open = true;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+
+    ConnectionPool(String name, Opener opener, int maxSize, long acquireTimeoutMs, long leakThresholdMs, int statementCacheSize) {
+        this.name = name;
+        this.opener = opener;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    Connection getConnection() throws SQLException {
+        if (!open) throw new SQLException("Connection pool " + name + " is closed");
+        borrows.increment();
+        if (!permits.tryAcquire()) {
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            long waited = System.nanoTime() - start;
+            waits.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            if (!acquired) {
+                timeouts.increment();
+                throw new SQLException("Timed out after " + acquireTimeoutMs + " ms waiting for a database connection (" + metrics() + ")");
+            }
+        }
+        try {
+            return lease(takeIdleOrCreate());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /** A statement cache whose hits and misses count towards this pool, for a connection it does not hand out. */
+    StatementCache newStatementCache() {
+        return statementCacheSize > 0 ? new StatementCache(statementCacheSize, statementHits, statementMisses, statementEvictions) : null;
+    }
+
+    private Physical takeIdleOrCreate() throws SQLException {
+        Physical p;
+        while ((p = idle.pollFirst()) != null) {
+            if (isUsable(p)) return p;
+            discard(p);
+        }
+        Connection c = opener.open();
+        created.increment();
+        return new Physical(c, newStatementCache());
+    }
+
+    private boolean isUsable(Physical p) {
+        try {
+            if (p.connection.isClosed()) return false;
+            return System.nanoTime() - p.lastReturned < VALIDATE_AFTER_IDLE_NANOS || p.connection.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lease(Physical p) {
+        Lease lease = new Lease(p, leakThresholdMs > 0 ? new Throwable("Connection borrowed here") : null);
+        leased.add(lease);
+        Connection c = p.connection;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, m, args) -> {
+            switch (m.getName()) {
+                case "close" -> {
+                    if (m.getParameterCount() == 0) { giveBack(lease); return null; }
+                }
+                case "isClosed" -> {
+                    if (m.getParameterCount() == 0) return lease.returned.get() || c.isClosed();
+                }
+                case "prepareStatement" -> {
+                    if (m.getParameterCount() == 1 && p.statements != null && !lease.returned.get()) {
+                        return p.statements.prepare(c, (Connection) proxy, (String) args[0]);
+                    }
+                }
+                case "toString" -> { if (m.getParameterCount() == 0) return name + " " + c; }
+                case "hashCode" -> { if (m.getParameterCount() == 0) return System.identityHashCode(proxy); }
+                case "equals" -> { if (m.getParameterCount() == 1) return proxy == args[0]; }
+                default -> {}
+            }
+            if (lease.returned.get()) throw new SQLException("Connection is closed");
+            try {
+                return m.invoke(c, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private void giveBack(Lease lease) {
+        if (!lease.returned.compareAndSet(false, true)) return;
+        leased.remove(lease);
+        Physical p = lease.physical;
+        boolean reusable;
+        try {
+            if (!p.connection.getAutoCommit()) {
+                p.connection.rollback();
+                p.connection.setAutoCommit(true);
+            }
+            reusable = !p.connection.isClosed();
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        if (reusable && open) {
+            p.lastReturned = System.nanoTime();
+            idle.offerFirst(p);
+        } else {
+            discard(p);
+        }
+        permits.release();
+    }
+
+    private void discard(Physical p) {
+        discarded.increment();
+        if (p.statements != null) p.statements.closeAll();
+        try { p.connection.close(); } catch (SQLException ignore) {}
+    }
+
+    void reportLeaks() {
+        if (leakThresholdMs <= 0) return;
+        long now = System.nanoTime();
+        for (Lease l : leased) {
+            long heldMs = TimeUnit.NANOSECONDS.toMillis(now - l.borrowedAt);
+            if (heldMs >= leakThresholdMs && !l.reported) {
+                l.reported = true;
+                log.warn("Database connection from the {} pool held for {} ms, possible leak", name, heldMs, l.origin);
+            }
+        }
+    }
+
+    long borrows() { return borrows.sum(); }
+
+    DataSourceProvider.Metrics metrics() {
+        long w = waits.sum();
+        return new DataSourceProvider.Metrics(name, leased.size(), idle.size(), maxSize, borrows.sum(), w,
+                w == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum()) / w,
+                TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()), timeouts.sum(), created.sum(), discarded.sum(),
+                statementHits.sum(), statementMisses.sum(), statementEvictions.sum());
+    }
+
+    void close() {
+        open = false;
+        Physical p;
+        while ((p = idle.pollFirst()) != null) discard(p);
+    }
+
+    private static final class Physical {
+        final Connection connection;
+        final StatementCache statements;
+        volatile long lastReturned = System.nanoTime();
+        Physical(Connection connection, StatementCache statements) { this.connection = connection; this.statements = statements; }
+    }
+
+    private static final class Lease {
+        final Physical physical;
+        final Throwable origin;
+        final long borrowedAt = System.nanoTime();
+        final AtomicBoolean returned = new AtomicBoolean();
+        volatile boolean reported;
+        Lease(Physical physical, Throwable origin) { this.physical = physical; this.origin = origin; }
+    }
+}
@@ -1,23 +1,150 @@
 package org.example.todo.server.db;
 
 import org.example.todo.server.app.ServerConfig;
+import org.example.todo.server.app.ServerConfig.StorageProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
 
 import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-
-public class DataSourceProvider {
+/**
+ * SQLite connections for the repositories. Opening a connection costs a file open plus a schema read, and
+ * a single request used to open three or four of them, so connections are pooled. There are two sides:
+ * <ul>
+ *   <li>reads: {@link #getConnection()} hands out read-only connections ({@code query_only}) from a pool of
+ *       {@code TODO_DB_READ_POOL_SIZE}, by default one per core. Under WAL they run while a write is in
+ *       progress. Callers keep the plain {@code try (Connection c = dsp.getConnection())} pattern.</li>
+ *   <li>writes: {@link #write} runs a transaction, by default on the single {@link GroupCommitWriter}; with
+ *       {@code TODO_DB_GROUP_COMMIT=false} on a pool of {@code TODO_DB_WRITE_POOL_SIZE} (1) connections.</li>
+ * </ul>
+ * Borrowers wait up to {@code TODO_DB_POOL_TIMEOUT_MS} for a connection and then fail with an
+ * {@link SQLException}. With virtual threads the read pool is also capped by {@code TODO_DB_MAX_CONCURRENCY}:
+ * sqlite-jdbc runs every statement inside JNI, which pins the carrier, and waiting for a permit parks without
+ * pinning. A pool size of 0 opens a connection per call instead. Each connection keeps up to
+ * {@code TODO_DB_STATEMENT_CACHE} prepared statements, see {@link StatementCache}. With
+ * {@code TODO_DB_LEAK_DETECTION_MS} set, connections held longer than that are logged with the stack that
+ * borrowed them. {@link #metrics()} has the counters of each pool; they are also logged every minute.
+ *
+ * <p>Every {@link StorageProfile} runs the database in WAL mode, so readers no longer wait for writers. Its
+ * PRAGMAs run once, when a connection is created. Profiles differ in what a commit waits for and how much
+ * memory a connection may use:
+ * <ul>
+ *   <li>{@code DURABLE}: {@code synchronous=FULL}, a commit survives power loss; small cache, no mmap.</li>
+ *   <li>{@code BALANCED} (default): {@code synchronous=NORMAL}, a commit survives a crash of the process
+ *       but the last ones may roll back after power loss; 16 MB cache, 64 MB mmap.</li>
+ *   <li>{@code THROUGHPUT}: {@code synchronous=OFF}, the OS decides when data reaches the disk;
+ *       64 MB cache, 256 MB mmap.</li>
+ * </ul>
+ * With {@code TODO_DB_CHECKPOINT_MS} set, the WAL is checkpointed in the background on its own connection
+ * and, except for {@code DURABLE}, the commit that crosses SQLite's auto-checkpoint threshold no longer
+ * pays for it.
+ */
+public final class DataSourceProvider implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(DataSourceProvider.class);
+    private static final long METRICS_LOG_SECONDS = 60;
 
     private final String jdbcUrl;
+    private final StorageProfile profile;
+    private final String[] writerPragmas;
+    private final String[] readerPragmas;
+    private final ConnectionPool reads;
+    private final ConnectionPool writes;
+    private final boolean groupCommit;
+    private final int groupMaxBatch;
+    private final long groupMaxWaitNanos;
+    private final long acquireTimeoutMs;
+    private volatile GroupCommitWriter writer;
+    private Connection writerConnection;
+    private final long checkpointMs;
+    private Connection checkpointConnection; // housekeeper thread only
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean open = true;
+
+    private final LongAdder checkpoints = new LongAdder();
+    private final LongAdder checkpointedPages = new LongAdder();
+    private long lastLoggedBorrows, lastMetricsLog; // housekeeper thread only
 
     public DataSourceProvider(ServerConfig config) {
         this.jdbcUrl = config.getJdbcUrl();
+        this.profile = config.getStorageProfile();
+        this.checkpointMs = Math.max(0, config.getWalCheckpointMs());
+        this.writerPragmas = writerPragmas(profile, checkpointMs > 0);
+        this.readerPragmas = readerPragmas(profile);
+        this.groupCommit = config.isGroupCommit();
+        this.groupMaxBatch = config.getGroupCommitMaxBatch();
+        this.groupMaxWaitNanos = TimeUnit.MICROSECONDS.toNanos(config.getGroupCommitMaxWaitMicros());
+        this.acquireTimeoutMs = Math.max(1, config.getDbPoolTimeoutMs());
+        long leakThresholdMs = Math.max(0, config.getDbLeakDetectionMs());
+        int statementCacheSize = Math.max(0, config.getDbStatementCacheSize());
+        int readSize = Math.max(0, config.getDbReadPoolSize());
+        if (readSize > 0 && config.usesVirtualThreads()) readSize = Math.min(readSize, Math.max(1, config.getDbMaxConcurrency()));
+        int writeSize = Math.max(0, config.getDbWritePoolSize());
+        this.reads = readSize > 0
+                ? new ConnectionPool("read", () -> openPhysical(true), readSize, acquireTimeoutMs, leakThresholdMs, statementCacheSize) : null;
+        this.writes = writeSize > 0
+                ? new ConnectionPool("write", () -> openPhysical(false), writeSize, acquireTimeoutMs, leakThresholdMs, statementCacheSize) : null;
         ensureDbDirectory(jdbcUrl);
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = leakThresholdMs > 0 ? Math.max(1000, leakThresholdMs / 2) : METRICS_LOG_SECONDS * 1000;
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, period, period, TimeUnit.MILLISECONDS);
+        if (checkpointMs > 0) housekeeper.scheduleWithFixedDelay(this::checkpoint, checkpointMs, checkpointMs, TimeUnit.MILLISECONDS);
+        log.info("DB profile {}, {} read / {} write connections, {} ms acquire timeout{}{}{}", profile, readSize,
+                groupCommit ? "1 group-commit" : String.valueOf(writeSize), acquireTimeoutMs,
+                groupCommit ? " (up to " + groupMaxBatch + " writes per group)" : "",
+                checkpointMs > 0 ? ", WAL checkpoint every " + checkpointMs + " ms" : "",
+                leakThresholdMs > 0 ? ", leak detection after " + leakThresholdMs + " ms" : "");
+    }
+
+    private record ProfileSettings(String synchronous, int cacheSize, long mmapSize, String tempStore) {}
+
+    private static ProfileSettings settings(StorageProfile profile) {
+        return switch (profile) {
+            case DURABLE -> new ProfileSettings("FULL", -2_000, 0, "DEFAULT");
+            case BALANCED -> new ProfileSettings("NORMAL", -16_000, 64L << 20, "MEMORY");
+            case THROUGHPUT -> new ProfileSettings("OFF", -64_000, 256L << 20, "MEMORY");
+        };
+    }
+
+    private static String[] writerPragmas(StorageProfile profile, boolean backgroundCheckpoint) {
+        ProfileSettings s = settings(profile);
+        int autoCheckpointPages = backgroundCheckpoint && profile != StorageProfile.DURABLE ? 0 : 1000;
+        return new String[]{
+                "PRAGMA busy_timeout = 5000",
+                "PRAGMA journal_mode = WAL",
+                "PRAGMA synchronous = " + s.synchronous(),
+                "PRAGMA cache_size = " + s.cacheSize(),
+                "PRAGMA mmap_size = " + s.mmapSize(),
+                "PRAGMA temp_store = " + s.tempStore(),
+                "PRAGMA wal_autocheckpoint = " + autoCheckpointPages,
+                "PRAGMA foreign_keys = ON"
+        };
+    }
+
+    /** Readers leave the journal mode to the writers: switching it is a write, and they are opened read-only. */
+    private static String[] readerPragmas(StorageProfile profile) {
+        ProfileSettings s = settings(profile);
+        return new String[]{
+                "PRAGMA busy_timeout = 5000",
+                "PRAGMA cache_size = " + s.cacheSize(),
+                "PRAGMA mmap_size = " + s.mmapSize(),
+                "PRAGMA temp_store = " + s.tempStore(),
+                "PRAGMA query_only = 1"
+        };
     }
 
     private void ensureDbDirectory(String jdbcUrl) {
@@ -32,7 +159,141 @@ public class DataSourceProvider {
         }
     }
 
+    /** A read-only connection; writes go through {@link #write}. */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(jdbcUrl);
+        return reads != null ? reads.getConnection() : openPhysical(true);
+    }
+
+    /**
+     * Runs {@code work} as a write transaction and returns once it is committed. With group commit on it runs on the
+     * writer thread together with whatever other writes are queued; {@code work} must not commit or roll back itself.
+     */
+    public <T> T write(SqlWork<T> work) throws SQLException {
+        if (groupCommit) return writer().submit(work);
+        try (Connection c = writes != null ? writes.getConnection() : openPhysical(false)) {
+            c.setAutoCommit(false);
+            try {
+                T result = work.apply(c);
+                c.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private GroupCommitWriter writer() throws SQLException {
+        GroupCommitWriter w = writer;
+        if (w != null) return w;
+        synchronized (this) {
+            if (writer == null) {
+                if (!open) throw new SQLException("Connection pool is closed");
+                writerConnection = openPhysical(false);
+                writer = new GroupCommitWriter(writerConnection, writes != null ? writes.newStatementCache() : null,
+                        groupMaxBatch, groupMaxWaitNanos, acquireTimeoutMs);
+            }
+            return writer;
+        }
+    }
+
+    private Connection openPhysical(boolean readOnly) throws SQLException {
+        Connection c;
+        if (readOnly) {
+            SQLiteConfig cfg = new SQLiteConfig();
+            cfg.setReadOnly(true);
+            c = DriverManager.getConnection(jdbcUrl, cfg.toProperties());
+        } else {
+            c = DriverManager.getConnection(jdbcUrl);
+        }
+        try (Statement st = c.createStatement()) {
+            for (String pragma : readOnly ? readerPragmas : writerPragmas) st.execute(pragma);
+        } catch (SQLException e) {
+            c.close();
+            throw e;
+        }
+        return c;
+    }
+
+    private void housekeeping() {
+        if (reads != null) reads.reportLeaks();
+        if (writes != null) writes.reportLeaks();
+        long b = (reads != null ? reads.borrows() : 0) + (writes != null ? writes.borrows() : 0);
+        long nowMs = System.currentTimeMillis();
+        if (b != lastLoggedBorrows && nowMs - lastMetricsLog >= METRICS_LOG_SECONDS * 1000) {
+            lastLoggedBorrows = b;
+            lastMetricsLog = nowMs;
+            logMetrics("DB pool");
+        }
+    }
+
+    private void logMetrics(String prefix) {
+        for (Metrics m : metrics()) log.info("{}: {}", prefix, m);
+        if (writer != null) log.info("{}: writer {}", prefix, writer);
+        if (checkpointMs > 0) log.info("{}: checkpoints={} checkpointedPages={}", prefix, checkpoints.sum(), checkpointedPages.sum());
+    }
+
+    private void checkpoint() {
+        checkpoint("PASSIVE");
+    }
+
+    /** PASSIVE copies what it can without blocking anyone; TRUNCATE, used on close, also empties the WAL file. */
+    private void checkpoint(String mode) {
+        try {
+            if (checkpointConnection == null || checkpointConnection.isClosed()) checkpointConnection = openPhysical(false);
+            try (Statement st = checkpointConnection.createStatement();
+                 ResultSet rs = st.executeQuery("PRAGMA wal_checkpoint(" + mode + ")")) {
+                if (rs.next() && rs.getInt(3) > 0) {
+                    checkpoints.increment();
+                    checkpointedPages.add(rs.getInt(3));
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("WAL checkpoint failed: {}", e.getMessage());
+            try { if (checkpointConnection != null) checkpointConnection.close(); } catch (SQLException ignore) {}
+            checkpointConnection = null;
+        }
+    }
+
+    /** Counters of the read and the write pool, in that order; pools that are turned off are left out. */
+    public List<Metrics> metrics() {
+        if (reads == null) return writes == null ? List.of() : List.of(writes.metrics());
+        return writes == null ? List.of(reads.metrics()) : List.of(reads.metrics(), writes.metrics());
+    }
+
+    /**
+     * Pool counters since start; wait times only cover borrows that found the pool exhausted. With group commit the
+     * write pool hands out nothing and only its statement counters, those of the writer's connection, move.
+     */
+    public record Metrics(String pool, int active, int idle, int max, long borrows, long waits, long avgWaitMicros,
+                          long maxWaitMicros, long timeouts, long created, long discarded, long statementHits,
+                          long statementMisses, long statementEvictions) {
+        @Override
+        public String toString() {
+            return pool + ": active=" + active + " idle=" + idle + " max=" + max + " borrows=" + borrows + " waits=" + waits
+                    + " avgWait=" + avgWaitMicros + "us maxWait=" + maxWaitMicros + "us timeouts=" + timeouts
+                    + " created=" + created + " discarded=" + discarded + " statementHits=" + statementHits
+                    + " statementMisses=" + statementMisses + " statementEvictions=" + statementEvictions;
+        }
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        housekeeper.shutdownNow();
+        try { housekeeper.awaitTermination(2, TimeUnit.SECONDS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        if (reads != null) reads.close();
+        synchronized (this) {
+            if (writer != null) {
+                writer.close();
+                try { writerConnection.close(); } catch (SQLException ignore) {}
+            }
+        }
+        if (writes != null) writes.close();
+        if (checkpointMs > 0) {
+            checkpoint("TRUNCATE");
+            try { if (checkpointConnection != null) checkpointConnection.close(); } catch (SQLException ignore) {}
+        }
+        logMetrics("DB closed");
     }
 }
@@ -0,0 +1,210 @@
+package org.example.todo.server.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The only thread that writes to the database. Callers queue {@link SqlWork}; the writer takes whatever
+ * is queued, up to {@code maxBatch} and waiting at most {@code maxWaitNanos} for more, and runs it as one
+ * transaction. Each write gets its own savepoint, so one that fails is rolled back alone and only its caller
+ * sees the error, an {@link Error} included. Callers return once the whole group has committed, so anything they
+ * do afterwards, pushes included, happens after the data is durable. Should the writer thread still stop, it fails
+ * every queued write and refuses new ones instead of leaving callers waiting.
+ *
+ * <p>SQLite allows a single writer anyway; with one connection doing all writes nobody waits on
+ * {@code SQLITE_BUSY}, and a group pays for one commit instead of one per write.
+ */
+final class GroupCommitWriter implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    private final Connection connection;
+    private final Connection guarded;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final long offerTimeoutMs;
+    private final BlockingQueue<Command<?>> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private volatile boolean open = true;
+
+    private final LongAdder groups = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder failedGroups = new LongAdder();
+    private final AtomicLong largestGroup = new AtomicLong();
+
+    GroupCommitWriter(Connection connection, StatementCache statements, int maxBatch, long maxWaitNanos, long offerTimeoutMs) {
+        this.connection = connection;
+        this.guarded = guard(connection, statements);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxWaitNanos = Math.max(0, maxWaitNanos);
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.thread = new Thread(this::run, "db-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    <T> T submit(SqlWork<T> work) throws SQLException {
+        if (Thread.currentThread() == thread) return work.apply(guarded);
+        if (!open) throw new SQLException("Database writer is closed");
+        Command<T> cmd = new Command<>(work);
+        try {
+            if (!queue.offer(cmd, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + offerTimeoutMs + " ms queueing a database write (" + this + ")");
+            }
+            if (!open && queue.remove(cmd)) throw new SQLException("Database writer is closed");
+            return cmd.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database write", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException se) throw se;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new SQLException(cause);
+        }
+    }
+
+    private void run() {
+        List<Command<?>> group = new ArrayList<>(maxBatch);
+        try {
+            while (open || !queue.isEmpty()) {
+                try {
+                    Command<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    group.add(first);
+                    queue.drainTo(group, maxBatch - 1);
+                    if (group.size() < maxBatch && maxWaitNanos > 0) {
+                        long deadline = System.nanoTime() + maxWaitNanos;
+                        long left;
+                        while (group.size() < maxBatch && (left = deadline - System.nanoTime()) > 0) {
+                            Command<?> next = queue.poll(left, TimeUnit.NANOSECONDS);
+                            if (next == null) break;
+                            group.add(next);
+                            queue.drainTo(group, maxBatch - group.size());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    if (group.isEmpty()) continue;
+                }
+                commit(group);
+                group.clear();
+            }
+        } catch (Throwable t) {
+            log.error("DB writer stopped, further writes fail", t);
+        } finally {
+            // Whatever stopped the loop, nobody may be left waiting on a write that will never run
+            open = false;
+            SQLException closed = new SQLException("Database writer is closed");
+            for (Command<?> cmd : group) cmd.result.completeExceptionally(closed);
+            Command<?> left;
+            while ((left = queue.poll()) != null) left.result.completeExceptionally(closed);
+        }
+    }
+
+    private void commit(List<Command<?>> group) {
+        try {
+            connection.setAutoCommit(false);
+            for (Command<?> cmd : group) cmd.run(connection, guarded);
+            connection.commit();
+            for (Command<?> cmd : group) cmd.complete();
+        } catch (Throwable e) {
+            failedGroups.increment();
+            log.warn("Group commit of {} write(s) failed: {}", group.size(), e.getMessage());
+            try { connection.rollback(); } catch (SQLException ignore) {}
+            for (Command<?> cmd : group) cmd.result.completeExceptionally(e);
+        } finally {
+            try { connection.setAutoCommit(true); } catch (SQLException ignore) {}
+        }
+        groups.increment();
+        writes.add(group.size());
+        largestGroup.accumulateAndGet(group.size(), Math::max);
+        for (Command<?> cmd : group) if (cmd.failure != null) failedWrites.increment();
+    }
+
+    /** The writer's connection as handed to {@link SqlWork}: statements are cached and the transaction stays the writer's. */
+    private static Connection guard(Connection c, StatementCache statements) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, m, args) -> {
+            switch (m.getName()) {
+                case "close" -> { if (m.getParameterCount() == 0) return null; }
+                case "commit", "rollback", "setAutoCommit", "setSavepoint", "releaseSavepoint" ->
+                        throw new SQLException(m.getName() + " is not allowed inside a group commit");
+                case "prepareStatement" -> {
+                    if (m.getParameterCount() == 1 && statements != null) return statements.prepare(c, (Connection) proxy, (String) args[0]);
+                }
+                case "toString" -> { if (m.getParameterCount() == 0) return "group commit " + c; }
+                case "hashCode" -> { if (m.getParameterCount() == 0) return System.identityHashCode(proxy); }
+                case "equals" -> { if (m.getParameterCount() == 1) return proxy == args[0]; }
+                default -> {}
+            }
+            try {
+                return m.invoke(c, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Command<?> left;
+        while ((left = queue.poll()) != null) left.result.completeExceptionally(new SQLException("Database writer is closed"));
+        log.info("DB writer closed: {}", this);
+    }
+
+    @Override
+    public String toString() {
+        long g = groups.sum(), w = writes.sum();
+        return "groups=" + g + " writes=" + w + " avgGroup=" + (g == 0 ? 0 : String.format("%.1f", (double) w / g))
+                + " largestGroup=" + largestGroup.get() + " failedWrites=" + failedWrites.sum()
+                + " failedGroups=" + failedGroups.sum() + " queued=" + queue.size();
+    }
+
+    private static final class Command<T> {
+        final SqlWork<T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        T value;
+        Throwable failure;
+
+        Command(SqlWork<T> work) { this.work = work; }
+
+        void run(Connection connection, Connection guarded) throws SQLException {
+            Savepoint sp = connection.setSavepoint();
+            try {
+                value = work.apply(guarded);
+                connection.releaseSavepoint(sp);
+            } catch (Throwable e) { // an Error too stays with its caller and must not end the writer thread
+                failure = e;
+                connection.rollback(sp);
+                connection.releaseSavepoint(sp);
+            }
+        }
+
+        void complete() {
+            if (failure != null) result.completeExceptionally(failure);
+            else result.complete(value);
+        }
+    }
+}
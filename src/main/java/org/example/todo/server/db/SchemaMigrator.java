@@ -1,80 +1,385 @@
 package org.example.todo.server.db;
 
+import org.example.todo.server.app.ServerConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
-
+/**
+ * Versioned schema migrations. {@code schema_version} has a row per applied migration with how long it took;
+ * pending migrations run in version order at startup, each in one transaction together with its version row.
+ * Online migrations, e.g. a table rebuild, copy rows in chunks of {@code TODO_DB_MIGRATION_CHUNK_ROWS}, one
+ * transaction each, on a background thread once the blocking ones are done, so the server keeps serving.
+ * Their position is kept in {@code schema_progress} and an interrupted copy resumes at the next start;
+ * migrations after an online one wait for it, except those marked ahead, which need nothing it builds and are
+ * applied at startup with the blocking ones. A database from before versioning starts at version 0:
+ * migrations 1 and 2 are idempotent and find their tables and columns already there.
+ */
 public class SchemaMigrator {
     private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+    private static final long PROGRESS_LOG_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    @FunctionalInterface
+    private interface Step {
+        void run(SchemaMigrator m, Migration self) throws SQLException;
+    }
+
+    private record Migration(int version, String name, boolean online, boolean ahead, Step step) {
+        static Migration of(int version, String name, SqlWork<Void> work) {
+            return new Migration(version, name, false, false, (m, self) -> m.inTransaction(self, work));
+        }
+
+        /** A blocking migration that does not wait for pending online ones before it. */
+        static Migration ahead(int version, String name, SqlWork<Void> work) {
+            return new Migration(version, name, false, true, (m, self) -> m.inTransaction(self, work));
+        }
+    }
+
+    /**
+     * A copy of {@code table} made with {@code createSql} and {@code indexSql} ({@code %s} is the new table's name);
+     * {@code columns} are copied, {@code key} identifies a row for the triggers that keep the copy current.
+     */
+    private record TableRebuild(String table, String createSql, List<String> indexSql, List<String> columns, String key) {}
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            Migration.of(1, "base tables", SchemaMigrator::createBaseTables),
+            Migration.of(2, "task sort keys", SchemaMigrator::addTaskSortKeys),
+            new Migration(3, "tasks with stored sort keys", true, false, (m, self) -> m.rebuildTable(self, new TableRebuild("tasks",
+                    "CREATE TABLE IF NOT EXISTS %s (" +
+                            "id TEXT PRIMARY KEY, " +
+                            "board_id TEXT NOT NULL REFERENCES boards(id) ON DELETE CASCADE, " +
+                            "title TEXT NOT NULL, " +
+                            "description TEXT, " +
+                            "status TEXT NOT NULL CHECK (status IN ('TODO','IN_PROGRESS','DONE')), " +
+                            "priority TEXT NOT NULL CHECK (priority IN ('LOW','MEDIUM','HIGH')), " +
+                            "due_date INTEGER, " +
+                            "created_at INTEGER NOT NULL, " +
+                            "priority_rank INTEGER GENERATED ALWAYS AS (CASE priority WHEN 'LOW' THEN 1 WHEN 'MEDIUM' THEN 2 WHEN 'HIGH' THEN 3 END) STORED, " +
+                            "due_key INTEGER GENERATED ALWAYS AS (IFNULL(due_date, " + Long.MIN_VALUE + ")) STORED" +
+                            ")",
+                    List.of("CREATE INDEX IF NOT EXISTS idx_tasks_by_created ON %s(board_id, created_at, id)",
+                            "CREATE INDEX IF NOT EXISTS idx_tasks_by_due ON %s(board_id, due_key, created_at, id)",
+                            "CREATE INDEX IF NOT EXISTS idx_tasks_by_priority ON %s(board_id, priority_rank, created_at, id)"),
+                    List.of("id", "board_id", "title", "description", "status", "priority", "due_date", "created_at"),
+                    "id"))),
+            Migration.ahead(4, "session expiry index", SchemaMigrator::addSessionExpiryIndex));
 
     private final DataSourceProvider dsp;
+    private final int chunkRows;
 
-    public SchemaMigrator(DataSourceProvider dsp) {
+    public SchemaMigrator(DataSourceProvider dsp, ServerConfig config) {
         this.dsp = dsp;
+        this.chunkRows = Math.max(1, config.getDbMigrationChunkRows());
+    }
+
+    /**
+     * Version of the last migration this server knows. Versions are numbered from 1 without gaps and an ahead
+     * migration can be recorded before an online one, so the schema is complete once this many versions are.
+     */
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
     }
 
     public void ensureSchema() throws SQLException {
-        try (Connection c = dsp.getConnection()) {
-            c.setAutoCommit(false);
+        Set<Integer> applied = dsp.write(c -> {
             try (Statement st = c.createStatement()) {
-                st.addBatch("PRAGMA foreign_keys = ON");
-
-                st.addBatch("CREATE TABLE IF NOT EXISTS users (" +
-                        "id TEXT PRIMARY KEY, " +
-                        "username TEXT UNIQUE NOT NULL, " +
-                        "password_hash TEXT NOT NULL, " +
-                        "password_salt TEXT NOT NULL, " +
-                        "created_at INTEGER NOT NULL" +
-                        ")");
-
-                st.addBatch("CREATE TABLE IF NOT EXISTS boards (" +
-                        "id TEXT PRIMARY KEY, " +
+                st.addBatch("CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INTEGER PRIMARY KEY, " +
                         "name TEXT NOT NULL, " +
-                        "owner_id TEXT NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
-                        "created_at INTEGER NOT NULL" +
+                        "applied_at INTEGER NOT NULL, " +
+                        "duration_ms INTEGER NOT NULL" +
                         ")");
-
-                st.addBatch("CREATE TABLE IF NOT EXISTS board_members (" +
-                        "board_id TEXT NOT NULL REFERENCES boards(id) ON DELETE CASCADE, " +
-                        "user_id TEXT NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
-                        "role TEXT NOT NULL CHECK (role IN ('OWNER','MEMBER')), " +
-                        "created_at INTEGER NOT NULL, " +
-                        "PRIMARY KEY (board_id, user_id)" +
+                st.addBatch("CREATE TABLE IF NOT EXISTS schema_progress (" +
+                        "version INTEGER PRIMARY KEY, " +
+                        "position INTEGER NOT NULL" +
                         ")");
+                st.executeBatch();
+            }
+            Set<Integer> versions = new HashSet<>();
+            try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("SELECT version FROM schema_version")) {
+                while (rs.next()) versions.add(rs.getInt(1));
+            }
+            return versions;
+        });
+        int current = applied.stream().mapToInt(Integer::intValue).max().orElse(0);
+        int latest = latestVersion();
+        if (current > latest) log.warn("Database schema is at version {}, newer than this server knows ({})", current, latest);
+        List<Migration> pending = MIGRATIONS.stream().filter(m -> !applied.contains(m.version())).toList();
+        int i = 0;
+        while (i < pending.size() && !pending.get(i).online()) apply(pending.get(i++));
+        List<Migration> online = new ArrayList<>();
+        for (Migration m : pending.subList(i, pending.size())) {
+            if (m.ahead()) apply(m);
+            else online.add(m);
+        }
+        if (online.isEmpty()) {
+            log.info("Schema ensured at version {}.", Math.max(current, latest));
+            return;
+        }
+        Thread t = new Thread(() -> {
+            try {
+                for (Migration m : online) apply(m);
+                log.info("Schema ensured at version {}.", latest);
+            } catch (SQLException | RuntimeException e) {
+                log.error("Schema migration stopped, it resumes at the next start: {}", e.getMessage());
+            }
+        }, "db-migrator");
+        t.setDaemon(true);
+        t.start();
+        log.info("Schema at version {}, migrating to {} in the background.", online.get(0).version() - 1, latest);
+    }
 
-                st.addBatch("CREATE TABLE IF NOT EXISTS tasks (" +
-                        "id TEXT PRIMARY KEY, " +
-                        "board_id TEXT NOT NULL REFERENCES boards(id) ON DELETE CASCADE, " +
-                        "title TEXT NOT NULL, " +
-                        "description TEXT, " +
-                        "status TEXT NOT NULL CHECK (status IN ('TODO','IN_PROGRESS','DONE')), " +
-                        "priority TEXT NOT NULL CHECK (priority IN ('LOW','MEDIUM','HIGH')), " +
-                        "due_date INTEGER, " +
-                        "created_at INTEGER NOT NULL" +
-                        ")");
+    private void apply(Migration m) throws SQLException {
+        log.info("Migration {} ({}) started", m.version(), m.name());
+        m.step().run(this, m);
+    }
 
-                st.addBatch("CREATE INDEX IF NOT EXISTS idx_tasks_board_created ON tasks(board_id, created_at)");
-                st.addBatch("CREATE INDEX IF NOT EXISTS idx_tasks_board_due ON tasks(board_id, due_date)");
-                st.addBatch("CREATE INDEX IF NOT EXISTS idx_tasks_board_priority ON tasks(board_id, priority)");
+    private void inTransaction(Migration m, SqlWork<Void> work) throws SQLException {
+        long start = System.nanoTime();
+        long ms = dsp.write(c -> {
+            work.apply(c);
+            return recordVersion(c, m, start);
+        });
+        log.info("Migration {} ({}) applied in {} ms", m.version(), m.name(), ms);
+    }
 
-                st.addBatch("CREATE TABLE IF NOT EXISTS sessions (" +
-                        "jti TEXT PRIMARY KEY, " +
-                        "user_id TEXT NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
-                        "expires_at INTEGER NOT NULL, " +
-                        "created_at INTEGER NOT NULL" +
-                        ")");
+    private static long recordVersion(Connection c, Migration m, long start) throws SQLException {
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        try (PreparedStatement ps = c.prepareStatement("INSERT INTO schema_version(version, name, applied_at, duration_ms) VALUES(?,?,?,?)")) {
+            ps.setInt(1, m.version());
+            ps.setString(2, m.name());
+            ps.setLong(3, System.currentTimeMillis());
+            ps.setLong(4, ms);
+            ps.executeUpdate();
+        }
+        return ms;
+    }
+
+    /**
+     * Rebuilds {@code r.table} under its new definition while it stays in use: the copy and its indexes are created
+     * empty, triggers mirror every insert, update and delete on the table into the copy, and the existing rows are
+     * copied in rowid order, {@code chunkRows} per transaction. A row the triggers already wrote is not copied again.
+     * The swap only renames: the table becomes {@code <table>_retired} and the copy takes its name. The retired
+     * rows are then deleted in chunks, so freeing the old table's pages does not hold the writer in one transaction,
+     * and the last transaction drops the emptied table and records the version.
+     */
+    private void rebuildTable(Migration m, TableRebuild r) throws SQLException {
+        String copy = r.table() + "_rebuild";
+        String retired = r.table() + "_retired";
+        String cols = String.join(", ", r.columns());
+        String newCols = "NEW." + String.join(", NEW.", r.columns());
+        long start = System.nanoTime();
+        if (dsp.write(c -> tableExists(c, retired))) {
+            log.info("Migration {}: {} was swapped in, resuming the cleanup of {}", m.version(), r.table(), retired);
+            dropRetired(m, retired, start);
+            return;
+        }
+        long[] range = dsp.write(c -> {
+            if (!tableExists(c, copy)) {
+                try (Statement st = c.createStatement()) {
+                    st.addBatch(String.format(r.createSql(), copy));
+                    for (String ddl : r.indexSql()) st.addBatch(String.format(ddl, copy));
+                    st.addBatch("CREATE TRIGGER IF NOT EXISTS " + copy + "_ins AFTER INSERT ON " + r.table() + " BEGIN " +
+                            "INSERT OR REPLACE INTO " + copy + "(" + cols + ") VALUES(" + newCols + "); END");
+                    st.addBatch("CREATE TRIGGER IF NOT EXISTS " + copy + "_upd AFTER UPDATE ON " + r.table() + " BEGIN " +
+                            "DELETE FROM " + copy + " WHERE " + r.key() + " = OLD." + r.key() + "; " +
+                            "INSERT OR REPLACE INTO " + copy + "(" + cols + ") VALUES(" + newCols + "); END");
+                    st.addBatch("CREATE TRIGGER IF NOT EXISTS " + copy + "_del AFTER DELETE ON " + r.table() + " BEGIN " +
+                            "DELETE FROM " + copy + " WHERE " + r.key() + " = OLD." + r.key() + "; END");
+                    st.addBatch("INSERT OR REPLACE INTO schema_progress(version, position) VALUES(" + m.version() + ", 0)");
+                    st.executeBatch();
+                }
+            }
+            return new long[]{queryLong(c, "SELECT position FROM schema_progress WHERE version = " + m.version()),
+                    queryLong(c, "SELECT IFNULL(MAX(rowid), 0) FROM " + r.table())};
+        });
+        long from = range[0], end = range[1], copied = 0;
+        log.info("Migration {}: copying {} rowid {}..{} into {}, {} rows per chunk", m.version(), r.table(), from, end, copy, chunkRows);
+
+        String chunkEnd = "SELECT MAX(rowid) FROM (SELECT rowid FROM " + r.table() + " WHERE rowid > ? ORDER BY rowid LIMIT ?)";
+        String copySql = "INSERT OR IGNORE INTO " + copy + "(" + cols + ") SELECT " + cols + " FROM " + r.table() + " WHERE rowid > ? AND rowid <= ?";
+        long copyStart = System.nanoTime(), lastLog = copyStart;
+        while (from < end) {
+            long after = from;
+            long[] chunk = dsp.write(c -> {
+                long to;
+                try (PreparedStatement ps = c.prepareStatement(chunkEnd)) {
+                    ps.setLong(1, after); ps.setInt(2, chunkRows);
+                    try (ResultSet rs = ps.executeQuery()) { to = rs.next() && rs.getObject(1) != null ? Math.min(rs.getLong(1), end) : end; }
+                }
+                int rows;
+                try (PreparedStatement ps = c.prepareStatement(copySql)) {
+                    ps.setLong(1, after); ps.setLong(2, to);
+                    rows = ps.executeUpdate();
+                }
+                try (PreparedStatement ps = c.prepareStatement("UPDATE schema_progress SET position = ? WHERE version = ?")) {
+                    ps.setLong(1, to); ps.setInt(2, m.version());
+                    ps.executeUpdate();
+                }
+                return new long[]{to, rows};
+            });
+            from = chunk[0];
+            copied += chunk[1];
+            long now = System.nanoTime();
+            if (now - lastLog >= PROGRESS_LOG_NANOS || from >= end) {
+                lastLog = now;
+                double secs = Math.max(1e-3, (now - copyStart) / 1e9);
+                log.info("Migration {}: {}% ({} rows in {} s, {} rows/s, ~{} s left)", m.version(), end == 0 ? 100 : from * 100 / end,
+                        copied, String.format("%.1f", secs), (long) (copied / secs), (long) ((end - from) * secs / Math.max(1, from - range[0])));
+            }
+        }
+
+        long swapStart = System.nanoTime();
+        dsp.write(c -> {
+            try (Statement st = c.createStatement()) {
+                st.addBatch("DROP TRIGGER IF EXISTS " + copy + "_ins");
+                st.addBatch("DROP TRIGGER IF EXISTS " + copy + "_upd");
+                st.addBatch("DROP TRIGGER IF EXISTS " + copy + "_del");
+                st.addBatch("ALTER TABLE " + r.table() + " RENAME TO " + retired);
+                st.addBatch("ALTER TABLE " + copy + " RENAME TO " + r.table());
+                st.executeBatch();
+            }
+            return null;
+        });
+        log.info("Migration {}: copy {} ms, swap {} ms", m.version(), TimeUnit.NANOSECONDS.toMillis(swapStart - copyStart),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - swapStart));
+        dropRetired(m, retired, start);
+    }
 
+    /** Empties {@code retired} {@code chunkRows} rows per transaction, then drops it and records {@code m}. */
+    private void dropRetired(Migration m, String retired, long start) throws SQLException {
+        String deleteSql = "DELETE FROM " + retired + " WHERE rowid IN (SELECT rowid FROM " + retired + " ORDER BY rowid LIMIT ?)";
+        long deleteStart = System.nanoTime(), lastLog = deleteStart, deleted = 0;
+        while (true) {
+            int rows = dsp.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(deleteSql)) {
+                    ps.setInt(1, chunkRows);
+                    return ps.executeUpdate();
+                }
+            });
+            deleted += rows;
+            long now = System.nanoTime();
+            if (rows == 0) break;
+            if (now - lastLog >= PROGRESS_LOG_NANOS) {
+                lastLog = now;
+                log.info("Migration {}: deleted {} rows of {}", m.version(), deleted, retired);
+            }
+        }
+        long dropStart = System.nanoTime();
+        long ms = dsp.write(c -> {
+            try (Statement st = c.createStatement()) {
+                st.addBatch("DROP TABLE " + retired);
+                st.addBatch("DELETE FROM schema_progress WHERE version = " + m.version());
                 st.executeBatch();
-                c.commit();
-            } catch (SQLException e) {
-                c.rollback();
-                throw e;
             }
+            return recordVersion(c, m, start);
+        });
+        log.info("Migration {} ({}) applied in {} ms: deleted {} retired rows in {} ms, drop {} ms", m.version(), m.name(), ms, deleted,
+                TimeUnit.NANOSECONDS.toMillis(dropStart - deleteStart), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dropStart));
+    }
+
+    private static boolean tableExists(Connection c, String table) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) { return rs.next(); }
+        }
+    }
+
+    private static long queryLong(Connection c, String sql) throws SQLException {
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static Void createBaseTables(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.addBatch("CREATE TABLE IF NOT EXISTS users (" +
+                    "id TEXT PRIMARY KEY, " +
+                    "username TEXT UNIQUE NOT NULL, " +
+                    "password_hash TEXT NOT NULL, " +
+                    "password_salt TEXT NOT NULL, " +
+                    "created_at INTEGER NOT NULL" +
+                    ")");
+
+            st.addBatch("CREATE TABLE IF NOT EXISTS boards (" +
+                    "id TEXT PRIMARY KEY, " +
+                    "name TEXT NOT NULL, " +
+                    "owner_id TEXT NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                    "created_at INTEGER NOT NULL" +
+                    ")");
+
+            st.addBatch("CREATE TABLE IF NOT EXISTS board_members (" +
+                    "board_id TEXT NOT NULL REFERENCES boards(id) ON DELETE CASCADE, " +
+                    "user_id TEXT NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                    "role TEXT NOT NULL CHECK (role IN ('OWNER','MEMBER')), " +
+                    "created_at INTEGER NOT NULL, " +
+                    "PRIMARY KEY (board_id, user_id)" +
+                    ")");
+
+            st.addBatch("CREATE TABLE IF NOT EXISTS tasks (" +
+                    "id TEXT PRIMARY KEY, " +
+                    "board_id TEXT NOT NULL REFERENCES boards(id) ON DELETE CASCADE, " +
+                    "title TEXT NOT NULL, " +
+                    "description TEXT, " +
+                    "status TEXT NOT NULL CHECK (status IN ('TODO','IN_PROGRESS','DONE')), " +
+                    "priority TEXT NOT NULL CHECK (priority IN ('LOW','MEDIUM','HIGH')), " +
+                    "due_date INTEGER, " +
+                    "created_at INTEGER NOT NULL" +
+                    ")");
+
+            st.addBatch("CREATE TABLE IF NOT EXISTS sessions (" +
+                    "jti TEXT PRIMARY KEY, " +
+                    "user_id TEXT NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                    "expires_at INTEGER NOT NULL, " +
+                    "created_at INTEGER NOT NULL" +
+                    ")");
+
+            st.executeBatch();
+        }
+        return null;
+    }
+
+    /**
+     * Sort keys of list_tasks as integer columns, so each sort is read in order from an index instead of
+     * being sorted in a temp B-tree. They are generated from priority and due_date. Adding a VIRTUAL column
+     * only rewrites the schema, so this is cheap on any table size; the indexes that hold the keys are built
+     * by the online rebuild in migration 3, and until it swaps the table queries use the indexes it already has.
+     * Status and priority filters are checked on the table row: with them in every index, each status change
+     * would rewrite three index entries.
+     */
+    private static Void addTaskSortKeys(Connection c) throws SQLException {
+        addColumnIfMissing(c, "tasks", "priority_rank",
+                "INTEGER GENERATED ALWAYS AS (CASE priority WHEN 'LOW' THEN 1 WHEN 'MEDIUM' THEN 2 WHEN 'HIGH' THEN 3 END) VIRTUAL");
+        addColumnIfMissing(c, "tasks", "due_key",
+                "INTEGER GENERATED ALWAYS AS (IFNULL(due_date, " + Long.MIN_VALUE + ")) VIRTUAL");
+        return null;
+    }
+
+    /** For the session sweeper, which deletes by {@code expires_at}; without it every chunk scans the table. */
+    private static Void addSessionExpiryIndex(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_sessions_expires ON sessions(expires_at)");
+        }
+        return null;
+    }
+
+    private static void addColumnIfMissing(Connection c, String table, String column, String definition) throws SQLException {
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("PRAGMA table_xinfo(" + table + ")")) {
+            while (rs.next()) if (column.equals(rs.getString("name"))) return;
+        }
+        try (Statement st = c.createStatement()) {
+            st.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
         }
-        log.info("Schema ensured.");
+        log.info("Added column {}.{}", table, column);
     }
 }
@@ -0,0 +1,10 @@
+package org.example.todo.server.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/** A unit of database work run on a connection someone else owns, e.g. one write of a group commit. */
+@FunctionalInterface
+public interface SqlWork<T> {
+    T apply(Connection c) throws SQLException;
+}
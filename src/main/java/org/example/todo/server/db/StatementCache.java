@@ -0,0 +1,119 @@
+package org.example.todo.server.db;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepared statements of one pooled connection, keyed by SQL text, least recently used evicted first.
+ * {@code prepareStatement(sql)} on a leased connection returns a handle to the cached statement;
+ * closing the handle closes its result set, clears the parameters and leaves the statement prepared.
+ * If the same SQL is already open on the connection, e.g. in a nested loop, a plain statement is prepared.
+ * Only the thread holding the connection touches the cache, so it is not synchronized.
+ */
+final class StatementCache {
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    StatementCache(int capacity, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    PreparedStatement prepare(Connection physical, Connection owner, String sql) throws SQLException {
+        Entry e = entries.get(sql);
+        if (e != null && !e.inUse) {
+            hits.increment();
+            e.inUse = true;
+            return handle(e, owner);
+        }
+        misses.increment();
+        PreparedStatement ps = physical.prepareStatement(sql);
+        if (e != null) return ps;
+        e = new Entry(sql, ps);
+        e.inUse = true;
+        entries.put(sql, e);
+        evictOverflow();
+        return handle(e, owner);
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry e = it.next();
+            if (e.inUse) continue;
+            it.remove();
+            evictions.increment();
+            closeQuietly(e.statement);
+        }
+    }
+
+    private PreparedStatement handle(Entry e, Connection owner) {
+        boolean[] closed = new boolean[1];
+        ResultSet[] current = new ResultSet[1];
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, m, args) -> {
+            int n = m.getParameterCount();
+            switch (m.getName()) {
+                case "close" -> {
+                    if (n == 0) {
+                        if (!closed[0]) { closed[0] = true; release(e, current[0]); }
+                        return null;
+                    }
+                }
+                case "isClosed" -> { if (n == 0) return closed[0]; }
+                case "getConnection" -> { if (n == 0) return owner; }
+                case "toString" -> { if (n == 0) return "cached " + e.sql; }
+                case "hashCode" -> { if (n == 0) return System.identityHashCode(proxy); }
+                case "equals" -> { if (n == 1) return proxy == args[0]; }
+                default -> {}
+            }
+            if (closed[0]) throw new SQLException("Statement is closed");
+            try {
+                Object result = m.invoke(e.statement, args);
+                if (result instanceof ResultSet rs) current[0] = rs;
+                return result;
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        });
+    }
+
+    /** A result set left open keeps SQLite's read snapshot, which would stall WAL checkpoints. */
+    private void release(Entry e, ResultSet rs) {
+        try {
+            if (rs != null && !rs.isClosed()) rs.close();
+            e.statement.clearParameters();
+            e.inUse = false;
+        } catch (SQLException ex) {
+            entries.remove(e.sql, e);
+            closeQuietly(e.statement);
+        }
+    }
+
+    void closeAll() {
+        for (Entry e : entries.values()) closeQuietly(e.statement);
+        entries.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try { ps.close(); } catch (SQLException ignore) {}
+    }
+
+    private static final class Entry {
+        final String sql;
+        final PreparedStatement statement;
+        boolean inUse;
+        Entry(String sql, PreparedStatement statement) { this.sql = sql; this.statement = statement; }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.todo.server.net.tcp;
+
+import org.example.todo.server.app.ServerConfig;
+import org.example.todo.server.protocol.ByteSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-wide admission limits, shared by every connection of one transport:
+ * <ul>
+ *   <li>connections: at most {@code maxConnections} open, when set; by default there is no cap;</li>
+ *   <li>requests run inline on connection threads: at most {@code workerThreads} at once with at most
+ *       {@code workerQueueCapacity} waiting, the same budget the worker pool has in the other modes;</li>
+ *   <li>users: at most {@code maxInFlightPerUser} requests of one user (or, before login, one address) at once.</li>
+ * </ul>
+ * Anything over a limit is answered with {@code OVERLOADED} and a retry-after hint instead of queueing
+ * without bound. Rejections are counted per reason and summarized in the log at most every few seconds.
+ */
+final class AdmissionControl {
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+    private static final long LOG_INTERVAL_MS = 10_000;
+
+    enum Reason { CONNECTIONS, WORKERS, USER }
+
+    private final Semaphore connections; // null: no cap
+    private final Semaphore running;
+    private final int maxWaiting;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final int maxPerUser;
+    private final ConcurrentHashMap<String, Integer> perUser = new ConcurrentHashMap<>();
+    private final int retryAfterMs;
+
+    private final LongAdder[] rejected = new LongAdder[Reason.values().length];
+    private final AtomicLong lastLog = new AtomicLong();
+
+    AdmissionControl(ServerConfig cfg) {
+        this.connections = cfg.getMaxConnections() > 0 ? new Semaphore(cfg.getMaxConnections()) : null;
+        this.running = new Semaphore(Math.max(1, cfg.getWorkerThreads()), true);
+        this.maxWaiting = Math.max(0, cfg.getWorkerQueueCapacity());
+        this.maxPerUser = Math.max(1, cfg.getMaxInFlightPerUser());
+        this.retryAfterMs = Math.max(0, cfg.getRetryAfterMs());
+        for (int i = 0; i < rejected.length; i++) rejected[i] = new LongAdder();
+    }
+
+    boolean tryOpenConnection() {
+        if (connections == null || connections.tryAcquire()) return true;
+        reject(Reason.CONNECTIONS);
+        return false;
+    }
+
+    void closeConnection() {
+        if (connections != null) connections.release();
+    }
+
+    /** Takes a slot for a request run on the caller's thread, waiting while the queue has room; false means rejected. */
+    boolean enter() throws InterruptedException {
+        if (running.tryAcquire()) return true;
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            reject(Reason.WORKERS);
+            return false;
+        }
+        try {
+            running.acquire();
+            return true;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    void exit() { running.release(); }
+
+    boolean tryEnterUser(String key) {
+        boolean[] admitted = new boolean[1];
+        perUser.compute(key, (k, n) -> {
+            int current = n == null ? 0 : n;
+            if (current >= maxPerUser) return n;
+            admitted[0] = true;
+            return current + 1;
+        });
+        if (!admitted[0]) reject(Reason.USER);
+        return admitted[0];
+    }
+
+    void exitUser(String key) {
+        perUser.computeIfPresent(key, (k, n) -> n > 1 ? n - 1 : null);
+    }
+
+    /** Counts a rejection made elsewhere, e.g. by the bounded worker pool. */
+    void reject(Reason reason) {
+        rejected[reason.ordinal()].increment();
+        long now = System.currentTimeMillis();
+        long last = lastLog.get();
+        if (now - last >= LOG_INTERVAL_MS && lastLog.compareAndSet(last, now)) {
+            log.warn("Overloaded, rejected so far: {}", this);
+        }
+    }
+
+    long rejected(Reason reason) { return rejected[reason.ordinal()].sum(); }
+
+    int retryAfterMs() { return retryAfterMs; }
+
+    /** Complete JSON frame sent to a connection refused at accept time, just before it is closed. */
+    byte[] refusalFrame() {
+        ByteSink sink = new ByteSink(128);
+        MessageCodec.appendFrame(TcpClientHandler.overloaded(null, retryAfterMs), false, sink, null);
+        return Arrays.copyOf(sink.array(), sink.size());
+    }
+
+    @Override
+    public String toString() {
+        return "connections=" + rejected(Reason.CONNECTIONS) + " workers=" + rejected(Reason.WORKERS) + " user=" + rejected(Reason.USER);
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.todo.server.net.tcp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closes connections that have not sent a request (heartbeats included) for {@code idleTimeoutMs}.
+ * Half-open sockets, e.g. from a laptop that went to sleep, otherwise keep their thread or selector
+ * slot, their connection slot and their push subscriptions until the OS gives up on them.
+ * One sweep runs every quarter of the timeout, so a connection is reaped within 1.25x the timeout.
+ */
+final class IdleReaper implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(IdleReaper.class);
+
+    private final long idleTimeoutNanos;
+    private final Set<TcpClientHandler> connections = ConcurrentHashMap.newKeySet();
+    private final LongAdder reaped = new LongAdder();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "tcp-idle-reaper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    IdleReaper(long idleTimeoutMs) {
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        long period = Math.max(250, idleTimeoutMs / 4);
+        timer.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    void track(TcpClientHandler handler) { connections.add(handler); }
+
+    void untrack(TcpClientHandler handler) { connections.remove(handler); }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        int n = 0;
+        for (TcpClientHandler h : connections) {
+            if (now - h.lastActivityNanos() < idleTimeoutNanos || !connections.remove(h)) continue;
+            try {
+                h.reap();
+                n++;
+            } catch (RuntimeException e) {
+                log.warn("Could not reap idle connection", e);
+            }
+        }
+        if (n > 0) {
+            reaped.add(n);
+            log.info("Reaped {} idle connection(s), {} so far, {} open", n, reaped.sum(), connections.size());
+        }
+    }
+
+    long reaped() { return reaped.sum(); }
+
+    @Override
+    public void close() { timer.shutdownNow(); }
+}
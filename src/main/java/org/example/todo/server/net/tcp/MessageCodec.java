@@ -1,35 +1,204 @@
 package org.example.todo.server.net.tcp;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.example.todo.server.protocol.*;
+
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
+import static org.example.todo.server.protocol.ProtocolJson.GSON;
 
+/**
+ * Frame codec for one blocking connection. The read buffer and the encode buffer are owned by the
+ * connection and reused for every frame; they grow to fit a large frame and fall back to
+ * {@link #INITIAL_BUFFER} afterwards so an occasional big response does not stay resident.
+ * Reads happen on the connection thread; writes may come from several workers and are serialized.
+ *
+ * <p>JSON bodies are streamed: the envelope fields are read with a {@link JsonReader} and, once the
+ * action is known, the payload is bound straight into its request class ({@link Envelope#body}).
+ * Responses with a typed body are written field by field into the frame buffer.
+ *
+ * <p>With a {@link FrameCompression} attached, frames flagged in the length header are inflated on
+ * read, and large responses are deflated once the client has negotiated it.
+ */
 public final class MessageCodec {
-    private MessageCodec() {}
+    static final int MAX_FRAME = 16 * 1024 * 1024;
+    static final int INITIAL_BUFFER = 4 * 1024;
+    static final int RETAINED_BUFFER = 256 * 1024;
+
+    // Request class per action; actions missing here keep their payload as a tree.
+    private static final Map<String, Class<?>> REQUEST_TYPES = Map.ofEntries(
+            Map.entry("hello", HelloRequest.class),
+            Map.entry("register", RegisterRequest.class),
+            Map.entry("login", LoginRequest.class),
+            Map.entry("create_board", CreateBoardRequest.class),
+            Map.entry("add_user_to_board", AddUserToBoardRequest.class),
+            Map.entry("view_board", ViewBoardRequest.class),
+            Map.entry("delete_board", DeleteBoardRequest.class),
+            Map.entry("add_task", AddTaskRequest.class),
+            Map.entry("list_tasks", ListTasksRequest.class),
+            Map.entry("update_task_status", UpdateTaskStatusRequest.class),
+            Map.entry("delete_task", DeleteTaskRequest.class),
+            Map.entry("subscribe_board", SubscribeBoardRequest.class),
+            Map.entry("unsubscribe_board", UnsubscribeBoardRequest.class),
+            Map.entry("batch", BatchRequest.class),
+            Map.entry("import_tasks", ImportTasksRequest.class),
+            Map.entry("export_tasks", ExportTasksRequest.class));
+
+    private final InputStream in;
+    private final OutputStream out;
+    private byte[] readBuf = new byte[INITIAL_BUFFER];
+    private final ByteSink writeBuf = new ByteSink(INITIAL_BUFFER);
+    private final Utf8Source chars = new Utf8Source();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final FrameCompression compression;
+
+    public MessageCodec(InputStream in, OutputStream out, FrameCompression compression) {
+        this.in = in;
+        this.out = out;
+        this.compression = compression;
+    }
 
-    public static void writeJson(OutputStream os, String json) throws IOException {
-        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
-        DataOutputStream dos = new DataOutputStream(os);
-        dos.writeInt(bytes.length);
-        dos.write(bytes);
-        dos.flush();
+    /** Blocks for the next frame and decodes it before the buffer is reused. */
+    public Decoded read() throws IOException {
+        readFully(readBuf, 4);
+        int header = ((readBuf[0] & 0xFF) << 24) | ((readBuf[1] & 0xFF) << 16) | ((readBuf[2] & 0xFF) << 8) | (readBuf[3] & 0xFF);
+        int len = header & ~FrameCompression.FLAG;
+        if (len > MAX_FRAME) throw new IOException("Invalid frame length: " + len);
+        if (len > readBuf.length) readBuf = new byte[len];
+        readFully(readBuf, len);
+        Decoded d = header < 0 ? decodeCompressed(readBuf, 0, len, compression, chars) : decode(readBuf, 0, len, chars);
+        if (readBuf.length > RETAINED_BUFFER) readBuf = new byte[INITIAL_BUFFER];
+        return d;
     }
 
-    public static String readJson(InputStream is) throws IOException {
-        DataInputStream dis = new DataInputStream(is);
-        int len;
+    public void write(Envelope env, boolean binary) throws IOException {
+        writeLock.lock();
         try {
-            len = dis.readInt();
+            appendFrame(env, binary, writeBuf, compression);
+            out.write(writeBuf.array(), 0, writeBuf.size());
+            out.flush();
+        } finally {
+            writeBuf.reset();
+            writeBuf.trim(RETAINED_BUFFER);
+            writeLock.unlock();
+        }
+    }
+
+    private void readFully(byte[] buf, int len) throws IOException {
+        int n = 0;
+        while (n < len) {
+            int r = in.read(buf, n, len - n);
+            if (r < 0) throw new EOFException();
+            n += r;
+        }
+    }
+
+    /** A decoded request plus the encoding its response must use; {@code env} is null for a malformed body. */
+    public record Decoded(Envelope env, boolean binary) {}
+
+    static Decoded decodeCompressed(byte[] buf, int off, int len, FrameCompression compression, Utf8Source chars) throws IOException {
+        if (compression == null) throw new IOException("Compressed frame on a connection without compression");
+        ByteSink plain = compression.inflate(buf, off, len, MAX_FRAME);
+        return decode(plain.array(), 0, plain.size(), chars);
+    }
+
+    /**
+     * Decodes a frame body in either encoding; binary bodies are recognised by their leading magic byte.
+     * A body that fails to decode but whose reqId could be read still yields that reqId, so the error reply can be
+     * matched, and a broken binary body is still answered in binary.
+     */
+    static Decoded decode(byte[] buf, int off, int len, Utf8Source chars) {
+        boolean binary = BinaryProtocol.isBinary(buf, off, len);
+        if (binary) {
+            try {
+                return new Decoded(GSON.fromJson(BinaryProtocol.decode(buf, off, len), Envelope.class), true);
+            } catch (RuntimeException e) {
+                String reqId = BinaryProtocol.reqId(buf, off, len);
+                if (reqId == null) return new Decoded(null, true);
+                Envelope partial = new Envelope();
+                partial.reqId = reqId;
+                return new Decoded(partial, true);
+            }
+        }
+        Envelope env = new Envelope();
+        try {
+            return new Decoded(readEnvelope(GSON.newJsonReader(chars.reset(buf, off, len)), env), false);
+        } catch (IOException | RuntimeException e) {
+            if (env.reqId == null) return new Decoded(null, false);
+            Envelope partial = new Envelope();
+            partial.reqId = env.reqId;
+            return new Decoded(partial, false);
+        }
+    }
+
+    private static Envelope readEnvelope(JsonReader r, Envelope env) throws IOException {
+        r.setLenient(true);
+        if (r.peek() == JsonToken.NULL) return null;
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "type" -> env.type = nextString(r);
+                case "reqId" -> env.reqId = nextString(r);
+                case "action" -> env.action = nextString(r);
+                case "token" -> env.token = nextString(r);
+                case "payload" -> {
+                    Class<?> type = env.action != null ? REQUEST_TYPES.get(env.action) : null;
+                    if (r.peek() == JsonToken.NULL) r.nextNull();
+                    else if (type != null) env.body = GSON.fromJson(r, type);
+                    else env.payload = GSON.fromJson(r, JsonObject.class);
+                }
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+        return env;
+    }
+
+    private static String nextString(JsonReader r) throws IOException {
+        if (r.peek() != JsonToken.NULL) return r.nextString();
+        r.nextNull();
+        return null;
+    }
+
+    /** Appends a complete frame to {@code sink}: 4-byte length (with the compression flag), then the body. */
+    static void appendFrame(Envelope env, boolean binary, ByteSink sink, FrameCompression compression) {
+        int start = sink.size();
+        sink.putInt(0);
+        if (binary) BinaryProtocol.encode(toTree(env), sink);
+        else writeEnvelope(env, sink);
+        boolean deflated = compression != null && compression.compress(sink, start + 4);
+        int len = sink.size() - start - 4;
+        sink.putIntAt(start, deflated ? len | FrameCompression.FLAG : len);
+    }
+
+    private static void writeEnvelope(Envelope env, ByteSink sink) {
+        try {
+            JsonWriter w = GSON.newJsonWriter(sink);
+            w.beginObject();
+            if (env.type != null) w.name("type").value(env.type);
+            if (env.reqId != null) w.name("reqId").value(env.reqId);
+            if (env.action != null) w.name("action").value(env.action);
+            if (env.token != null) w.name("token").value(env.token);
+            if (env.body != null) GSON.toJson(env.body, env.body.getClass(), w.name("payload"));
+            else if (env.payload != null) GSON.toJson(env.payload, w.name("payload"));
+            w.endObject();
+            w.flush();
         } catch (IOException e) {
-            throw e;
+            throw new IllegalStateException(e); // ByteSink never throws
         }
-        if (len < 0 || len > (16 * 1024 * 1024)) throw new IOException("Invalid frame length: " + len);
-        byte[] buf = new byte[len];
-        dis.readFully(buf);
-        return new String(buf, StandardCharsets.UTF_8);
+    }
+
+    private static JsonObject toTree(Envelope env) {
+        JsonObject tree = GSON.toJsonTree(env).getAsJsonObject();
+        if (env.body != null) tree.add("payload", GSON.toJsonTree(env.body));
+        return tree;
     }
 }
@@ -0,0 +1,374 @@
+package org.example.todo.server.net.tcp;
+
+import org.example.todo.server.protocol.ByteSink;
+import org.example.todo.server.protocol.Envelope;
+import org.example.todo.server.protocol.FrameCompression;
+import org.example.todo.server.protocol.Utf8Source;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-socket state for {@link NioTcpServer}. Socket reads/writes and interest changes happen
+ * on the owning event loop. By default requests of one connection are handled one at a time,
+ * in order, on the worker pool so responses keep the same ordering as the blocking transport;
+ * in pipelined mode they go through a {@link RequestPipeline}. Either way reading pauses while
+ * the connection has {@code maxInFlight} requests queued or running.
+ *
+ * <p>Socket I/O goes through the loop's direct buffer. Small plain frames are decoded on the loop
+ * as soon as they are complete, so the connection only keeps one reusable body buffer. Compressed
+ * frames and frames over {@value #LOOP_DECODE_MAX} bytes are handed to a worker and decoded there,
+ * one at a time and in arrival order, so inflating or binding a large request never stalls the
+ * other connections on the loop. Responses are encoded by workers into a reusable outbound buffer
+ * that the loop drains.
+ */
+final class NioConnection {
+    private static final Logger log = LoggerFactory.getLogger(NioConnection.class);
+    static final int LOOP_DECODE_MAX = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final NioTcpServer.EventLoop loop;
+    private final TcpClientHandler handler;
+    private final Executor workers;
+    private final RequestPipeline pipeline;
+    private SelectionKey key;
+
+    // Frame assembly (event loop only).
+    private int header, headerFilled;
+    private byte[] frame;
+    private int frameLen = -1, frameFilled;
+    private boolean frameCompressed;
+    private final Utf8Source chars = new Utf8Source();
+
+    // Frames waiting for the decode task; staged counts them until delivered back on the loop, and
+    // while it is non-zero later frames queue behind them so requests keep their order.
+    private record RawFrame(byte[] buf, int len, boolean compressed) {}
+    private final Queue<RawFrame> undecoded = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean decoding = new AtomicBoolean();
+    private final Utf8Source workerChars = new Utf8Source();
+    private int staged;
+
+    // Sequential mode: requests waiting for the single drain task.
+    private final Queue<MessageCodec.Decoded> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inboxSize = new AtomicInteger();
+    private final int maxQueued;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // Pipelined mode: requests decoded while all in-flight slots were taken (event loop only).
+    private final Queue<MessageCodec.Decoded> waiting = new ArrayDeque<>();
+    private boolean readPaused;
+
+    // Encoded responses not yet written; workers append, the loop sends from outPos.
+    private final ReentrantLock outLock = new ReentrantLock();
+    private final ByteSink out = new ByteSink(MessageCodec.INITIAL_BUFFER);
+    private int outPos;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Runnable flushTask = this::flush;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    NioConnection(SocketChannel channel, NioTcpServer.EventLoop loop, TcpClientHandler handler, Executor workers, boolean pipelined, int maxInFlight) {
+        this.channel = channel;
+        this.loop = loop;
+        this.handler = handler;
+        this.workers = workers;
+        this.maxQueued = Math.max(1, maxInFlight);
+        this.pipeline = pipelined
+                ? new RequestPipeline(handler, workers, maxInFlight, this::enqueue, () -> loop.execute(this, this::resumeReading))
+                : null;
+    }
+
+    void attach(SelectionKey key) { this.key = key; }
+
+    void onReadable() throws IOException {
+        ByteBuffer io = loop.ioBuffer();
+        while (!readPaused && !closed.get()) {
+            io.clear();
+            int n = channel.read(io);
+            if (n < 0) { close(); return; }
+            if (n == 0) return;
+            consume(io.flip());
+            if (n < io.capacity()) return;
+        }
+    }
+
+    private void consume(ByteBuffer io) throws IOException {
+        while (io.hasRemaining()) {
+            if (frameLen < 0) {
+                while (headerFilled < 4 && io.hasRemaining()) {
+                    header = (header << 8) | (io.get() & 0xFF);
+                    headerFilled++;
+                }
+                if (headerFilled < 4) return;
+                frameCompressed = header < 0;
+                frameLen = header & ~FrameCompression.FLAG;
+                if (frameLen > MessageCodec.MAX_FRAME) throw new IOException("Invalid frame length: " + frameLen);
+                frameFilled = 0;
+                header = 0;
+                headerFilled = 0;
+                if (frame == null || frame.length < frameLen) frame = new byte[Math.max(frameLen, MessageCodec.INITIAL_BUFFER)];
+            }
+            int n = Math.min(frameLen - frameFilled, io.remaining());
+            io.get(frame, frameFilled, n);
+            frameFilled += n;
+            if (frameFilled < frameLen) return;
+            if (staged == 0 && !frameCompressed && frameLen <= LOOP_DECODE_MAX) {
+                MessageCodec.Decoded req = MessageCodec.decode(frame, 0, frameLen, chars);
+                frameLen = -1;
+                deliver(req);
+            } else {
+                // a buffer that would be dropped anyway is handed over as is; a retained one is copied
+                RawFrame raw = new RawFrame(frame.length > MessageCodec.RETAINED_BUFFER ? frame : Arrays.copyOf(frame, frameLen), frameLen, frameCompressed);
+                if (frame.length > MessageCodec.RETAINED_BUFFER) frame = null;
+                frameLen = -1;
+                stage(raw);
+            }
+        }
+    }
+
+    private void deliver(MessageCodec.Decoded req) {
+        if (pipeline != null) {
+            waiting.add(req);
+            pump();
+        } else {
+            inbox.add(req);
+            inboxSize.incrementAndGet();
+            pauseIfFull();
+            schedule();
+        }
+    }
+
+    private void stage(RawFrame raw) {
+        staged++;
+        undecoded.add(raw);
+        pauseIfFull();
+        if (!decoding.compareAndSet(false, true)) return;
+        try {
+            workers.execute(this::decodeStaged);
+        } catch (RejectedExecutionException e) {
+            decodeStaged(); // no worker to spare: decode here rather than drop the frames
+        }
+    }
+
+    private void decodeStaged() {
+        do {
+            try {
+                RawFrame raw;
+                while ((raw = undecoded.poll()) != null) {
+                    MessageCodec.Decoded req;
+                    try {
+                        req = raw.compressed()
+                                ? MessageCodec.decodeCompressed(raw.buf(), 0, raw.len(), handler.compression(), workerChars)
+                                : MessageCodec.decode(raw.buf(), 0, raw.len(), workerChars);
+                    } catch (IOException | RuntimeException e) {
+                        // the inflate stream is broken, nothing after this frame can be decoded
+                        if (e instanceof RuntimeException) log.error("Frame decoding failed, closing the connection", e);
+                        undecoded.clear();
+                        loop.execute(this, this::close);
+                        return;
+                    }
+                    loop.execute(this, () -> deliverStaged(req));
+                }
+            } finally {
+                decoding.set(false);
+            }
+        } while (!undecoded.isEmpty() && decoding.compareAndSet(false, true));
+    }
+
+    private void deliverStaged(MessageCodec.Decoded req) {
+        if (closed.get()) return;
+        staged--;
+        deliver(req);
+        if (readPaused) resumeReading();
+    }
+
+    private boolean backlogFull() {
+        return staged >= maxQueued || (pipeline != null ? !waiting.isEmpty() : inboxSize.get() >= maxQueued);
+    }
+
+    private void pauseIfFull() {
+        if (!readPaused && backlogFull()) {
+            readPaused = true;
+            updateInterest();
+        }
+    }
+
+    private void pump() {
+        while (!waiting.isEmpty() && pipeline.tryAcquire()) {
+            pipeline.dispatch(waiting.poll());
+        }
+        boolean full = backlogFull();
+        if (full != readPaused) {
+            readPaused = full;
+            updateInterest();
+        }
+    }
+
+    private void resumeReading() {
+        if (closed.get()) return;
+        if (pipeline != null) pump();
+        else if (readPaused && !backlogFull()) {
+            readPaused = false;
+            updateInterest();
+        }
+        if (!readPaused) {
+            try {
+                onReadable();
+            } catch (IOException e) {
+                close();
+            }
+        }
+    }
+
+    private void schedule() {
+        if (!draining.compareAndSet(false, true)) return;
+        try {
+            workers.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            rejectPending();
+            draining.set(false);
+        }
+    }
+
+    private void drain() {
+        do {
+            try {
+                MessageCodec.Decoded req;
+                while ((req = inbox.poll()) != null) {
+                    try {
+                        enqueue(handler.process(req.env()), req.binary());
+                    } finally {
+                        dequeued();
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Request handling failed, closing the connection", e);
+                loop.execute(this, this::close);
+                return;
+            } finally {
+                draining.set(false);
+            }
+        } while (!inbox.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    private void rejectPending() {
+        MessageCodec.Decoded req;
+        while ((req = inbox.poll()) != null) {
+            enqueue(handler.rejected(req.env() != null ? req.env().reqId : null), req.binary());
+            dequeued();
+        }
+    }
+
+    private void dequeued() {
+        if (inboxSize.decrementAndGet() == maxQueued - 1) loop.execute(this, this::resumeReading);
+    }
+
+    /** Queues {@code resp} for the loop to send; a response that cannot be encoded is answered with INTERNAL instead. */
+    private void enqueue(Envelope resp, boolean binary) {
+        if (closed.get()) return;
+        outLock.lock();
+        int mark = out.size();
+        try {
+            MessageCodec.appendFrame(resp, binary, out, handler.compression());
+        } catch (RuntimeException e) {
+            out.truncate(mark);
+            log.error("Could not encode {} response", resp.action, e);
+            try {
+                MessageCodec.appendFrame(TcpClientHandler.error(resp.reqId, "INTERNAL", "Internal server error"), binary, out, handler.compression());
+            } catch (RuntimeException again) {
+                out.truncate(mark);
+                loop.execute(this, this::close);
+                return;
+            }
+        } finally {
+            outLock.unlock();
+        }
+        if (flushScheduled.compareAndSet(false, true)) loop.execute(this, flushTask);
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        try {
+            onWritable();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    void onWritable() throws IOException {
+        if (closed.get() || !key.isValid()) return;
+        ByteBuffer io = loop.ioBuffer();
+        while (true) {
+            io.clear();
+            outLock.lock();
+            try {
+                int n = Math.min(out.size() - outPos, io.capacity());
+                if (n == 0) break;
+                io.put(out.array(), outPos, n);
+            } finally {
+                outLock.unlock();
+            }
+            int written = channel.write(io.flip());
+            outLock.lock();
+            try {
+                outPos += written;
+                if (outPos == out.size()) {
+                    out.reset();
+                    out.trim(MessageCodec.RETAINED_BUFFER);
+                    outPos = 0;
+                } else if (outPos >= MessageCodec.INITIAL_BUFFER && outPos * 2 >= out.size()) {
+                    out.discardFront(outPos);
+                    outPos = 0;
+                }
+            } finally {
+                outLock.unlock();
+            }
+            if (io.hasRemaining()) break;
+        }
+        updateInterest();
+    }
+
+    private boolean hasPendingOutput() {
+        outLock.lock();
+        try {
+            return out.size() > outPos;
+        } finally {
+            outLock.unlock();
+        }
+    }
+
+    private void updateInterest() {
+        if (key == null || !key.isValid()) return;
+        int ops = (readPaused ? 0 : SelectionKey.OP_READ) | (hasPendingOutput() ? SelectionKey.OP_WRITE : 0);
+        if (key.interestOps() != ops) key.interestOps(ops);
+    }
+
+    void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        String remote = String.valueOf(channel.socket().getRemoteSocketAddress());
+        if (key != null) key.cancel();
+        try { channel.close(); } catch (IOException ignore) {}
+        outLock.lock();
+        try {
+            out.reset();
+            outPos = 0;
+        } finally {
+            outLock.unlock();
+        }
+        waiting.clear();
+        undecoded.clear();
+        handler.onDisconnect();
+        log.info("Client disconnected: {}", remote);
+    }
+}
@@ -0,0 +1,235 @@
+package org.example.todo.server.net.tcp;
+
+import org.example.todo.server.app.ServerConfig;
+import org.example.todo.server.auth.AuthService;
+import org.example.todo.server.protocol.FrameCompression;
+import org.example.todo.server.push.PushService;
+import org.example.todo.server.service.BoardService;
+import org.example.todo.server.service.TaskService;
+import org.example.todo.server.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selector based transport: a few event-loop threads own all sockets and decode the
+ * length-prefixed frames; complete requests run on a bounded worker pool.
+ */
+public class NioTcpServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(NioTcpServer.class);
+    private static final int IO_BUFFER = 64 * 1024;
+
+    private final int port;
+    private final UserService userService;
+    private final AuthService authService;
+    private final BoardService boardService;
+    private final TaskService taskService;
+    private final PushService push;
+
+    private final EventLoop[] loops;
+    private final WorkerPool workers;
+    private final boolean pipelining;
+    private final int maxInFlight;
+    private final int compressionThreshold; // -1 = compression off
+    private final AdmissionControl admission;
+    private final IdleReaper reaper; // null = idle connections are never closed
+    private final byte[] refusal;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    private volatile boolean running = false;
+    private ServerSocketChannel serverChannel;
+
+    public NioTcpServer(ServerConfig cfg, UserService userService, AuthService authService, BoardService boardService, TaskService taskService, PushService push) {
+        this.port = cfg.getTcpPort();
+        this.userService = Objects.requireNonNull(userService);
+        this.authService = Objects.requireNonNull(authService);
+        this.boardService = Objects.requireNonNull(boardService);
+        this.taskService = Objects.requireNonNull(taskService);
+        this.push = Objects.requireNonNull(push);
+        this.loops = new EventLoop[Math.max(1, cfg.getNioEventLoops())];
+        this.workers = new WorkerPool(cfg);
+        this.pipelining = cfg.isPipelining();
+        this.maxInFlight = cfg.getMaxInFlightPerConnection();
+        this.compressionThreshold = cfg.isCompressionEnabled() ? cfg.getCompressionThreshold() : -1;
+        this.admission = new AdmissionControl(cfg);
+        this.refusal = admission.refusalFrame();
+        long idleMs = cfg.getIdleTimeout().toMillis();
+        this.reaper = idleMs > 0 ? new IdleReaper(idleMs) : null;
+    }
+
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(Selector.open());
+            Thread t = new Thread(loops[i], "tcp-nio-loop-" + i);
+            t.start();
+        }
+        running = true;
+        log.info("TCP (nio) server listening on {} with {} event loops and {} {} workers{}", port, loops.length, workers.limit(),
+                workers.isVirtual() ? "virtual" : "platform",
+                pipelining ? ", pipelining up to " + maxInFlight + " requests per connection" : "");
+        new Thread(() -> {
+            while (running) {
+                try {
+                    SocketChannel ch = serverChannel.accept();
+                    if (!admission.tryOpenConnection()) {
+                        refuse(ch);
+                        continue;
+                    }
+                    ch.configureBlocking(false);
+                    ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].register(ch);
+                } catch (IOException e) {
+                    if (running) log.error("Accept failed", e);
+                }
+            }
+        }, "tcp-acceptor").start();
+    }
+
+    NioConnection newConnection(SocketChannel ch, EventLoop loop) throws IOException {
+        var remote = ((InetSocketAddress) ch.getRemoteAddress()).getAddress();
+        var handler = new TcpClientHandler(remote, userService, authService, boardService, taskService, push).admission(admission);
+        if (compressionThreshold >= 0) handler.compression(new FrameCompression(compressionThreshold));
+        NioConnection conn = new NioConnection(ch, loop, handler, workers.executor(), pipelining, maxInFlight);
+        if (reaper != null) handler.idleReaper(reaper, () -> loop.execute(conn, conn::close));
+        return conn;
+    }
+
+    /** Over the connection limit: the channel is still blocking, so the short refusal frame goes out in one write. */
+    private void refuse(SocketChannel ch) {
+        try (ch) {
+            ch.write(ByteBuffer.wrap(refusal));
+        } catch (IOException ignore) {}
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (serverChannel != null && serverChannel.isOpen()) serverChannel.close();
+        for (EventLoop loop : loops) if (loop != null) loop.shutdown();
+        workers.close();
+        if (reaper != null) reaper.close();
+        log.info("TCP (nio) server stopped; overload rejections: {}; idle connections reaped: {}", admission, reaper != null ? reaper.reaped() : 0);
+    }
+
+    final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> toRegister = new ConcurrentLinkedQueue<>();
+        private record Task(NioConnection conn, Runnable run) {}
+        private final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+        // Socket reads and writes of every connection on this loop go through this one direct buffer.
+        private final ByteBuffer ioBuffer = ByteBuffer.allocateDirect(IO_BUFFER);
+        private volatile boolean open = true;
+
+        EventLoop(Selector selector) { this.selector = selector; }
+
+        void register(SocketChannel ch) {
+            toRegister.add(ch);
+            selector.wakeup();
+        }
+
+        /**
+         * Runs {@code task} on this loop's thread; used by workers to touch socket state they do not own.
+         * If it throws, {@code conn} is closed and the loop carries on.
+         */
+        void execute(NioConnection conn, Runnable task) {
+            tasks.add(new Task(conn, task));
+            selector.wakeup();
+        }
+
+        /** Only valid on the loop thread; contents do not survive past the current callback. */
+        ByteBuffer ioBuffer() { return ioBuffer; }
+
+        void shutdown() {
+            open = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (open) {
+                    selector.select();
+                    registerPending();
+                    runTasks();
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioConnection conn = (NioConnection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) conn.onReadable();
+                            if (key.isValid() && key.isWritable()) conn.onWritable();
+                        } catch (IOException e) {
+                            conn.close();
+                        } catch (RuntimeException e) {
+                            failed(conn, e);
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (open) log.error("Event loop failed", e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof NioConnection conn) conn.close();
+                }
+                try { selector.close(); } catch (IOException ignore) {}
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel ch;
+            while ((ch = toRegister.poll()) != null) {
+                NioConnection conn = null;
+                try {
+                    conn = newConnection(ch, this);
+                    conn.attach(ch.register(selector, SelectionKey.OP_READ, conn));
+                    log.info("Client connected: {}", ch.getRemoteAddress());
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not register channel: {}", e.toString());
+                    if (conn != null) conn.close(); // releases the connection slot via onDisconnect
+                    else {
+                        admission.closeConnection();
+                        try { ch.close(); } catch (IOException ignore) {}
+                    }
+                }
+            }
+        }
+
+        private void runTasks() {
+            Task task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run().run();
+                } catch (RuntimeException e) {
+                    failed(task.conn(), e);
+                }
+            }
+        }
+
+        /** A bug in one connection's handling closes that connection, not the loop and its other connections. */
+        private void failed(NioConnection conn, RuntimeException e) {
+            log.error("Event loop task failed, closing the connection", e);
+            try {
+                conn.close();
+            } catch (RuntimeException again) {
+                log.error("Closing the connection failed", again);
+            }
+        }
+    }
+}
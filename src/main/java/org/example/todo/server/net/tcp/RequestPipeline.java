@@ -0,0 +1,178 @@
+package org.example.todo.server.net.tcp;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.example.todo.server.protocol.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the requests of one connection concurrently, at most {@code maxInFlight} at a time, and
+ * hands each response and its encoding to {@code writer} as soon as it is ready (clients match
+ * them by reqId).
+ * Mutations that target the same board are chained so they apply in the order they arrived; a
+ * {@code batch} is chained behind every board its items touch.
+ */
+final class RequestPipeline {
+    private static final Set<String> ORDERED_ACTIONS = Set.of(
+            "add_task", "update_task_status", "delete_task",
+            "add_user_to_board", "delete_board",
+            "subscribe_board", "unsubscribe_board", "batch", "import_tasks");
+
+    private final TcpClientHandler handler;
+    private final Executor executor;
+    private final Semaphore slots;
+    private final BiConsumer<Envelope, Boolean> writer;
+    private final Runnable onSlotFreed;
+    private final Map<String, CompletableFuture<Void>> boardTails = new HashMap<>();
+
+    RequestPipeline(TcpClientHandler handler, Executor executor, int maxInFlight, BiConsumer<Envelope, Boolean> writer, Runnable onSlotFreed) {
+        this.handler = handler;
+        this.executor = executor;
+        this.slots = new Semaphore(Math.max(1, maxInFlight));
+        this.writer = writer;
+        this.onSlotFreed = onSlotFreed;
+    }
+
+    /** Blocks the reading thread until an in-flight slot is free. */
+    void acquire() throws InterruptedException { slots.acquire(); }
+
+    /** Non-blocking variant for event loops, which pause reading instead of waiting. */
+    boolean tryAcquire() { return slots.tryAcquire(); }
+
+    /** Dispatches one request; the caller must hold a slot from {@link #acquire()} or {@link #tryAcquire()}. */
+    void dispatch(MessageCodec.Decoded req) {
+        if (req.env() == null) {
+            writer.accept(TcpClientHandler.error(null, "VALIDATION_ERROR", "Malformed frame"), req.binary());
+            release();
+            return;
+        }
+        Job job = new Job(req.env(), req.binary());
+        Collection<String> boards = orderingKeys(job.env);
+        if (boards.isEmpty()) {
+            submit(job);
+            return;
+        }
+        synchronized (boardTails) {
+            List<CompletableFuture<Void>> prev = new ArrayList<>(boards.size());
+            for (String board : boards) {
+                CompletableFuture<Void> tail = boardTails.put(board, job.done);
+                if (tail != null) prev.add(tail);
+            }
+            if (prev.isEmpty()) submit(job);
+            else if (prev.size() == 1) prev.get(0).whenComplete((v, e) -> submit(job));
+            else CompletableFuture.allOf(prev.toArray(CompletableFuture[]::new)).whenComplete((v, e) -> submit(job));
+        }
+        job.done.whenComplete((v, e) -> {
+            synchronized (boardTails) {
+                for (String board : boards) boardTails.remove(board, job.done);
+            }
+        });
+    }
+
+    /** Boards whose earlier mutations this request must wait for; a batch waits for every board it touches. */
+    private static Collection<String> orderingKeys(Envelope env) {
+        if (env.action == null || !ORDERED_ACTIONS.contains(env.action)) return List.of();
+        if (env.body instanceof BatchRequest b) {
+            Set<String> boards = new LinkedHashSet<>();
+            if (b.items != null) {
+                for (BatchRequest.Item item : b.items) {
+                    String board = item != null ? boardId(item.payload) : null;
+                    if (board != null) boards.add(board);
+                }
+            }
+            return boards;
+        }
+        if (env.body == null && "batch".equals(env.action)) {
+            Set<String> boards = new LinkedHashSet<>();
+            JsonElement items = env.payload != null ? env.payload.get("items") : null;
+            if (items != null && items.isJsonArray()) {
+                for (JsonElement item : items.getAsJsonArray()) {
+                    JsonElement p = item.isJsonObject() ? item.getAsJsonObject().get("payload") : null;
+                    String board = p != null && p.isJsonObject() ? boardId(p.getAsJsonObject()) : null;
+                    if (board != null) boards.add(board);
+                }
+            }
+            return boards;
+        }
+        String board = orderingKey(env);
+        return board != null ? List.of(board) : List.of();
+    }
+
+    private static String orderingKey(Envelope env) {
+        if (env.body != null) {
+            return switch (env.body) {
+                case AddTaskRequest r -> r.boardId;
+                case UpdateTaskStatusRequest r -> r.boardId;
+                case DeleteTaskRequest r -> r.boardId;
+                case AddUserToBoardRequest r -> r.boardId;
+                case DeleteBoardRequest r -> r.boardId;
+                case SubscribeBoardRequest r -> r.boardId;
+                case UnsubscribeBoardRequest r -> r.boardId;
+                case ImportTasksRequest r -> r.boardId;
+                default -> null;
+            };
+        }
+        return boardId(env.payload);
+    }
+
+    private static String boardId(JsonObject payload) {
+        if (payload == null) return null;
+        JsonElement b = payload.get("boardId");
+        return b != null && b.isJsonPrimitive() ? b.getAsString() : null;
+    }
+
+    private void submit(Job job) {
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            job.reject();
+        }
+    }
+
+    private void release() {
+        slots.release();
+        onSlotFreed.run();
+    }
+
+    private final class Job implements Runnable {
+        final Envelope env;
+        final boolean binary;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Job(Envelope env, boolean binary) { this.env = env; this.binary = binary; }
+
+        @Override
+        public void run() {
+            try {
+                writer.accept(handler.process(env), binary);
+            } finally {
+                finish();
+            }
+        }
+
+        void reject() {
+            try {
+                writer.accept(handler.rejected(env.reqId), binary);
+            } finally {
+                finish();
+            }
+        }
+
+        private void finish() {
+            release();
+            done.complete(null);
+        }
+    }
+}
@@ -1,12 +1,12 @@
 package org.example.todo.server.net.tcp;
 
-import com.google.gson.JsonObject;
 import org.example.todo.server.auth.AuthService;
 import org.example.todo.server.core.AppException;
 import org.example.todo.server.model.User;
 import org.example.todo.server.protocol.*;
 import org.example.todo.server.push.PushService;
 import org.example.todo.server.service.BoardService;
+import org.example.todo.server.service.TaskImport;
 import org.example.todo.server.service.TaskService;
 import org.example.todo.server.service.UserService;
 import org.slf4j.Logger;
@@ -15,16 +15,23 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.Socket;
 import java.sql.SQLException;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import static org.example.todo.server.protocol.ProtocolJson.GSON;
 
 public class TcpClientHandler implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(TcpClientHandler.class);
+    static final int DEFAULT_RETRY_AFTER_MS = 200;
+    static final int MAX_IMPORTS_PER_CONNECTION = 4;
 
     private final Socket socket;
+    private final InetAddress remoteAddress;
     private final UserService userService;
     private final AuthService authService;
     private final BoardService boardService;
@@ -32,9 +39,34 @@ public class TcpClientHandler implements Runnable {
     private final PushService push;
 
     private final String connectionKey = UUID.randomUUID().toString();
+    // Bulk imports in progress on this connection, by id; an import ends with its connection.
+    private final Map<String, TaskImport> imports = new ConcurrentHashMap<>();
+
+    private Executor requestExecutor;
+    private int maxInFlight;
+    private FrameCompression compression;
+    private AdmissionControl admission;
+    // Last token seen on this connection and its user, so admission does not re-verify it per request.
+    private volatile TokenUser lastToken;
+
+    private record TokenUser(String token, String userId) {}
+
+    private IdleReaper reaper;
+    private Runnable closeTransport;
+    private volatile long lastActivity = System.nanoTime();
 
     public TcpClientHandler(Socket socket, UserService userService, AuthService authService, BoardService boardService, TaskService taskService, PushService push) {
+        this(socket, socket.getInetAddress(), userService, authService, boardService, taskService, push);
+    }
+
+    /** Handler without an owned socket; the caller drives I/O and feeds decoded requests through {@link #process(Envelope)}. */
+    public TcpClientHandler(InetAddress remoteAddress, UserService userService, AuthService authService, BoardService boardService, TaskService taskService, PushService push) {
+        this(null, remoteAddress, userService, authService, boardService, taskService, push);
+    }
+
+    private TcpClientHandler(Socket socket, InetAddress remoteAddress, UserService userService, AuthService authService, BoardService boardService, TaskService taskService, PushService push) {
         this.socket = socket;
+        this.remoteAddress = remoteAddress;
         this.userService = userService;
         this.authService = authService;
         this.boardService = boardService;
@@ -42,36 +74,144 @@ public class TcpClientHandler implements Runnable {
         this.push = push;
     }
 
+    /** Handle this connection's requests concurrently on {@code executor}, at most {@code maxInFlight} at a time. */
+    public TcpClientHandler pipelined(Executor executor, int maxInFlight) {
+        this.requestExecutor = executor;
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /** Lets this connection deflate large frames once the client asks for it in {@code hello}. */
+    public TcpClientHandler compression(FrameCompression compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    FrameCompression compression() { return compression; }
+
+    /** Lets {@code reaper} close this connection with {@code closeTransport} once it stops sending requests. */
+    TcpClientHandler idleReaper(IdleReaper reaper, Runnable closeTransport) {
+        this.reaper = reaper;
+        this.closeTransport = closeTransport;
+        reaper.track(this);
+        return this;
+    }
+
+    long lastActivityNanos() { return lastActivity; }
+
+    /** Called by the reaper: stop pushing to the (probably dead) client right away, then drop the socket. */
+    void reap() {
+        log.info("Closing idle connection {}", connectionKey);
+        try { push.clearConnection(connectionKey); } catch (Exception ignore) {}
+        closeTransport.run();
+    }
+
+    /** Applies the server's per-user and inline-request limits; the connection slot is given back on disconnect. */
+    TcpClientHandler admission(AdmissionControl admission) {
+        this.admission = admission;
+        return this;
+    }
+
     @Override
     public void run() {
         String remote = socket.getRemoteSocketAddress().toString();
         log.info("Client connected: {}", remote);
         try (Socket s = socket; InputStream is = s.getInputStream(); OutputStream os = s.getOutputStream()) {
-            while (true) {
-                String json = MessageCodec.readJson(is);
-                Envelope env = GSON.fromJson(json, Envelope.class);
-                Envelope resp;
-                try {
-                    resp = handle(env);
-                } catch (AppException ae) {
-                    resp = error(env != null ? env.reqId : null, ae.getCode(), ae.getMessage());
-                } catch (SecurityException se) {
-                    resp = error(env != null ? env.reqId : null, "AUTH_INVALID", se.getMessage());
-                } catch (SQLException sqle) {
-                    log.error("SQL error", sqle);
-                    resp = error(env != null ? env.reqId : null, "DB_ERROR", "Database error");
-                } catch (Exception e) {
-                    log.error("Unhandled error", e);
-                    resp = error(env != null ? env.reqId : null, "INTERNAL", "Internal server error");
+            MessageCodec codec = new MessageCodec(is, os, compression);
+            if (requestExecutor != null) {
+                runPipelined(s, codec);
+            } else {
+                while (true) {
+                    MessageCodec.Decoded req = codec.read();
+                    codec.write(processInline(req.env()), req.binary());
                 }
-                String out = GSON.toJson(resp);
-                MessageCodec.writeJson(os, out);
             }
         } catch (IOException e) {
             log.info("Client disconnected: {}", remote);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            onDisconnect();
+        }
+    }
+
+    private void runPipelined(Socket s, MessageCodec codec) throws IOException, InterruptedException {
+        RequestPipeline pipeline = new RequestPipeline(this, requestExecutor, maxInFlight, (resp, binary) -> {
+            try {
+                codec.write(resp, binary);
+            } catch (IOException e) {
+                try { s.close(); } catch (IOException ignore) {}
+            }
+        }, () -> {});
+        while (true) {
+            MessageCodec.Decoded req = codec.read();
+            pipeline.acquire();
+            pipeline.dispatch(req);
+        }
+    }
+
+    private Envelope processInline(Envelope env) throws InterruptedException {
+        if (admission == null) return process(env);
+        if (!admission.enter()) return overloaded(env != null ? env.reqId : null);
+        try {
+            return process(env);
         } finally {
-            try { push.clearConnection(connectionKey); } catch (Exception ignore) {}
+            admission.exit();
+        }
+    }
+
+    public Envelope process(Envelope env) {
+        lastActivity = System.nanoTime();
+        String userKey = admission != null && env != null ? userKey(env) : null;
+        if (userKey != null && !admission.tryEnterUser(userKey)) return overloaded(env.reqId);
+        try {
+            return handle(env);
+        } catch (AppException ae) {
+            return error(env != null ? env.reqId : null, ae.getCode(), ae.getMessage());
+        } catch (SecurityException se) {
+            return error(env != null ? env.reqId : null, "AUTH_INVALID", se.getMessage());
+        } catch (SQLException sqle) {
+            log.error("SQL error", sqle);
+            return error(env != null ? env.reqId : null, "DB_ERROR", "Database error");
+        } catch (Exception e) {
+            log.error("Unhandled error", e);
+            return error(env != null ? env.reqId : null, "INTERNAL", "Internal server error");
+        } finally {
+            if (userKey != null) admission.exitUser(userKey);
+            lastActivity = System.nanoTime();
+        }
+    }
+
+    /** Admission key: the user of a valid token, otherwise the client address (register/login, bad tokens). */
+    private String userKey(Envelope env) {
+        if (env.token != null) {
+            TokenUser last = lastToken;
+            if (last != null && last.token.equals(env.token)) return last.userId;
+            String userId = authService.verifiedUserId(env.token);
+            if (userId != null) {
+                lastToken = new TokenUser(env.token, userId);
+                return userId;
+            }
         }
+        return remoteAddress != null ? remoteAddress.getHostAddress() : connectionKey;
+    }
+
+    /** Reply for a request the bounded worker pool refused to queue. */
+    Envelope rejected(String reqId) {
+        if (admission != null) admission.reject(AdmissionControl.Reason.WORKERS);
+        return overloaded(reqId);
+    }
+
+    private Envelope overloaded(String reqId) {
+        return overloaded(reqId, admission != null ? admission.retryAfterMs() : DEFAULT_RETRY_AFTER_MS);
+    }
+
+    public void onDisconnect() {
+        try { push.clearConnection(connectionKey); } catch (Exception ignore) {}
+        if (compression != null) compression.end();
+        if (admission != null) admission.closeConnection();
+        if (reaper != null) reaper.untrack(this);
+        imports.clear();
     }
 
     private Envelope handle(Envelope env) throws Exception {
@@ -80,6 +220,8 @@ public class TcpClientHandler implements Runnable {
         }
         String action = env.action != null ? env.action : "";
         return switch (action) {
+            case "hello" -> handleHello(env);
+            case "ping" -> ok(env, new AckResponse("pong"));
             case "register" -> handleRegister(env);
             case "login" -> handleLogin(env);
             case "logout" -> handleLogout(env);
@@ -95,6 +237,9 @@ public class TcpClientHandler implements Runnable {
             case "list_tasks" -> handleListTasks(env);
             case "update_task_status" -> handleUpdateTaskStatus(env);
             case "delete_task" -> handleDeleteTask(env);
+            case "batch" -> handleBatch(env);
+            case "import_tasks" -> handleImportTasks(env);
+            case "export_tasks" -> handleExportTasks(env);
 
             case "subscribe_board" -> handleSubscribeBoard(env);
             case "unsubscribe_board" -> handleUnsubscribeBoard(env);
@@ -103,8 +248,26 @@ public class TcpClientHandler implements Runnable {
         };
     }
 
+    private Envelope handleHello(Envelope env) {
+        HelloRequest req = payload(env, HelloRequest.class);
+        String chosen = "json";
+        if (req != null && req.encodings != null) {
+            for (String e : req.encodings) {
+                if ("binary".equals(e) || "json".equals(e)) { chosen = e; break; }
+            }
+        }
+        String deflate = null;
+        if (compression != null && req != null && req.compression != null
+                && java.util.Arrays.asList(req.compression).contains(FrameCompression.DEFLATE)) {
+            compression.enable();
+            deflate = FrameCompression.DEFLATE;
+        }
+        log.debug("Connection {} negotiated {} encoding, compression {}", connectionKey, chosen, deflate);
+        return ok(env, new HelloResponse(chosen, deflate));
+    }
+
     private Envelope handleRegister(Envelope env) throws SQLException {
-        RegisterRequest req = GSON.fromJson(env.payload, RegisterRequest.class);
+        RegisterRequest req = payload(env, RegisterRequest.class);
         if (req == null || req.username == null || req.password == null)
             throw new AppException("VALIDATION_ERROR", "username/password required");
 
@@ -113,19 +276,19 @@ public class TcpClientHandler implements Runnable {
         resp.token = regResult.token();
         resp.expiresAt = regResult.expiresAt();
         resp.user = new UserView(regResult.user().getId(), regResult.user().getUsername(), regResult.user().getCreatedAt());
-        return ok(env, GSON.toJsonTree(resp).getAsJsonObject());
+        return ok(env, resp);
     }
     private Envelope handleDeleteBoard(Envelope env) throws SQLException {
         var ac = authService.authenticate(requireToken(env));
-        DeleteBoardRequest req = GSON.fromJson(env.payload, DeleteBoardRequest.class);
+        DeleteBoardRequest req = payload(env, DeleteBoardRequest.class);
         if (req == null || req.boardId == null) {
             throw new AppException("VALIDATION_ERROR", "boardId required");
         }
         boardService.deleteBoard(ac.userId, req.boardId);
-        return ok(env, GSON.toJsonTree(new AckResponse("board deleted")).getAsJsonObject());
+        return ok(env, new AckResponse("board deleted"));
     }
     private Envelope handleLogin(Envelope env) throws SQLException {
-        LoginRequest req = GSON.fromJson(env.payload, LoginRequest.class);
+        LoginRequest req = payload(env, LoginRequest.class);
         if (req == null || req.username == null || req.password == null)
             throw new AppException("VALIDATION_ERROR", "username/password required");
         var lr = userService.login(req.username, req.password.toCharArray());
@@ -133,24 +296,23 @@ public class TcpClientHandler implements Runnable {
         resp.token = lr.token();
         resp.expiresAt = lr.expiresAt();
         resp.user = new UserView(lr.user().getId(), lr.user().getUsername(), lr.user().getCreatedAt());
-        return ok(env, GSON.toJsonTree(resp).getAsJsonObject());
+        return ok(env, resp);
     }
 
     private Envelope handleLogout(Envelope env) throws SQLException {
         requireToken(env);
         authService.authenticate(env.token);
         userService.logout(env.token);
-        return ok(env, GSON.toJsonTree(new AckResponse("logged out")).getAsJsonObject());
+        return ok(env, new AckResponse("logged out"));
     }
 
     private Envelope handleCreateBoard(Envelope env) throws SQLException {
         var ac = authService.authenticate(requireToken(env));
-        CreateBoardRequest req = GSON.fromJson(env.payload, CreateBoardRequest.class);
+        CreateBoardRequest req = payload(env, CreateBoardRequest.class);
         if (req == null || req.name == null || req.name.isBlank()) throw new AppException("VALIDATION_ERROR", "name required");
         var b = boardService.createBoard(ac.userId, req.name);
         BoardSummary sum = new BoardSummary(b.getId(), b.getName(), b.getOwnerId(), b.getCreatedAt(), "OWNER");
-        JsonObject payload = new JsonObject(); payload.add("board", GSON.toJsonTree(sum));
-        return ok(env, payload);
+        return ok(env, Map.of("board", sum));
     }
 
     private Envelope handleListBoards(Envelope env) throws SQLException {
@@ -158,99 +320,158 @@ public class TcpClientHandler implements Runnable {
         var list = boardService.listBoardsForUser(ac.userId);
         var resp = new ListBoardsResponse();
         resp.boards = list.stream().map(v -> new BoardSummary(v.id, v.name, v.ownerId, v.createdAt, v.role)).toList();
-        return ok(env, GSON.toJsonTree(resp).getAsJsonObject());
+        return ok(env, resp);
     }
 
     private Envelope handleAddUserToBoard(Envelope env) throws SQLException {
         var ac = authService.authenticate(requireToken(env));
-        AddUserToBoardRequest req = GSON.fromJson(env.payload, AddUserToBoardRequest.class);
+        AddUserToBoardRequest req = payload(env, AddUserToBoardRequest.class);
         if (req == null || req.boardId == null || req.userId == null) throw new AppException("VALIDATION_ERROR", "boardId/userId required");
         boardService.addMember(ac.userId, req.boardId, req.userId);
-        return ok(env, GSON.toJsonTree(new AckResponse("member added")).getAsJsonObject());
+        return ok(env, new AckResponse("member added"));
     }
 
     private Envelope handleViewBoard(Envelope env) throws SQLException {
         var ac = authService.authenticate(requireToken(env));
-        ViewBoardRequest req = GSON.fromJson(env.payload, ViewBoardRequest.class);
+        ViewBoardRequest req = payload(env, ViewBoardRequest.class);
         if (req == null || req.boardId == null) throw new AppException("VALIDATION_ERROR", "boardId required");
-        var roleOpt = boardService.checkAccessRole(ac.userId, req.boardId);
-        if (roleOpt.isEmpty()) throw new AppException("FORBIDDEN", "دسترسی غیرمجاز");
-        var b = boardService.listBoardsForUser(ac.userId).stream().filter(v -> v.id.equals(req.boardId)).findFirst()
-                .orElseThrow(() -> new AppException("NOT_FOUND", "بورد یافت نشد"));
+        var b = boardService.findBoardForUser(ac.userId, req.boardId)
+                .orElseThrow(() -> new AppException("FORBIDDEN", "دسترسی غیرمجاز"));
         var members = boardService.listMembersWithUsername(req.boardId);
         ViewBoardResponse resp = new ViewBoardResponse();
-        resp.board = new BoardSummary(b.id, b.name, b.ownerId, b.createdAt, roleOpt.get());
+        resp.board = new BoardSummary(b.id, b.name, b.ownerId, b.createdAt, b.role);
         resp.members = members.stream().map(m -> new BoardMemberView(m.userId, m.username, m.role, m.createdAt)).toList();
-        return ok(env, GSON.toJsonTree(resp).getAsJsonObject());
+        if (req.limit != null) {
+            var page = listTasks(ac.userId, req.boardId, req.filters, req.sort, req.limit, null);
+            resp.tasks = page.tasks().stream().map(TcpClientHandler::toView).toList();
+            resp.nextCursor = page.nextCursor();
+        }
+        return ok(env, resp);
     }
 
     private Envelope handleAddTask(Envelope env) throws SQLException {
         var ac = authService.authenticate(requireToken(env));
-        AddTaskRequest req = GSON.fromJson(env.payload, AddTaskRequest.class);
+        AddTaskRequest req = payload(env, AddTaskRequest.class);
         if (req == null || req.boardId == null || req.title == null || req.priority == null)
             throw new AppException("VALIDATION_ERROR", "boardId/title/priority required");
         var t = taskService.addTask(ac.userId, req.boardId, req.title, req.description, req.priority, req.dueDate);
         var tv = toView(t);
-        JsonObject p = new JsonObject(); p.add("task", GSON.toJsonTree(tv));
-        return ok(env, p);
+        return ok(env, Map.of("task", tv));
     }
 
     private Envelope handleListTasks(Envelope env) throws SQLException {
         var ac = authService.authenticate(requireToken(env));
-        ListTasksRequest req = GSON.fromJson(env.payload, ListTasksRequest.class);
+        ListTasksRequest req = payload(env, ListTasksRequest.class);
         if (req == null || req.boardId == null) throw new AppException("VALIDATION_ERROR", "boardId required");
+        var page = listTasks(ac.userId, req.boardId, req.filters, req.sort, req.limit, req.cursor);
+        var resp = new ListTasksResponse();
+        resp.tasks = page.tasks().stream().map(TcpClientHandler::toView).toList();
+        resp.nextCursor = page.nextCursor();
+        return ok(env, resp);
+    }
+
+    private TaskService.TaskPage listTasks(String userId, String boardId, ListTasksRequest.Filters filters, ListTasksRequest.Sort sort,
+                                           Integer limit, String cursor) throws SQLException {
         var statuses = new java.util.LinkedHashSet<String>();
         var priorities = new java.util.LinkedHashSet<String>();
-        if (req.filters != null) {
-            if (req.filters.status != null) java.util.Collections.addAll(statuses, req.filters.status);
-            if (req.filters.priority != null) java.util.Collections.addAll(priorities, req.filters.priority);
+        if (filters != null) {
+            if (filters.status != null) java.util.Collections.addAll(statuses, filters.status);
+            if (filters.priority != null) java.util.Collections.addAll(priorities, filters.priority);
         }
-        String by = req.sort != null ? req.sort.by : null; String order = req.sort != null ? req.sort.order : null;
-        Long dueBefore = req.filters != null ? req.filters.dueBefore : null; Long dueAfter = req.filters != null ? req.filters.dueAfter : null;
-        var list = taskService.listTasks(ac.userId, req.boardId, statuses, priorities, dueBefore, dueAfter, by, order);
-        var resp = new ListTasksResponse();
-        resp.tasks = list.stream().map(TcpClientHandler::toView).toList();
-        return ok(env, GSON.toJsonTree(resp).getAsJsonObject());
+        String by = sort != null ? sort.by : null; String order = sort != null ? sort.order : null;
+        Long dueBefore = filters != null ? filters.dueBefore : null; Long dueAfter = filters != null ? filters.dueAfter : null;
+        return taskService.listTasks(userId, boardId, statuses, priorities, dueBefore, dueAfter, by, order, limit, cursor);
     }
 
     private Envelope handleUpdateTaskStatus(Envelope env) throws SQLException {
         var ac = authService.authenticate(requireToken(env));
-        UpdateTaskStatusRequest req = GSON.fromJson(env.payload, UpdateTaskStatusRequest.class);
+        UpdateTaskStatusRequest req = payload(env, UpdateTaskStatusRequest.class);
         if (req == null || req.boardId == null || req.taskId == null || req.newStatus == null)
             throw new AppException("VALIDATION_ERROR", "boardId/taskId/newStatus required");
         var t = taskService.updateTaskStatus(ac.userId, req.boardId, req.taskId, req.newStatus);
-        JsonObject p = new JsonObject(); p.add("task", GSON.toJsonTree(toView(t)));
-        return ok(env, p);
+        return ok(env, Map.of("task", toView(t)));
     }
 
     private Envelope handleDeleteTask(Envelope env) throws SQLException {
         var ac = authService.authenticate(requireToken(env));
-        DeleteTaskRequest req = GSON.fromJson(env.payload, DeleteTaskRequest.class);
+        DeleteTaskRequest req = payload(env, DeleteTaskRequest.class);
         if (req == null || req.boardId == null || req.taskId == null)
             throw new AppException("VALIDATION_ERROR", "boardId/taskId required");
         taskService.deleteTask(ac.userId, req.boardId, req.taskId);
-        return ok(env, GSON.toJsonTree(new AckResponse("task deleted")).getAsJsonObject());
+        return ok(env, new AckResponse("task deleted"));
+    }
+
+    private Envelope handleBatch(Envelope env) throws SQLException {
+        var ac = authService.authenticate(requireToken(env));
+        BatchRequest req = payload(env, BatchRequest.class);
+        if (req == null || req.items == null) throw new AppException("VALIDATION_ERROR", "items required");
+        BatchResponse resp = new BatchResponse();
+        resp.results = taskService.applyBatch(ac.userId, req.items);
+        return ok(env, resp);
+    }
+
+    private Envelope handleImportTasks(Envelope env) throws SQLException {
+        var ac = authService.authenticate(requireToken(env));
+        ImportTasksRequest req = payload(env, ImportTasksRequest.class);
+        if (req == null || req.boardId == null) throw new AppException("VALIDATION_ERROR", "boardId required");
+        TaskImport imp;
+        if (req.importId == null) {
+            if (imports.size() >= MAX_IMPORTS_PER_CONNECTION) throw new AppException("VALIDATION_ERROR", "Too many imports in progress");
+            imp = taskService.startImport(ac.userId, req.boardId, req.format);
+            imports.put(imp.id(), imp);
+        } else {
+            imp = imports.get(req.importId);
+            if (imp == null || !imp.boardId().equals(req.boardId)) throw new AppException("VALIDATION_ERROR", "Unknown importId");
+        }
+        boolean done = Boolean.TRUE.equals(req.done);
+        TaskImport.Summary s;
+        try {
+            if (req.data != null) imp.feed(req.data);
+            s = done ? taskService.finishImport(ac.userId, imp) : imp.progress();
+        } catch (SQLException | RuntimeException e) {
+            imports.remove(imp.id());
+            throw e;
+        }
+        if (done) imports.remove(imp.id());
+        var resp = new ImportTasksResponse();
+        resp.importId = imp.id();
+        resp.imported = s.imported();
+        resp.rejected = s.rejected();
+        resp.errors = s.errors();
+        resp.done = done;
+        return ok(env, resp);
+    }
+
+    private Envelope handleExportTasks(Envelope env) throws SQLException {
+        var ac = authService.authenticate(requireToken(env));
+        ExportTasksRequest req = payload(env, ExportTasksRequest.class);
+        if (req == null || req.boardId == null) throw new AppException("VALIDATION_ERROR", "boardId required");
+        StringBuilder data = new StringBuilder();
+        var resp = new ExportTasksResponse();
+        resp.nextCursor = taskService.exportTasks(ac.userId, req.boardId, req.format, req.cursor, req.limit, data);
+        resp.data = data.toString();
+        return ok(env, resp);
     }
 
     private Envelope handleSubscribeBoard(Envelope env) throws Exception {
         var ac = authService.authenticate(requireToken(env));
-        SubscribeBoardRequest req = GSON.fromJson(env.payload, SubscribeBoardRequest.class);
+        SubscribeBoardRequest req = payload(env, SubscribeBoardRequest.class);
         if (req == null || req.boardId == null || req.udpPort == null) throw new AppException("VALIDATION_ERROR", "boardId/udpPort required");
         var role = boardService.checkAccessRole(ac.userId, req.boardId);
         if (role.isEmpty()) throw new AppException("FORBIDDEN", "دسترسی غیرمجاز");
-        var addr = socket.getInetAddress();
+        var addr = remoteAddress;
         push.subscribe(connectionKey, req.boardId, ac.userId, addr, req.udpPort);
-        return ok(env, GSON.toJsonTree(new AckResponse("subscribed")).getAsJsonObject());
+        return ok(env, new AckResponse("subscribed"));
     }
 
     private Envelope handleUnsubscribeBoard(Envelope env) throws Exception {
         var ac = authService.authenticate(requireToken(env));
-        UnsubscribeBoardRequest req = GSON.fromJson(env.payload, UnsubscribeBoardRequest.class);
+        UnsubscribeBoardRequest req = payload(env, UnsubscribeBoardRequest.class);
         if (req == null || req.boardId == null) throw new AppException("VALIDATION_ERROR", "boardId required");
-        var addr = socket.getInetAddress();
+        var addr = remoteAddress;
         int port = req.udpPort != null ? req.udpPort : 0;
         push.unsubscribe(connectionKey, req.boardId, ac.userId, addr, port);
-        return ok(env, GSON.toJsonTree(new AckResponse("unsubscribed")).getAsJsonObject());
+        return ok(env, new AckResponse("unsubscribed"));
     }
 
     private static String requireToken(Envelope env) {
@@ -259,21 +480,34 @@ public class TcpClientHandler implements Runnable {
         return env.token;
     }
 
-    private static Envelope ok(Envelope req, JsonObject payload) {
+    /** Request payload as {@code type}: the object the codec already bound, or read from the tree (binary frames). */
+    private static <T> T payload(Envelope env, Class<T> type) {
+        if (type.isInstance(env.body)) return type.cast(env.body);
+        return GSON.fromJson(env.payload, type);
+    }
+
+    private static Envelope ok(Envelope req, Object body) {
         Envelope e = new Envelope();
         e.type = "response";
         e.reqId = req.reqId;
         e.action = req.action;
-        e.payload = payload;
+        e.body = body;
         return e;
     }
 
-    private static Envelope error(String reqId, String code, String message) {
+    static Envelope error(String reqId, String code, String message) {
         Envelope e = new Envelope(); e.type = "error"; e.reqId = reqId; com.google.gson.JsonObject err = new com.google.gson.JsonObject();
         err.addProperty("code", code); err.addProperty("message", message);
         e.payload = new com.google.gson.JsonObject(); e.payload.add("error", err); return e;
     }
 
+    /** {@code OVERLOADED} error; {@code retryAfterMs} tells the client how long to back off before resending. */
+    static Envelope overloaded(String reqId, int retryAfterMs) {
+        Envelope e = error(reqId, "OVERLOADED", "Server is overloaded, retry later");
+        e.payload.getAsJsonObject("error").addProperty("retryAfterMs", retryAfterMs);
+        return e;
+    }
+
     private static TaskView toView(org.example.todo.server.model.Task t) {
         return new TaskView(t.getId(), t.getBoardId(), t.getTitle(), t.getDescription(),
                 toClientStatus(t.getStatus()), toClientPriority(t.getPriority()), t.getDueDate(), t.getCreatedAt());
@@ -1,6 +1,8 @@
 package org.example.todo.server.net.tcp;
 
+import org.example.todo.server.app.ServerConfig;
 import org.example.todo.server.auth.AuthService;
+import org.example.todo.server.protocol.FrameCompression;
 import org.example.todo.server.push.PushService;
 import org.example.todo.server.service.BoardService;
 import org.example.todo.server.service.TaskService;
@@ -14,6 +16,8 @@ import java.net.Socket;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 public class TcpServer implements AutoCloseable {
@@ -21,6 +25,12 @@ public class TcpServer implements AutoCloseable {
 
     private final int port;
     private final ExecutorService pool;
+    private final WorkerPool requestPool;
+    private final int maxInFlight;
+    private final int compressionThreshold; // -1 = compression off
+    private final AdmissionControl admission;
+    private final IdleReaper reaper; // null = idle connections are never closed
+    private final byte[] refusal;
 
     private final UserService userService;
     private final AuthService authService;
@@ -31,26 +41,50 @@ public class TcpServer implements AutoCloseable {
     private volatile boolean running = false;
     private ServerSocket serverSocket;
 
-    public TcpServer(int port, UserService userService, AuthService authService, BoardService boardService, TaskService taskService, PushService push) {
-        this.port = port;
+    public TcpServer(ServerConfig cfg, UserService userService, AuthService authService, BoardService boardService, TaskService taskService, PushService push) {
+        this.port = cfg.getTcpPort();
         this.userService = Objects.requireNonNull(userService);
         this.authService = Objects.requireNonNull(authService);
         this.boardService = Objects.requireNonNull(boardService);
         this.taskService = Objects.requireNonNull(taskService);
         this.push = Objects.requireNonNull(push);
-        this.pool = Executors.newCachedThreadPool();
+        // Idle connections park in readJson; on virtual threads that costs a small heap object instead of a platform stack.
+        this.pool = cfg.isVirtualConnectionThreads()
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tcp-conn-", 0).factory())
+                : Executors.newCachedThreadPool();
+        this.requestPool = cfg.isPipelining() ? new WorkerPool(cfg) : null;
+        this.maxInFlight = cfg.getMaxInFlightPerConnection();
+        this.compressionThreshold = cfg.isCompressionEnabled() ? cfg.getCompressionThreshold() : -1;
+        this.admission = new AdmissionControl(cfg);
+        this.refusal = admission.refusalFrame();
+        long idleMs = cfg.getIdleTimeout().toMillis();
+        this.reaper = idleMs > 0 ? new IdleReaper(idleMs) : null;
     }
 
     public void start() throws IOException {
         serverSocket = new ServerSocket(port);
         running = true;
-        log.info("TCP server listening on {}", port);
+        log.info("TCP server listening on {}{}{}", port, pool instanceof ThreadPoolExecutor ? "" : " (virtual threads)",
+                requestPool != null ? ", pipelining up to " + maxInFlight + " requests per connection" : "");
         new Thread(() -> {
             while (running) {
                 try {
                     Socket s = serverSocket.accept();
                     s.setTcpNoDelay(true);
-                    pool.submit(new TcpClientHandler(s, userService, authService, boardService, taskService, push));
+                    if (!admission.tryOpenConnection()) {
+                        refuse(s);
+                        continue;
+                    }
+                    var handler = new TcpClientHandler(s, userService, authService, boardService, taskService, push).admission(admission);
+                    if (requestPool != null) handler.pipelined(requestPool.executor(), maxInFlight);
+                    if (compressionThreshold >= 0) handler.compression(new FrameCompression(compressionThreshold));
+                    if (reaper != null) handler.idleReaper(reaper, () -> { try { s.close(); } catch (IOException ignore) {} });
+                    try {
+                        pool.submit(handler);
+                    } catch (RejectedExecutionException e) {
+                        handler.onDisconnect();
+                        s.close();
+                    }
                 } catch (IOException e) {
                     if (running) log.error("Accept failed", e);
                 }
@@ -58,11 +92,21 @@ public class TcpServer implements AutoCloseable {
         }, "tcp-acceptor").start();
     }
 
+    /** Over the connection limit: tell the client to back off instead of starting another thread. */
+    private void refuse(Socket s) {
+        try (s) {
+            s.getOutputStream().write(refusal);
+        } catch (IOException ignore) {}
+    }
+
     @Override
     public void close() throws IOException {
         running = false;
         if (serverSocket != null && !serverSocket.isClosed()) serverSocket.close();
         pool.shutdown();
         try { pool.awaitTermination(3, TimeUnit.SECONDS); } catch (InterruptedException ignored) {}
+        if (requestPool != null) requestPool.close();
+        if (reaper != null) reaper.close();
+        log.info("TCP server stopped; overload rejections: {}; idle connections reaped: {}", admission, reaper != null ? reaper.reaped() : 0);
     }
 }
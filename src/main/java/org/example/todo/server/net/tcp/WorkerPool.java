@@ -0,0 +1,69 @@
+package org.example.todo.server.net.tcp;
+
+import org.example.todo.server.app.ServerConfig;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded request executor shared by the transports. Platform mode is a fixed pool with a bounded
+ * queue; virtual mode starts one virtual thread per request, capped by the same threads+queue budget.
+ * Either way {@link #executor()} throws {@link RejectedExecutionException} when the budget is used up.
+ */
+final class WorkerPool implements AutoCloseable {
+    private final ExecutorService pool;
+    private final Executor executor;
+    private final int limit;
+    private final boolean virtual;
+
+    WorkerPool(ServerConfig cfg) {
+        int threads = Math.max(1, cfg.getWorkerThreads());
+        int queue = Math.max(1, cfg.getWorkerQueueCapacity());
+        this.virtual = cfg.isVirtualRequestThreads();
+        if (virtual) {
+            this.limit = threads + queue;
+            this.pool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tcp-worker-", 0).factory());
+            this.executor = bounded(pool, limit);
+        } else {
+            AtomicInteger workerSeq = new AtomicInteger();
+            this.limit = threads;
+            this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queue),
+                    r -> new Thread(r, "tcp-worker-" + workerSeq.incrementAndGet()),
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.executor = pool;
+        }
+    }
+
+    private static Executor bounded(ExecutorService delegate, int limit) {
+        Semaphore permits = new Semaphore(limit);
+        return task -> {
+            if (!permits.tryAcquire()) throw new RejectedExecutionException("worker limit reached");
+            try {
+                delegate.execute(() -> {
+                    try { task.run(); } finally { permits.release(); }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        };
+    }
+
+    Executor executor() { return executor; }
+    int limit() { return limit; }
+    boolean isVirtual() { return virtual; }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try { pool.awaitTermination(3, TimeUnit.SECONDS); } catch (InterruptedException ignored) {}
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.todo.server.protocol;
+
+import com.google.gson.JsonObject;
+
+import java.util.List;
+
+public class BatchRequest {
+    public List<Item> items; // applied in order, in one transaction
+
+    public static class Item {
+        public String action;       // add_task | update_task_status | delete_task
+        public JsonObject payload;  // same payload the standalone action takes
+
+        public Item() {}
+        public Item(String action, JsonObject payload) { this.action = action; this.payload = payload; }
+    }
+}
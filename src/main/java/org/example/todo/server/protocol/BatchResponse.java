@@ -0,0 +1,25 @@
+package org.example.todo.server.protocol;
+
+import java.util.List;
+
+public class BatchResponse {
+    public List<Result> results; // one per request item, same order
+
+    public static class Result {
+        public String action;
+        public boolean ok;
+        public TaskView task;   // add_task / update_task_status
+        public String taskId;   // delete_task
+        public Error error;     // set when ok is false
+
+        public Result() {}
+        public Result(String action) { this.action = action; }
+    }
+
+    public static class Error {
+        public String code;
+        public String message;
+        public Error() {}
+        public Error(String code, String message) { this.code = code; this.message = message; }
+    }
+}
@@ -0,0 +1,343 @@
+package org.example.todo.server.protocol;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compact binary form of an envelope tree, negotiated per connection with the {@code hello} action.
+ * Frame bodies start with {@link #MAGIC}, which can never start UTF-8 JSON text, so either side can
+ * tell the two encodings apart per frame.
+ *
+ * <pre>
+ * body     = MAGIC type:u8 action:varint reqId:value token:value payload:value
+ * action   = 0 (none) | 1 string (unknown action) | 2+ index into ACTIONS
+ * value    = NULL | FALSE | TRUE | INT zigzag-varint | DOUBLE 8 bytes | STRING varint-len utf8
+ *          | UUID 16 bytes | OBJECT count (key value)* | ARRAY count value*
+ *          | TABLE rows cols key* (value|ABSENT)*   -- arrays of objects: keys written once
+ *          | ENUM_BASE+i                            -- one byte for status/priority/role/etc.
+ * key      = 0 string | 1+ index into KEYS
+ * </pre>
+ * Tables cover the task/board/member lists; ids are canonical UUID strings and go out as 16 raw bytes.
+ * The tables below are append-only: ids are positions, so never reorder or remove entries.
+ */
+public final class BinaryProtocol {
+    private BinaryProtocol() {}
+
+    public static final byte MAGIC = (byte) 0xB7;
+
+    private static final List<String> TYPES = List.of("request", "response", "error", "push");
+    private static final List<String> ACTIONS = List.of(
+            "hello", "register", "login", "logout",
+            "create_board", "list_boards", "add_user_to_board", "view_board", "delete_board",
+            "add_task", "list_tasks", "update_task_status", "delete_task",
+            "subscribe_board", "unsubscribe_board",
+            "batch", "ping",
+            "import_tasks", "export_tasks");
+    private static final List<String> KEYS = List.of(
+            "id", "boardId", "title", "description", "status", "priority", "dueDate", "createdAt",
+            "name", "ownerId", "role", "userId", "username", "joinedAt",
+            "tasks", "boards", "board", "members", "task", "member", "user",
+            "token", "expiresAt", "message", "error", "code",
+            "filters", "sort", "by", "order", "dueBefore", "dueAfter",
+            "taskId", "newStatus", "udpPort", "password", "encodings", "encoding",
+            "compression",
+            "items", "results", "action", "payload", "ok",
+            "retryAfterMs",
+            "limit", "cursor", "nextCursor",
+            "format", "importId", "data", "done", "imported", "rejected", "errors");
+    private static final List<String> ENUMS = List.of(
+            "todo", "inProgress", "done", "low", "medium", "high",
+            "TODO", "IN_PROGRESS", "DONE", "LOW", "MEDIUM", "HIGH",
+            "OWNER", "MEMBER", "asc", "desc", "createdAt", "due", "priority", "json", "binary",
+            "deflate",
+            "add_task", "update_task_status", "delete_task",
+            "pong",
+            "jsonl", "csv");
+
+    private static final Map<String, Integer> ACTION_IDS = indexOf(ACTIONS);
+    private static final Map<String, Integer> KEY_IDS = indexOf(KEYS);
+    private static final Map<String, Integer> ENUM_IDS = indexOf(ENUMS);
+
+    private static final int NULL = 0, FALSE = 1, TRUE = 2, INT = 3, DOUBLE = 4, STRING = 5,
+            UUID_BYTES = 6, OBJECT = 7, ARRAY = 8, TABLE = 9, ABSENT = 10, ENUM_BASE = 0x40;
+
+    public static boolean isBinary(byte[] frame) {
+        return isBinary(frame, 0, frame.length);
+    }
+
+    public static boolean isBinary(byte[] buf, int off, int len) {
+        return len > 0 && buf[off] == MAGIC;
+    }
+
+    public static byte[] encode(JsonObject env) {
+        ByteSink out = new ByteSink(256);
+        encode(env, out);
+        return Arrays.copyOf(out.array(), out.size());
+    }
+
+    /** Appends the encoded envelope to {@code out}, so callers can write straight into a reused frame buffer. */
+    public static void encode(JsonObject env, ByteSink out) {
+        out.put(MAGIC);
+        int type = TYPES.indexOf(str(env.get("type")));
+        out.put(type < 0 ? 0xFF : type);
+        String action = str(env.get("action"));
+        if (action == null) out.putVarint(0);
+        else {
+            Integer id = ACTION_IDS.get(action);
+            if (id != null) out.putVarint(id + 2);
+            else { out.putVarint(1); out.putUtf8WithLength(action); }
+        }
+        value(out, env.get("reqId"));
+        value(out, env.get("token"));
+        value(out, env.get("payload"));
+    }
+
+    public static JsonObject decode(byte[] frame) {
+        return decode(frame, 0, frame.length);
+    }
+
+    public static JsonObject decode(byte[] buf, int off, int len) {
+        In in = new In(buf, off, off + len);
+        if (in.u8() != (MAGIC & 0xFF)) throw new IllegalArgumentException("Not a binary frame");
+        JsonObject env = new JsonObject();
+        int type = in.u8();
+        if (type < TYPES.size()) env.addProperty("type", TYPES.get(type));
+        int action = (int) in.varint();
+        if (action == 1) env.addProperty("action", in.string());
+        else if (action >= 2) env.addProperty("action", ACTIONS.get(action - 2));
+        putIfPresent(env, "reqId", readValue(in));
+        putIfPresent(env, "token", readValue(in));
+        putIfPresent(env, "payload", readValue(in));
+        return env;
+    }
+
+    /** The reqId of a frame whose body does not decode, so the error reply can be matched; null if the header is broken too. */
+    public static String reqId(byte[] buf, int off, int len) {
+        try {
+            In in = new In(buf, off, off + len);
+            if (in.u8() != (MAGIC & 0xFF)) return null;
+            in.u8();
+            if (in.varint() == 1) in.string();
+            JsonElement reqId = readValue(in);
+            return reqId != null && reqId.isJsonPrimitive() ? reqId.getAsString() : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void putIfPresent(JsonObject o, String key, JsonElement v) {
+        if (v != null && !v.isJsonNull()) o.add(key, v);
+    }
+
+    private static void value(ByteSink out, JsonElement e) {
+        if (e == null || e.isJsonNull()) { out.put(NULL); return; }
+        if (e.isJsonPrimitive()) {
+            JsonPrimitive p = e.getAsJsonPrimitive();
+            if (p.isBoolean()) out.put(p.getAsBoolean() ? TRUE : FALSE);
+            else if (p.isNumber()) number(out, p);
+            else string(out, p.getAsString());
+        } else if (e.isJsonObject()) {
+            JsonObject o = e.getAsJsonObject();
+            out.put(OBJECT);
+            out.putVarint(o.size());
+            for (Entry<String, JsonElement> en : o.entrySet()) {
+                key(out, en.getKey());
+                value(out, en.getValue());
+            }
+        } else {
+            JsonArray a = e.getAsJsonArray();
+            if (a.size() > 1 && allObjects(a)) { table(out, a); return; }
+            out.put(ARRAY);
+            out.putVarint(a.size());
+            for (JsonElement x : a) value(out, x);
+        }
+    }
+
+    private static void number(ByteSink out, JsonPrimitive p) {
+        String text = p.getAsString();
+        if (isIntegral(text)) {
+            try {
+                long l = Long.parseLong(text);
+                out.put(INT);
+                out.putVarint((l << 1) ^ (l >> 63));
+                return;
+            } catch (NumberFormatException ignore) {}
+        }
+        out.put(DOUBLE);
+        out.putLong(Double.doubleToLongBits(p.getAsDouble()));
+    }
+
+    private static void string(ByteSink out, String s) {
+        Integer en = ENUM_IDS.get(s);
+        if (en != null) { out.put(ENUM_BASE + en); return; }
+        if (isCanonicalUuid(s)) {
+            UUID u = UUID.fromString(s);
+            out.put(UUID_BYTES);
+            out.putLong(u.getMostSignificantBits());
+            out.putLong(u.getLeastSignificantBits());
+            return;
+        }
+        out.put(STRING);
+        out.putUtf8WithLength(s);
+    }
+
+    private static void table(ByteSink out, JsonArray rows) {
+        Set<String> cols = new LinkedHashSet<>();
+        for (JsonElement r : rows) cols.addAll(r.getAsJsonObject().keySet());
+        out.put(TABLE);
+        out.putVarint(rows.size());
+        out.putVarint(cols.size());
+        for (String c : cols) key(out, c);
+        for (JsonElement r : rows) {
+            JsonObject o = r.getAsJsonObject();
+            for (String c : cols) {
+                if (o.has(c)) value(out, o.get(c)); else out.put(ABSENT);
+            }
+        }
+    }
+
+    private static void key(ByteSink out, String k) {
+        Integer id = KEY_IDS.get(k);
+        if (id != null) out.putVarint(id + 1);
+        else { out.putVarint(0); out.putUtf8WithLength(k); }
+    }
+
+    private static JsonElement readValue(In in) {
+        int tag = in.u8();
+        if (tag >= ENUM_BASE) return new JsonPrimitive(ENUMS.get(tag - ENUM_BASE));
+        return switch (tag) {
+            case NULL -> JsonNull.INSTANCE;
+            case ABSENT -> null;
+            case FALSE -> new JsonPrimitive(false);
+            case TRUE -> new JsonPrimitive(true);
+            case INT -> { long z = in.varint(); yield new JsonPrimitive((z >>> 1) ^ -(z & 1)); }
+            case DOUBLE -> new JsonPrimitive(Double.longBitsToDouble(in.i64()));
+            case STRING -> new JsonPrimitive(in.string());
+            case UUID_BYTES -> new JsonPrimitive(new UUID(in.i64(), in.i64()).toString());
+            case OBJECT -> readObject(in);
+            case ARRAY -> readArray(in);
+            case TABLE -> readTable(in);
+            default -> throw new IllegalArgumentException("Unknown value tag: " + tag);
+        };
+    }
+
+    private static JsonObject readObject(In in) {
+        int n = (int) in.varint();
+        JsonObject o = new JsonObject();
+        for (int i = 0; i < n; i++) {
+            String k = readKey(in);
+            o.add(k, readValue(in));
+        }
+        return o;
+    }
+
+    private static JsonArray readArray(In in) {
+        int n = (int) in.varint();
+        JsonArray a = new JsonArray(n);
+        for (int i = 0; i < n; i++) a.add(readValue(in));
+        return a;
+    }
+
+    private static JsonArray readTable(In in) {
+        int rows = (int) in.varint();
+        String[] cols = new String[(int) in.varint()];
+        for (int i = 0; i < cols.length; i++) cols[i] = readKey(in);
+        JsonArray a = new JsonArray(rows);
+        for (int r = 0; r < rows; r++) {
+            JsonObject o = new JsonObject();
+            for (String c : cols) {
+                JsonElement v = readValue(in);
+                if (v != null) o.add(c, v);
+            }
+            a.add(o);
+        }
+        return a;
+    }
+
+    private static String readKey(In in) {
+        int id = (int) in.varint();
+        return id == 0 ? in.string() : KEYS.get(id - 1);
+    }
+
+    private static boolean allObjects(JsonArray a) {
+        for (JsonElement e : a) if (!e.isJsonObject()) return false;
+        return true;
+    }
+
+    private static boolean isIntegral(String s) {
+        int i = s.startsWith("-") ? 1 : 0;
+        if (i == s.length()) return false;
+        for (; i < s.length(); i++) if (s.charAt(i) < '0' || s.charAt(i) > '9') return false;
+        return true;
+    }
+
+    private static boolean isCanonicalUuid(String s) {
+        if (s.length() != 36) return false;
+        for (int i = 0; i < 36; i++) {
+            char c = s.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) { if (c != '-') return false; }
+            else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) return false;
+        }
+        return true;
+    }
+
+    private static String str(JsonElement e) {
+        return e == null || e.isJsonNull() ? null : e.getAsString();
+    }
+
+    private static Map<String, Integer> indexOf(List<String> list) {
+        Map<String, Integer> m = new HashMap<>();
+        for (int i = 0; i < list.size(); i++) m.put(list.get(i), i);
+        return m;
+    }
+
+    private static final class In {
+        private final byte[] buf;
+        private final int end;
+        private int pos;
+
+        In(byte[] buf, int pos, int end) { this.buf = buf; this.pos = pos; this.end = end; }
+
+        int u8() {
+            if (pos >= end) throw new IllegalArgumentException("Truncated binary frame");
+            return buf[pos++] & 0xFF;
+        }
+
+        long varint() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = u8();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        long i64() {
+            long v = 0;
+            for (int i = 0; i < 8; i++) v = (v << 8) | u8();
+            return v;
+        }
+
+        String string() {
+            int n = (int) varint();
+            if (n < 0 || pos + n > end) throw new IllegalArgumentException("Truncated binary frame");
+            String s = new String(buf, pos, n, StandardCharsets.UTF_8);
+            pos += n;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.todo.server.protocol;
+
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that is also a {@link Writer}: characters are encoded to UTF-8 as they are
+ * written, so Gson can serialize straight into frame bytes without an intermediate String.
+ * Meant to be owned by one connection and reused; call {@link #trim} after large frames.
+ */
+public final class ByteSink extends Writer {
+    private final int initialCapacity;
+    private byte[] buf;
+    private int len;
+    private char pendingHigh;
+
+    public ByteSink(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.buf = new byte[initialCapacity];
+    }
+
+    public void reset() { len = 0; pendingHigh = 0; }
+    public int size() { return len; }
+    public byte[] array() { return buf; }
+    public int capacity() { return buf.length; }
+
+    /** Drops an oversized backing array so one big frame does not pin memory for the connection's lifetime. */
+    public void trim(int maxRetained) {
+        if (len == 0 && buf.length > maxRetained) buf = new byte[initialCapacity];
+    }
+
+    /** Rolls back to an earlier {@link #size()}, e.g. to drop a half-encoded frame. */
+    public void truncate(int size) { len = size; pendingHigh = 0; }
+
+    /** Drops the first {@code n} bytes (already sent) and moves the rest to the front. */
+    public void discardFront(int n) {
+        System.arraycopy(buf, n, buf, 0, len - n);
+        len -= n;
+    }
+
+    private void ensure(int n) {
+        if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+    }
+
+    /** Makes room for {@code n} more bytes; with {@link #skip} lets a Deflater/Inflater write into {@link #array()} directly. */
+    public int ensureFree(int n) {
+        ensure(n);
+        return buf.length - len;
+    }
+
+    public void skip(int n) { len += n; }
+
+    public void put(int b) { ensure(1); buf[len++] = (byte) b; }
+
+    public void put(byte[] b, int off, int n) {
+        ensure(n);
+        System.arraycopy(b, off, buf, len, n);
+        len += n;
+    }
+
+    public void putInt(int v) {
+        ensure(4);
+        putIntAt(len, v);
+        len += 4;
+    }
+
+    public void putIntAt(int pos, int v) {
+        buf[pos] = (byte) (v >>> 24); buf[pos + 1] = (byte) (v >>> 16); buf[pos + 2] = (byte) (v >>> 8); buf[pos + 3] = (byte) v;
+    }
+
+    public void putLong(long v) {
+        ensure(8);
+        for (int i = 7; i >= 0; i--) buf[len++] = (byte) (v >>> (i * 8));
+    }
+
+    public void putVarint(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) { buf[len++] = (byte) ((v & 0x7F) | 0x80); v >>>= 7; }
+        buf[len++] = (byte) v;
+    }
+
+    /** Varint byte length followed by the UTF-8 bytes of {@code s}. */
+    public void putUtf8WithLength(String s) {
+        putVarint(utf8Length(s));
+        write(s, 0, s.length());
+    }
+
+    public static int utf8Length(CharSequence s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) n += 1;
+            else if (c < 0x800) n += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) { n += 4; i++; }
+            else n += 3;
+        }
+        return n;
+    }
+
+    @Override
+    public void write(int c) { writeChar((char) c); }
+
+    @Override
+    public void write(char[] cbuf, int off, int n) {
+        ensure(n);
+        for (int i = off; i < off + n; i++) writeChar(cbuf[i]);
+    }
+
+    @Override
+    public void write(String s, int off, int n) {
+        ensure(n);
+        for (int i = off; i < off + n; i++) writeChar(s.charAt(i));
+    }
+
+    private void writeChar(char c) {
+        if (pendingHigh != 0) {
+            char high = pendingHigh;
+            pendingHigh = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                ensure(4);
+                buf[len++] = (byte) (0xF0 | (cp >> 18));
+                buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (cp & 0x3F));
+                return;
+            }
+            put('?'); // unpaired surrogate, same replacement String.getBytes uses
+        }
+        if (c < 0x80) {
+            ensure(1);
+            buf[len++] = (byte) c;
+        } else if (c < 0x800) {
+            ensure(2);
+            buf[len++] = (byte) (0xC0 | (c >> 6));
+            buf[len++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHigh = c;
+        } else if (Character.isLowSurrogate(c)) {
+            put('?');
+        } else {
+            ensure(3);
+            buf[len++] = (byte) (0xE0 | (c >> 12));
+            buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[len++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (pendingHigh != 0) { pendingHigh = 0; put('?'); }
+    }
+
+    @Override
+    public void close() { flush(); }
+}
@@ -9,4 +9,6 @@ public class Envelope {
     public String action;
     public String token;
     public JsonObject payload;
+    /** Payload bound to its request/response class. Not part of the Gson mapping; written in place of {@link #payload}. */
+    public transient Object body;
 }
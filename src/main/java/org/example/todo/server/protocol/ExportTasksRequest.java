@@ -0,0 +1,8 @@
+package org.example.todo.server.protocol;
+
+public class ExportTasksRequest {
+    public String boardId;
+    public String format;   // jsonl (default) | csv
+    public String cursor;   // nextCursor of the previous chunk
+    public Integer limit;   // tasks per chunk
+}
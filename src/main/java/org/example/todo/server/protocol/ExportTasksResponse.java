@@ -0,0 +1,6 @@
+package org.example.todo.server.protocol;
+
+public class ExportTasksResponse {
+    public String data;       // CSV chunks after the first have no header
+    public String nextCursor; // null on the last chunk
+}
@@ -0,0 +1,97 @@
+package org.example.todo.server.protocol;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Per-connection deflate state, negotiated with {@code hello}. A compressed frame has {@link #FLAG}
+ * set in its length header. Each direction is one raw deflate stream that lives as long as the
+ * connection: every compressed frame ends with a sync flush, so it can be inflated on arrival while
+ * the 32 KB window carries over and repeated keys/ids from earlier frames compress to back-references.
+ * Frames below the threshold go out uncompressed and do not touch the stream.
+ *
+ * <p>Outbound calls must be serialized by the caller's write lock, since frame order is stream order;
+ * inbound calls likewise one at a time in arrival order, from the reading thread or the NIO decode task.
+ */
+public final class FrameCompression {
+    public static final String DEFLATE = "deflate";
+    public static final int FLAG = 0x80000000;
+    private static final int RETAINED_BUFFER = 256 * 1024;
+
+    private final int threshold;
+    private volatile boolean enabled;
+    private Deflater deflater;
+    private Inflater inflater;
+    private final ByteSink deflated = new ByteSink(4 * 1024);
+    private final ByteSink inflated = new ByteSink(4 * 1024);
+    private volatile boolean ended;
+
+    public FrameCompression(int threshold) {
+        this.threshold = Math.max(0, threshold);
+    }
+
+    /** Starts compressing outbound frames; call once the peer has agreed to deflate. */
+    public void enable() { enabled = true; }
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Compresses {@code sink[bodyStart, size)} in place when compression is on and the body reaches
+     * the threshold. Returns whether the frame must carry {@link #FLAG}.
+     */
+    public boolean compress(ByteSink sink, int bodyStart) {
+        int len = sink.size() - bodyStart;
+        if (!enabled || len < threshold) return false;
+        synchronized (this) {
+            if (ended) return false;
+            if (deflater == null) deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            deflated.reset();
+            deflated.trim(RETAINED_BUFFER);
+            deflater.setInput(sink.array(), bodyStart, len);
+            int free, n;
+            do {
+                free = deflated.ensureFree(Math.max(512, len / 4));
+                n = deflater.deflate(deflated.array(), deflated.size(), free, Deflater.SYNC_FLUSH);
+                deflated.skip(n);
+            } while (n == free);
+            sink.truncate(bodyStart);
+            sink.put(deflated.array(), 0, deflated.size());
+            return true;
+        }
+    }
+
+    /** Inflates one flagged frame body; the result is valid until the next call. */
+    public ByteSink inflate(byte[] buf, int off, int len, int maxLen) throws IOException {
+        synchronized (inflated) {
+            if (ended) throw new IOException("Connection closed");
+            if (inflater == null) inflater = new Inflater(true);
+            inflated.reset();
+            inflated.trim(RETAINED_BUFFER);
+            inflater.setInput(buf, off, len);
+            try {
+                int free, n;
+                do {
+                    free = inflated.ensureFree(Math.max(1024, Math.min(len * 4, maxLen)));
+                    n = inflater.inflate(inflated.array(), inflated.size(), free);
+                    inflated.skip(n);
+                    if (inflated.size() > maxLen) throw new IOException("Inflated frame exceeds " + maxLen + " bytes");
+                } while (n == free || (!inflater.needsInput() && !inflater.finished()));
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt compressed frame", e);
+            }
+            return inflated;
+        }
+    }
+
+    /** Frees the native zlib state; later frames go out uncompressed. */
+    public void end() {
+        synchronized (this) {
+            ended = true;
+            if (deflater != null) deflater.end();
+        }
+        synchronized (inflated) {
+            if (inflater != null) inflater.end();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package org.example.todo.server.protocol;
+
+public class HelloRequest {
+    public String[] encodings; // preferred first, e.g. ["binary","json"]
+    public String[] compression; // e.g. ["deflate"]; omitted = frames stay uncompressed
+}
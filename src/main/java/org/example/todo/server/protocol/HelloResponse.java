@@ -0,0 +1,8 @@
+package org.example.todo.server.protocol;
+
+public class HelloResponse {
+    public String encoding; // json | binary
+    public String compression; // deflate, or null when not agreed
+    public HelloResponse() {}
+    public HelloResponse(String encoding, String compression) { this.encoding = encoding; this.compression = compression; }
+}
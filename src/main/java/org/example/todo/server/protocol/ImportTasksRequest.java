@@ -0,0 +1,9 @@
+package org.example.todo.server.protocol;
+
+public class ImportTasksRequest {
+    public String boardId;
+    public String format;    // jsonl (default) | csv
+    public String importId;  // null on the first chunk, then the id the server returned
+    public String data;      // next part of the text; records may span chunks
+    public Boolean done;     // true on the last chunk
+}
@@ -0,0 +1,11 @@
+package org.example.todo.server.protocol;
+
+import java.util.List;
+
+public class ImportTasksResponse {
+    public String importId;
+    public int imported;        // tasks written so far
+    public int rejected;        // records skipped
+    public List<String> errors; // first few rejections, "line N: reason"
+    public boolean done;
+}
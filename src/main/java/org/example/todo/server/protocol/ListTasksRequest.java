@@ -4,6 +4,8 @@ public class ListTasksRequest {
     public String boardId;
     public Filters filters;
     public Sort sort;
+    public Integer limit;  // page size; absent with no cursor = all tasks
+    public String cursor;  // nextCursor of the previous page
 
     public static class Filters {
         public String[] status;   // e.g., ["todo","inProgress"]
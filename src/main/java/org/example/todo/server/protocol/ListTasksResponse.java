@@ -4,4 +4,5 @@ import java.util.List;
 
 public class ListTasksResponse {
     public List<TaskView> tasks;
+    public String nextCursor; // null on the last page
 }
@@ -0,0 +1,68 @@
+package org.example.todo.server.protocol;
+
+import java.io.Reader;
+
+/**
+ * Reader that decodes UTF-8 straight out of a byte range, so a frame body can feed a JsonReader
+ * without first being copied into a String. Owned by one connection and re-pointed per frame with
+ * {@link #reset}; malformed sequences become U+FFFD like {@code new String(bytes, UTF_8)} does.
+ */
+public final class Utf8Source extends Reader {
+    private byte[] buf;
+    private int pos, end;
+    private char pendingLow;
+
+    public Utf8Source reset(byte[] buf, int off, int len) {
+        this.buf = buf;
+        this.pos = off;
+        this.end = off + len;
+        this.pendingLow = 0;
+        return this;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0) return 0;
+        int n = 0;
+        if (pendingLow != 0) {
+            cbuf[off + n++] = pendingLow;
+            pendingLow = 0;
+        }
+        while (n < len && pos < end) {
+            int b = buf[pos] & 0xFF;
+            if (b < 0x80) {
+                cbuf[off + n++] = (char) b;
+                pos++;
+                continue;
+            }
+            int need, cp;
+            if ((b & 0xE0) == 0xC0) { need = 1; cp = b & 0x1F; }
+            else if ((b & 0xF0) == 0xE0) { need = 2; cp = b & 0x0F; }
+            else if ((b & 0xF8) == 0xF0) { need = 3; cp = b & 0x07; }
+            else { cbuf[off + n++] = '\uFFFD'; pos++; continue; }
+            int i = 1;
+            for (; i <= need && pos + i < end; i++) {
+                int c = buf[pos + i] & 0xFF;
+                if ((c & 0xC0) != 0x80) break;
+                cp = (cp << 6) | (c & 0x3F);
+            }
+            if (i <= need) {
+                cbuf[off + n++] = '\uFFFD';
+                pos += i;
+                continue;
+            }
+            pos += need + 1;
+            if (cp >= 0x10000) {
+                cbuf[off + n++] = Character.highSurrogate(cp);
+                if (n < len) cbuf[off + n++] = Character.lowSurrogate(cp);
+                else pendingLow = Character.lowSurrogate(cp);
+            } else {
+                cbuf[off + n++] = (char) cp;
+            }
+        }
+        return n == 0 ? -1 : n;
+    }
+
+    @Override
+    public void close() { buf = null; }
+}
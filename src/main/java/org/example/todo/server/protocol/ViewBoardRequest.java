@@ -2,4 +2,7 @@ package org.example.todo.server.protocol;
 
 public class ViewBoardRequest {
     public String boardId;
+    public Integer limit;  // with it, the response holds the first page of list_tasks as well
+    public ListTasksRequest.Filters filters;
+    public ListTasksRequest.Sort sort;
 }
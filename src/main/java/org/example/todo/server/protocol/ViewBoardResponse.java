@@ -5,4 +5,6 @@ import java.util.List;
 public class ViewBoardResponse {
     public BoardSummary board;
     public List<BoardMemberView> members;
+    public List<TaskView> tasks;  // only when the request had a limit
+    public String nextCursor;
 }
@@ -11,4 +11,6 @@ public class PushMessage {
 
     public JsonElement task;
     public JsonElement member;
+    public JsonElement tasks;          // tasks_changed
+    public JsonElement deletedTaskIds; // tasks_changed
 }
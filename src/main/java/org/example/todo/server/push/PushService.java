@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import java.net.InetAddress;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
 
 public class PushService {
     private static final Logger log = LoggerFactory.getLogger(PushService.class);
@@ -58,6 +59,21 @@ public class PushService {
         fanout(boardId, p);
     }
 
+    /** One message for a whole batch: tasks added/updated on the board, and ids of tasks deleted from it. */
+    public void pushTasksChanged(String actorUserId, String boardId, List<TaskView> tasks, List<String> deletedTaskIds) {
+        JsonObject p = base("tasks_changed", actorUserId, boardId);
+        p.add("tasks", GSON.toJsonTree(tasks));
+        p.add("deletedTaskIds", GSON.toJsonTree(deletedTaskIds));
+        fanout(boardId, p);
+    }
+
+    /** One message for a bulk import instead of one per task; clients reload the board. */
+    public void pushTasksImported(String actorUserId, String boardId, int count) {
+        JsonObject p = base("tasks_imported", actorUserId, boardId);
+        p.addProperty("count", count);
+        fanout(boardId, p);
+    }
+
     public void pushMemberAdded(String actorUserId, String boardId, BoardMemberView mv) {
         JsonObject p = base("member_added", actorUserId, boardId);
         p.add("member", GSON.toJsonTree(mv));
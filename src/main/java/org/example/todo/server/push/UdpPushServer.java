@@ -7,12 +7,15 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class UdpPushServer implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(UdpPushServer.class);
 
     private final int port;
     private DatagramSocket socket;
+    // A lock instead of synchronized so virtual threads blocked on send do not pin their carrier.
+    private final ReentrantLock sendLock = new ReentrantLock();
 
     public UdpPushServer(int port) throws Exception {
         this.port = port;
@@ -20,17 +23,20 @@ public class UdpPushServer implements AutoCloseable {
         log.info("UDP push server bound on {}", port);
     }
 
-    public synchronized void sendJson(InetAddress addr, int clientPort, String json) {
+    public void sendJson(InetAddress addr, int clientPort, String json) {
         byte[] data = json.getBytes(StandardCharsets.UTF_8);
         if (data.length > 60_000) {
             log.warn("Push too large: {} bytes. Dropping.", data.length);
             return;
         }
+        sendLock.lock();
         try {
             DatagramPacket packet = new DatagramPacket(data, data.length, addr, clientPort);
             socket.send(packet);
         } catch (Exception e) {
             log.warn("UDP send failed to {}:{} - {}", addr, clientPort, e.toString());
+        } finally {
+            sendLock.unlock();
         }
     }
 
@@ -18,13 +18,16 @@ public class BoardRepository {
 
     public void insert(Board b) throws SQLException {
         String sql = "INSERT INTO boards(id, name, owner_id, created_at) VALUES(?,?,?,?)";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, b.getId());
-            ps.setString(2, b.getName());
-            ps.setString(3, b.getOwnerId());
-            ps.setLong(4, b.getCreatedAt());
-            ps.executeUpdate();
-        }
+        dsp.write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, b.getId());
+                ps.setString(2, b.getName());
+                ps.setString(3, b.getOwnerId());
+                ps.setLong(4, b.getCreatedAt());
+                ps.executeUpdate();
+            }
+            return null;
+        });
     }
 
     public Optional<Board> findById(String id) throws SQLException {
@@ -51,10 +54,13 @@ public class BoardRepository {
     }
     public void delete(String id) throws SQLException {
         String sql = "DELETE FROM boards WHERE id = ?";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, id);
-            ps.executeUpdate();
-        }
+        dsp.write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, id);
+                ps.executeUpdate();
+            }
+            return null;
+        });
     }
     private Board map(ResultSet rs) throws SQLException {
         return new Board(
@@ -18,13 +18,16 @@ public class MembershipRepository {
 
     public void addMember(String boardId, String userId, String role, long createdAt) throws SQLException {
         String sql = "INSERT OR IGNORE INTO board_members(board_id, user_id, role, created_at) VALUES(?,?,?,?)";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, boardId);
-            ps.setString(2, userId);
-            ps.setString(3, role);
-            ps.setLong(4, createdAt);
-            ps.executeUpdate();
-        }
+        dsp.write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, boardId);
+                ps.setString(2, userId);
+                ps.setString(3, role);
+                ps.setLong(4, createdAt);
+                ps.executeUpdate();
+            }
+            return null;
+        });
     }
 
     public Optional<String> getRole(String boardId, String userId) throws SQLException {
@@ -0,0 +1,88 @@
+package org.example.todo.server.repository;
+
+import org.example.todo.server.model.Session;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sessions by {@code jti}, so a request with a hot token needs no query. An entry lives until its session expires;
+ * a {@code jti} without a session row is cached as absent for {@value #NEGATIVE_TTL_MS} ms. Past {@code capacity}
+ * entries, expired ones are dropped first, then arbitrary ones, down to 90% of it.
+ *
+ * <p>A lookup may read the row just before a logout deletes it. {@link #revoke} and {@link #putLoaded} both run
+ * inside {@code compute} on the entry and revoking bumps a generation, so a lookup that started before a revocation
+ * never caches what it read and a logged-out token stays rejected.
+ */
+final class SessionCache {
+    static final long NEGATIVE_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    record Entry(Session session, long expiresAt) {}
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong revocations = new AtomicLong();
+    private final Object evictLock = new Object();
+    final LongAdder hits = new LongAdder();
+    final LongAdder negativeHits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+
+    SessionCache(int capacity) { this.capacity = capacity; }
+
+    /** The live entry of {@code jti}, null on a miss; an entry without a session means there is none. */
+    Entry get(String jti, long now) {
+        Entry e = entries.get(jti);
+        if (e != null && e.expiresAt() <= now) {
+            entries.remove(jti, e);
+            e = null;
+        }
+        (e == null ? misses : e.session() == null ? negativeHits : hits).increment();
+        return e;
+    }
+
+    /** Read before a lookup goes to the database, for {@link #putLoaded}. */
+    long generation() { return revocations.get(); }
+
+    /** Caches what a lookup that read {@code generation} found, unless a session was revoked since. */
+    void putLoaded(String jti, Session s, long generation, long now) {
+        Entry e = s != null ? new Entry(s, s.getExpiresAt()) : new Entry(null, now + NEGATIVE_TTL_MS);
+        if (e.expiresAt() <= now) return;
+        entries.compute(jti, (k, old) -> revocations.get() == generation ? e : old);
+        evictOverflow(now);
+    }
+
+    void put(Session s, long now) {
+        if (s.getExpiresAt() <= now) return;
+        entries.put(s.getJti(), new Entry(s, s.getExpiresAt()));
+        evictOverflow(now);
+    }
+
+    /** Call once the row is gone. */
+    void revoke(String jti, long now) {
+        entries.compute(jti, (k, old) -> {
+            revocations.incrementAndGet();
+            return new Entry(null, now + NEGATIVE_TTL_MS);
+        });
+        evictOverflow(now);
+    }
+
+    int size() { return entries.size(); }
+
+    private void evictOverflow(long now) {
+        if (entries.size() <= capacity) return;
+        synchronized (evictLock) {
+            if (entries.size() <= capacity) return;
+            entries.values().removeIf(e -> e.expiresAt() <= now);
+            int target = capacity - capacity / 10;
+            for (Iterator<Entry> it = entries.values().iterator(); entries.size() > target && it.hasNext(); ) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+}
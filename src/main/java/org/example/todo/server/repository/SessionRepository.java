@@ -9,21 +9,43 @@ import java.util.Optional;
 
 public class SessionRepository {
     private final DataSourceProvider dsp;
+    private final SessionCache cache; // null = off
 
-    public SessionRepository(DataSourceProvider dsp) { this.dsp = dsp; }
+    public SessionRepository(DataSourceProvider dsp) { this(dsp, 0); }
+
+    /** With {@code cacheCapacity > 0}, lookups are served from a {@link SessionCache} that this class keeps current. */
+    public SessionRepository(DataSourceProvider dsp, int cacheCapacity) {
+        this.dsp = dsp;
+        this.cache = cacheCapacity > 0 ? new SessionCache(cacheCapacity) : null;
+    }
 
     public void insert(Session s) throws SQLException {
         String sql = "INSERT INTO sessions(jti, user_id, expires_at, created_at) VALUES(?,?,?,?)";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, s.getJti());
-            ps.setString(2, s.getUserId());
-            ps.setLong(3, s.getExpiresAt());
-            ps.setLong(4, s.getCreatedAt());
-            ps.executeUpdate();
-        }
+        dsp.write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, s.getJti());
+                ps.setString(2, s.getUserId());
+                ps.setLong(3, s.getExpiresAt());
+                ps.setLong(4, s.getCreatedAt());
+                ps.executeUpdate();
+            }
+            return null;
+        });
+        if (cache != null) cache.put(s, System.currentTimeMillis());
     }
 
     public Optional<Session> findByJti(String jti) throws SQLException {
+        if (cache == null) return load(jti);
+        long now = System.currentTimeMillis();
+        SessionCache.Entry e = cache.get(jti, now);
+        if (e != null) return Optional.ofNullable(e.session());
+        long generation = cache.generation();
+        Optional<Session> s = load(jti);
+        cache.putLoaded(jti, s.orElse(null), generation, now);
+        return s;
+    }
+
+    private Optional<Session> load(String jti) throws SQLException {
         String sql = "SELECT jti, user_id, expires_at, created_at FROM sessions WHERE jti = ?";
         try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, jti);
@@ -36,17 +58,44 @@ public class SessionRepository {
 
     public void deleteByJti(String jti) throws SQLException {
         String sql = "DELETE FROM sessions WHERE jti = ?";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, jti);
-            ps.executeUpdate();
-        }
+        dsp.write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, jti);
+                ps.executeUpdate();
+            }
+            return null;
+        });
+        if (cache != null) cache.revoke(jti, System.currentTimeMillis());
     }
 
-    public void deleteExpired(long now) throws SQLException {
-        String sql = "DELETE FROM sessions WHERE expires_at < ?";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setLong(1, now);
-            ps.executeUpdate();
+    /** Deletes up to {@code limit} sessions that expired before {@code now}; returns how many. */
+    public int deleteExpired(long now, int limit) throws SQLException {
+        String sql = "DELETE FROM sessions WHERE rowid IN (SELECT rowid FROM sessions WHERE expires_at < ? LIMIT ?)";
+        return dsp.write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setLong(1, now);
+                ps.setInt(2, limit);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /** Counters of the session cache since start; all zero when it is off. */
+    public CacheStats cacheStats() {
+        if (cache == null) return new CacheStats(0, 0, 0, 0, 0);
+        return new CacheStats(cache.hits.sum(), cache.negativeHits.sum(), cache.misses.sum(), cache.evictions.sum(), cache.size());
+    }
+
+    public record CacheStats(long hits, long negativeHits, long misses, long evictions, int size) {
+        public double hitRate() {
+            long lookups = hits + negativeHits + misses;
+            return lookups == 0 ? 0 : (double) (hits + negativeHits) / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d negativeHits=%d misses=%d hitRate=%.3f evictions=%d size=%d",
+                    hits, negativeHits, misses, hitRate(), evictions, size);
         }
     }
 
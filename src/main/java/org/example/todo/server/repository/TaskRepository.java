@@ -12,23 +12,48 @@ public class TaskRepository {
     public TaskRepository(DataSourceProvider dsp) { this.dsp = dsp; }
 
     public void insert(Task t) throws SQLException {
-        String sql = "INSERT INTO tasks(id, board_id, title, description, status, priority, due_date, created_at) VALUES(?,?,?,?,?,?,?,?)";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, t.getId());
-            ps.setString(2, t.getBoardId());
-            ps.setString(3, t.getTitle());
-            ps.setString(4, t.getDescription());
-            ps.setString(5, t.getStatus());
-            ps.setString(6, t.getPriority());
-            if (t.getDueDate() == null) ps.setNull(7, Types.BIGINT); else ps.setLong(7, t.getDueDate());
-            ps.setLong(8, t.getCreatedAt());
+        dsp.write(c -> { insert(c, t); return null; });
+    }
+
+    private static final String INSERT_SQL = "INSERT INTO tasks(id, board_id, title, description, status, priority, due_date, created_at) VALUES(?,?,?,?,?,?,?,?)";
+
+    /** Same as {@link #insert(Task)} on the caller's connection, e.g. inside its transaction. */
+    public void insert(Connection c, Task t) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+            bindInsert(ps, t);
             ps.executeUpdate();
         }
     }
 
+    /** Inserts {@code ts} as one JDBC batch on the caller's connection. */
+    public void insertAll(Connection c, List<Task> ts) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+            for (Task t : ts) {
+                bindInsert(ps, t);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void bindInsert(PreparedStatement ps, Task t) throws SQLException {
+        ps.setString(1, t.getId());
+        ps.setString(2, t.getBoardId());
+        ps.setString(3, t.getTitle());
+        ps.setString(4, t.getDescription());
+        ps.setString(5, t.getStatus());
+        ps.setString(6, t.getPriority());
+        if (t.getDueDate() == null) ps.setNull(7, Types.BIGINT); else ps.setLong(7, t.getDueDate());
+        ps.setLong(8, t.getCreatedAt());
+    }
+
     public Optional<Task> findByIdAndBoard(String id, String boardId) throws SQLException {
+        try (Connection c = dsp.getConnection()) { return findByIdAndBoard(c, id, boardId); }
+    }
+
+    public Optional<Task> findByIdAndBoard(Connection c, String id, String boardId) throws SQLException {
         String sql = "SELECT id, board_id, title, description, status, priority, due_date, created_at FROM tasks WHERE id=? AND board_id=?";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, id); ps.setString(2, boardId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) return Optional.of(map(rs));
@@ -37,6 +62,41 @@ public class TaskRepository {
         }
     }
 
+    private static final List<String> ALL_STATUSES = List.of("TODO", "IN_PROGRESS", "DONE");
+    private static final List<String> ALL_PRIORITIES = List.of("LOW", "MEDIUM", "HIGH");
+
+    /** Position after the last row of a page: the sort key of that row, then the tie-breakers. */
+    public record Keyset(long key, long createdAt, String id) {}
+
+    /**
+     * The SQL depends only on whether a due range is given, on the sort and on whether a page starts after a
+     * {@link Keyset}, 24 shapes in all, so each one stays prepared in the connection's statement cache. Each sort
+     * walks its own index, see {@code SchemaMigrator}; {@code due_key} is {@code due_date} with missing dates as
+     * {@link Long#MIN_VALUE}, so they sort first ascending, as SQLite sorts NULL, but compare like any other key. The
+     * status and priority lists always have three slots: a missing filter binds every value and a shorter list
+     * repeats its last value.
+     */
+    private static final String[] LIST_SQL = new String[24];
+    static {
+        String[] keys = {"created_at", "due_key", "priority_rank"};
+        for (int due = 0; due < 2; due++) {
+            for (int by = 0; by < 3; by++) {
+                for (int desc = 0; desc < 2; desc++) {
+                    for (int after = 0; after < 2; after++) {
+                        String dir = desc == 1 ? " DESC" : " ASC";
+                        String tuple = by == 0 ? "(created_at, id)" : "(" + keys[by] + ", created_at, id)";
+                        String orderBy = by == 0 ? "created_at" + dir + ", id" + dir : keys[by] + dir + ", created_at" + dir + ", id" + dir;
+                        LIST_SQL[shape(due == 1, by, desc == 1, after == 1)] = "SELECT id, board_id, title, description, status, priority, due_date, created_at FROM tasks"
+                                + " WHERE board_id = ? AND status IN (?,?,?) AND priority IN (?,?,?)"
+                                + (due == 1 ? " AND due_date IS NOT NULL AND due_key >= ? AND due_key < ?" : "")
+                                + (after == 1 ? " AND " + tuple + (desc == 1 ? " < " : " > ") + (by == 0 ? "(?, ?)" : "(?, ?, ?)") : "")
+                                + " ORDER BY " + orderBy + " LIMIT ?";
+                    }
+                }
+            }
+        }
+    }
+
     public List<Task> listByBoard(String boardId,
                                   Set<String> statuses,
                                   Set<String> priorities,
@@ -44,40 +104,41 @@ public class TaskRepository {
                                   Long dueAfter,
                                   String sortBy,
                                   String order) throws SQLException {
-        StringBuilder sb = new StringBuilder("SELECT id, board_id, title, description, status, priority, due_date, created_at FROM tasks WHERE board_id = ?");
-        List<Object> params = new ArrayList<>(); params.add(boardId);
-        if (statuses != null && !statuses.isEmpty()) {
-            sb.append(" AND status IN ("); appendPlaceholders(sb, statuses.size()); sb.append(")"); params.addAll(statuses);
-        }
-        if (priorities != null && !priorities.isEmpty()) {
-            sb.append(" AND priority IN ("); appendPlaceholders(sb, priorities.size()); sb.append(")"); params.addAll(priorities);
-        }
-        if (dueBefore != null) { sb.append(" AND due_date IS NOT NULL AND due_date < ?"); params.add(dueBefore); }
-        if (dueAfter != null)  { sb.append(" AND due_date IS NOT NULL AND due_date >= ?"); params.add(dueAfter); }
-
-        String ord = (order != null && order.equalsIgnoreCase("desc")) ? "DESC" : "ASC";
-        String by;
-        if ("due".equalsIgnoreCase(sortBy)) by = "due_date";
-        else if ("priority".equalsIgnoreCase(sortBy)) by = null; // handled by CASE
-        else by = "created_at";
-
-        sb.append(" ORDER BY ");
-        if (by != null) {
-            sb.append(by).append(" ").append(ord);
-        } else {
-            // priority ordering LOW < MEDIUM < HIGH
-            sb.append("CASE priority WHEN 'LOW' THEN 1 WHEN 'MEDIUM' THEN 2 WHEN 'HIGH' THEN 3 END ").append(ord);
-        }
-        sb.append(", created_at ASC");
+        return listByBoard(boardId, statuses, priorities, dueBefore, dueAfter, sortBy, order, null, -1);
+    }
 
-        String sql = sb.toString();
+    /**
+     * One page in the order given by {@code sortBy}/{@code order}, ties broken by {@code created_at} and then
+     * {@code id} in the same direction, so a page never repeats or skips rows when tasks are added meanwhile.
+     * {@code after} is the {@link #keysetOf} the last row of the previous page; {@code limit < 0} means all rows.
+     */
+    public List<Task> listByBoard(String boardId,
+                                  Set<String> statuses,
+                                  Set<String> priorities,
+                                  Long dueBefore,
+                                  Long dueAfter,
+                                  String sortBy,
+                                  String order,
+                                  Keyset after,
+                                  int limit) throws SQLException {
+        boolean dueRange = dueBefore != null || dueAfter != null;
+        int by = sortIndex(sortBy);
+        String sql = LIST_SQL[shape(dueRange, by, "desc".equalsIgnoreCase(order), after != null)];
         try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
             int i = 1;
-            for (Object p : params) {
-                if (p instanceof String s) ps.setString(i++, s);
-                else if (p instanceof Long l) ps.setLong(i++, l);
-                else throw new IllegalArgumentException("Unsupported param type: " + p);
+            ps.setString(i++, boardId);
+            i = bindSlots(ps, i, statuses, ALL_STATUSES);
+            i = bindSlots(ps, i, priorities, ALL_PRIORITIES);
+            if (dueRange) {
+                ps.setLong(i++, dueAfter != null ? dueAfter : Long.MIN_VALUE);
+                ps.setLong(i++, dueBefore != null ? dueBefore : Long.MAX_VALUE);
             }
+            if (after != null) {
+                if (by != 0) ps.setLong(i++, after.key());
+                ps.setLong(i++, after.createdAt());
+                ps.setString(i++, after.id());
+            }
+            ps.setInt(i, limit);
             try (ResultSet rs = ps.executeQuery()) {
                 List<Task> out = new ArrayList<>();
                 while (rs.next()) out.add(map(rs));
@@ -86,26 +147,80 @@ public class TaskRepository {
         }
     }
 
+    /** Where a page ending with {@code t} stops, for the same {@code sortBy}. */
+    public static Keyset keysetOf(Task t, String sortBy) {
+        long key = switch (sortIndex(sortBy)) {
+            case 1 -> t.getDueDate() != null ? t.getDueDate() : Long.MIN_VALUE;
+            case 2 -> switch (t.getPriority()) { case "LOW" -> 1; case "MEDIUM" -> 2; default -> 3; };
+            default -> t.getCreatedAt();
+        };
+        return new Keyset(key, t.getCreatedAt(), t.getId());
+    }
+
+    /**
+     * {@code EXPLAIN QUERY PLAN} of every list shape; returns the shapes SQLite would answer with a scan of the
+     * whole table, or, without a due range, with a temp B-tree sort. Empty when every sort is read from its index.
+     */
+    public List<String> checkListPlans() throws SQLException {
+        List<String> problems = new ArrayList<>();
+        try (Connection c = dsp.getConnection(); Statement st = c.createStatement()) {
+            // EXPLAIN reads no table, so a pooled connection would plan against the schema it last loaded
+            try (ResultSet rs = st.executeQuery("SELECT count(*) FROM sqlite_master")) { rs.next(); }
+            for (int i = 0; i < LIST_SQL.length; i++) {
+                List<String> plan = new ArrayList<>();
+                try (ResultSet rs = st.executeQuery("EXPLAIN QUERY PLAN " + LIST_SQL[i])) {
+                    while (rs.next()) plan.add(rs.getString("detail"));
+                }
+                boolean dueRange = i >= 12;
+                if (plan.stream().anyMatch(d -> d.startsWith("SCAN") || (!dueRange && d.contains("TEMP B-TREE")))) {
+                    problems.add(LIST_SQL[i] + " -> " + plan);
+                }
+            }
+        }
+        return problems;
+    }
+
+    private static int sortIndex(String sortBy) {
+        return "due".equalsIgnoreCase(sortBy) ? 1 : "priority".equalsIgnoreCase(sortBy) ? 2 : 0;
+    }
+
+    private static int shape(boolean dueRange, int by, boolean desc, boolean after) {
+        return (dueRange ? 12 : 0) + by * 4 + (desc ? 2 : 0) + (after ? 1 : 0);
+    }
+
+    private static int bindSlots(PreparedStatement ps, int i, Set<String> values, List<String> all) throws SQLException {
+        Collection<String> v = values == null || values.isEmpty() ? all : values;
+        if (v.size() > 3) throw new IllegalArgumentException("At most 3 filter values: " + v);
+        String last = null;
+        for (String s : v) { ps.setString(i++, s); last = s; }
+        for (int k = v.size(); k < 3; k++) ps.setString(i++, last);
+        return i;
+    }
+
     public void updateStatus(String taskId, String boardId, String newStatus) throws SQLException {
+        dsp.write(c -> { updateStatus(c, taskId, boardId, newStatus); return null; });
+    }
+
+    public void updateStatus(Connection c, String taskId, String boardId, String newStatus) throws SQLException {
         String sql = "UPDATE tasks SET status=? WHERE id=? AND board_id=?";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, newStatus); ps.setString(2, taskId); ps.setString(3, boardId);
             ps.executeUpdate();
         }
     }
 
     public void delete(String taskId, String boardId) throws SQLException {
+        dsp.write(c -> { delete(c, taskId, boardId); return null; });
+    }
+
+    public void delete(Connection c, String taskId, String boardId) throws SQLException {
         String sql = "DELETE FROM tasks WHERE id=? AND board_id=?";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, taskId); ps.setString(2, boardId);
             ps.executeUpdate();
         }
     }
 
-    private static void appendPlaceholders(StringBuilder sb, int n) {
-        for (int i=0;i<n;i++) { if (i>0) sb.append(','); sb.append('?'); }
-    }
-
     private Task map(ResultSet rs) throws SQLException {
         Long due = rs.getObject("due_date") == null ? null : rs.getLong("due_date");
         return new Task(
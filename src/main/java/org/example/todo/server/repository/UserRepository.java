@@ -20,14 +20,17 @@ public class UserRepository {
 
     public void insert(User u) throws SQLException {
         String sql = "INSERT INTO users(id, username, password_hash, password_salt, created_at) VALUES(?,?,?,?,?)";
-        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, u.getId());
-            ps.setString(2, u.getUsername());
-            ps.setString(3, u.getPasswordHash());
-            ps.setString(4, u.getPasswordSalt());
-            ps.setLong(5, u.getCreatedAt());
-            ps.executeUpdate();
-        }
+        dsp.write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, u.getId());
+                ps.setString(2, u.getUsername());
+                ps.setString(3, u.getPasswordHash());
+                ps.setString(4, u.getPasswordSalt());
+                ps.setLong(5, u.getCreatedAt());
+                ps.executeUpdate();
+            }
+            return null;
+        });
     }
 
     public Optional<User> findByUsername(String username) throws SQLException {
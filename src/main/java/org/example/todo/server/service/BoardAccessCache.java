@@ -0,0 +1,108 @@
+package org.example.todo.server.service;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Role of a user on a board, so task requests skip the board and membership lookups. A role stays until
+ * {@link BoardService} invalidates it; "no access" is kept for {@value #NO_ACCESS_TTL_MS} ms. Past {@code capacity}
+ * entries, expired ones are dropped first, then arbitrary ones, down to 90% of it.
+ *
+ * <p>A lookup may read the database just before a change commits. Invalidating bumps a generation under the write
+ * lock and {@link #putLoaded} checks it under the read lock, so what a lookup read before a change is never cached.
+ */
+final class BoardAccessCache {
+    static final long NO_ACCESS_TTL_MS = 5_000;
+
+    private record Key(String userId, String boardId) {}
+
+    /** {@code role} is null for no access. */
+    record Entry(String role, long expiresAtNanos) {}
+
+    private final int capacity;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final ReadWriteLock invalidation = new ReentrantReadWriteLock();
+    private final Object evictLock = new Object();
+    final LongAdder hits = new LongAdder();
+    final LongAdder noAccessHits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder invalidations = new LongAdder();
+
+    BoardAccessCache(int capacity) { this.capacity = capacity; }
+
+    /** The live entry, null on a miss. */
+    Entry get(String userId, String boardId) {
+        Key k = new Key(userId, boardId);
+        Entry e = entries.get(k);
+        if (e != null && e.expiresAtNanos() - System.nanoTime() <= 0) {
+            entries.remove(k, e);
+            e = null;
+        }
+        (e == null ? misses : e.role() == null ? noAccessHits : hits).increment();
+        return e;
+    }
+
+    /** Read before a lookup goes to the database, for {@link #putLoaded}. */
+    long generation() { return generation.get(); }
+
+    /** Caches what a lookup that read {@code generation} found, unless something was invalidated since. */
+    void putLoaded(String userId, String boardId, String role, long generation) {
+        long now = System.nanoTime();
+        Entry e = new Entry(role, role != null ? Long.MAX_VALUE : now + TimeUnit.MILLISECONDS.toNanos(NO_ACCESS_TTL_MS));
+        invalidation.readLock().lock();
+        try {
+            if (this.generation.get() != generation) return;
+            entries.put(new Key(userId, boardId), e);
+        } finally {
+            invalidation.readLock().unlock();
+        }
+        evictOverflow(now);
+    }
+
+    void invalidate(String userId, String boardId) {
+        invalidation.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            if (entries.remove(new Key(userId, boardId)) != null) invalidations.increment();
+        } finally {
+            invalidation.writeLock().unlock();
+        }
+    }
+
+    void invalidateBoard(String boardId) {
+        invalidation.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            for (Iterator<Key> it = entries.keySet().iterator(); it.hasNext(); ) {
+                if (!it.next().boardId().equals(boardId)) continue;
+                it.remove();
+                invalidations.increment();
+            }
+        } finally {
+            invalidation.writeLock().unlock();
+        }
+    }
+
+    int size() { return entries.size(); }
+
+    private void evictOverflow(long now) {
+        if (entries.size() <= capacity) return;
+        synchronized (evictLock) {
+            if (entries.size() <= capacity) return;
+            entries.values().removeIf(e -> e.expiresAtNanos() - now <= 0);
+            int target = capacity - capacity / 10;
+            for (Iterator<Entry> it = entries.values().iterator(); entries.size() > target && it.hasNext(); ) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+}
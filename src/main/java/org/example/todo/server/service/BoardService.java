@@ -23,31 +23,37 @@ public class BoardService {
     private final UserRepository users;
     private final DataSourceProvider dsp;
     private final PushService push;
+    private final BoardAccessCache access; // null = off
 
     public BoardService(BoardRepository boards, MembershipRepository members, UserRepository users, DataSourceProvider dsp, PushService push) {
+        this(boards, members, users, dsp, push, 0);
+    }
+
+    /** With {@code accessCacheSize > 0}, {@link #checkAccessRole} is served from a {@link BoardAccessCache}. */
+    public BoardService(BoardRepository boards, MembershipRepository members, UserRepository users, DataSourceProvider dsp, PushService push,
+                        int accessCacheSize) {
         this.boards = boards; this.members = members; this.users = users; this.dsp = dsp; this.push = push;
+        this.access = accessCacheSize > 0 ? new BoardAccessCache(accessCacheSize) : null;
     }
 
     public Board createBoard(String ownerId, String name) throws SQLException {
         if (name == null || name.isBlank()) throw AppException.validation("نام بورد خالی است");
         long now = Instant.now().toEpochMilli();
         Board b = new Board(UUID.randomUUID().toString(), now, name, ownerId);
-        try (Connection c = dsp.getConnection()) {
-            c.setAutoCommit(false);
-            try {
-                String sql = "INSERT INTO boards(id,name,owner_id,created_at) VALUES(?,?,?,?)";
-                try (PreparedStatement ps = c.prepareStatement(sql)) {
-                    ps.setString(1, b.getId()); ps.setString(2, b.getName()); ps.setString(3, b.getOwnerId()); ps.setLong(4, b.getCreatedAt());
-                    ps.executeUpdate();
-                }
-                String sql2 = "INSERT OR IGNORE INTO board_members(board_id,user_id,role,created_at) VALUES(?,?,?,?)";
-                try (PreparedStatement ps = c.prepareStatement(sql2)) {
-                    ps.setString(1, b.getId()); ps.setString(2, ownerId); ps.setString(3, "OWNER"); ps.setLong(4, now);
-                    ps.executeUpdate();
-                }
-                c.commit();
-            } catch (SQLException e) { c.rollback(); throw e; }
-        }
+        dsp.write(c -> {
+            String sql = "INSERT INTO boards(id,name,owner_id,created_at) VALUES(?,?,?,?)";
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, b.getId()); ps.setString(2, b.getName()); ps.setString(3, b.getOwnerId()); ps.setLong(4, b.getCreatedAt());
+                ps.executeUpdate();
+            }
+            String sql2 = "INSERT OR IGNORE INTO board_members(board_id,user_id,role,created_at) VALUES(?,?,?,?)";
+            try (PreparedStatement ps = c.prepareStatement(sql2)) {
+                ps.setString(1, b.getId()); ps.setString(2, ownerId); ps.setString(3, "OWNER"); ps.setLong(4, now);
+                ps.executeUpdate();
+            }
+            return null;
+        });
+        if (access != null) access.invalidate(ownerId, b.getId());
         return b;
     }
     public void deleteBoard(String requesterId, String boardId) throws SQLException {
@@ -56,6 +62,7 @@ public class BoardService {
             throw AppException.auth("دسترسی غیرمجاز: فقط مالک می‌تواند بورد را حذف کند");
         }
         boards.delete(boardId);
+        if (access != null) access.invalidateBoard(boardId);
 
         if (push != null) {
         }
@@ -86,18 +93,69 @@ public class BoardService {
         }
     }
 
+    /**
+     * The board with the caller's role, or empty when it does not exist or the caller has no access: one lookup
+     * by key, where {@link #listBoardsForUser} reads every board of the user. Also fills the access cache.
+     */
+    public Optional<BoardView> findBoardForUser(String userId, String boardId) throws SQLException {
+        String sql = "SELECT b.id, b.name, b.owner_id, b.created_at, CASE WHEN b.owner_id = ? THEN 'OWNER' ELSE m.role END " +
+                "FROM boards b LEFT JOIN board_members m ON m.board_id = b.id AND m.user_id = ? " +
+                "WHERE b.id = ? AND (b.owner_id = ? OR m.user_id IS NOT NULL)";
+        long generation = access != null ? access.generation() : 0;
+        BoardView v = null;
+        try (Connection c = dsp.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, userId); ps.setString(2, userId); ps.setString(3, boardId); ps.setString(4, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) v = new BoardView(rs.getString(1), rs.getString(2), rs.getString(3), rs.getLong(4), rs.getString(5));
+            }
+        }
+        if (access != null) access.putLoaded(userId, boardId, v != null ? v.role : null, generation);
+        return Optional.ofNullable(v);
+    }
+
     public void addMember(String requesterId, String boardId, String targetUserId) throws SQLException {
         Board b = boards.findById(boardId).orElseThrow(() -> AppException.validation("بورد مورد نظر وجود ندارد"));
         if (!b.getOwnerId().equals(requesterId)) throw AppException.auth("دسترسی غیرمجاز: فقط مالک می‌تواند عضو اضافه کند");
         var target = users.findById(targetUserId).orElseThrow(() -> AppException.validation("کاربر هدف یافت نشد"));
         long now = Instant.now().toEpochMilli();
         members.addMember(boardId, targetUserId, "MEMBER", now);
+        if (access != null) access.invalidate(targetUserId, boardId);
         if (push != null) {
             push.pushMemberAdded(requesterId, boardId, new BoardMemberView(target.getId(), target.getUsername(), "MEMBER", now));
         }
     }
 
     public Optional<String> checkAccessRole(String userId, String boardId) throws SQLException {
+        if (access == null) return loadAccessRole(userId, boardId);
+        BoardAccessCache.Entry e = access.get(userId, boardId);
+        if (e != null) return Optional.ofNullable(e.role());
+        long generation = access.generation();
+        Optional<String> role = loadAccessRole(userId, boardId);
+        access.putLoaded(userId, boardId, role.orElse(null), generation);
+        return role;
+    }
+
+    /** Counters of the access cache since start; all zero when it is off. */
+    public AccessCacheStats accessCacheStats() {
+        if (access == null) return new AccessCacheStats(0, 0, 0, 0, 0, 0);
+        return new AccessCacheStats(access.hits.sum(), access.noAccessHits.sum(), access.misses.sum(),
+                access.invalidations.sum(), access.evictions.sum(), access.size());
+    }
+
+    public record AccessCacheStats(long hits, long noAccessHits, long misses, long invalidations, long evictions, int size) {
+        public double hitRate() {
+            long lookups = hits + noAccessHits + misses;
+            return lookups == 0 ? 0 : (double) (hits + noAccessHits) / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d noAccessHits=%d misses=%d hitRate=%.3f invalidations=%d evictions=%d size=%d",
+                    hits, noAccessHits, misses, hitRate(), invalidations, evictions, size);
+        }
+    }
+
+    private Optional<String> loadAccessRole(String userId, String boardId) throws SQLException {
         Board b = boards.findById(boardId).orElse(null);
         if (b == null) return Optional.empty();
         if (b.getOwnerId().equals(userId)) return Optional.of("OWNER");
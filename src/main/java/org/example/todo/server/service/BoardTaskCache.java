@@ -0,0 +1,235 @@
+package org.example.todo.server.service;
+
+import org.example.todo.server.db.DataSourceProvider;
+import org.example.todo.server.model.Task;
+import org.example.todo.server.repository.TaskRepository;
+import org.example.todo.server.repository.TaskRepository.Keyset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tasks of recently listed boards, so {@code list_tasks} is answered from memory. A board is loaded whole on its
+ * first list and kept in one sorted view per sort order, ordered like the indexes {@link TaskRepository} pages
+ * through; filters are applied while walking a view and a cursor is a position in it, so pages match the SQL
+ * ones. Boards are evicted least recently listed first once the estimated size passes {@code budgetBytes}; a
+ * board larger than a quarter of the budget is not cached but listed from SQLite; loading it is retried
+ * a minute later.
+ *
+ * <p>SQLite stays authoritative. A board is loaded, and after every write its changed tasks are re-read, under the
+ * same per-board lock, so the snapshot always ends at the latest commit whatever order writers finish in. Writes
+ * must call {@link #refresh} or {@link #drop} once committed, also when they fail, as a write may have committed
+ * anyway. Only status changes after insert and no sort key does, so readers walking a view while a task changes
+ * see either state of it, never both or neither. With {@code verify} on every list is also run on SQLite; a
+ * difference is logged and drops the board. A write that commits while a check runs also shows up as one.
+ * The tasks of a deleted board stay until evicted, but access checks stop every list of it first.
+ */
+final class BoardTaskCache {
+    private static final Logger log = LoggerFactory.getLogger(BoardTaskCache.class);
+    private static final long TASK_OVERHEAD_BYTES = 600; // Task, its strings, map entry and three skip list nodes
+    private static final int LOCK_STRIPES = 64;
+    private static final long TOO_LARGE_RETRY_MILLIS = 60_000;
+    private static final int MAX_TOO_LARGE = 10_000;
+
+    private static final Comparator<Keyset> ORDER = Comparator.comparingLong(Keyset::key)
+            .thenComparingLong(Keyset::createdAt).thenComparing(Keyset::id);
+    private static final String[] SORTS = {"createdAt", "due", "priority"};
+
+    private static final class Board {
+        final ConcurrentHashMap<String, Task> byId = new ConcurrentHashMap<>();
+        final List<NavigableSet<Keyset>> views = List.of(
+                new ConcurrentSkipListSet<>(ORDER), new ConcurrentSkipListSet<>(ORDER), new ConcurrentSkipListSet<>(ORDER));
+        volatile long lastUsed;
+        long bytes; // under the board's lock
+    }
+
+    private final TaskRepository tasks;
+    private final DataSourceProvider dsp;
+    private final long budgetBytes;
+    private final boolean verify;
+    private final ConcurrentHashMap<String, Board> boards = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> tooLarge = new ConcurrentHashMap<>(); // board -> when to try again
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+    final LongAdder hits = new LongAdder();
+    final LongAdder loads = new LongAdder();
+    final LongAdder uncached = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder mismatches = new LongAdder();
+
+    BoardTaskCache(TaskRepository tasks, DataSourceProvider dsp, long budgetBytes, boolean verify) {
+        this.tasks = tasks;
+        this.dsp = dsp;
+        this.budgetBytes = budgetBytes;
+        this.verify = verify;
+        for (int i = 0; i < LOCK_STRIPES; i++) locks[i] = new Object();
+    }
+
+    /** Same contract as {@link TaskRepository#listByBoard(String, Set, Set, Long, Long, String, String, Keyset, int)}. */
+    List<Task> list(String boardId, Set<String> statuses, Set<String> priorities, Long dueBefore, Long dueAfter,
+                    String sortBy, String order, Keyset after, int limit) throws SQLException {
+        Board b = boards.get(boardId);
+        if (b == null && (isTooLarge(boardId) || (b = load(boardId)) == null)) {
+            uncached.increment();
+            return tasks.listByBoard(boardId, statuses, priorities, dueBefore, dueAfter, sortBy, order, after, limit);
+        }
+        b.lastUsed = clock.incrementAndGet();
+        hits.increment();
+        List<Task> out = walk(b, statuses, priorities, dueBefore, dueAfter, sortBy, order, after, limit);
+        if (!verify) return out;
+        List<Task> sql = tasks.listByBoard(boardId, statuses, priorities, dueBefore, dueAfter, sortBy, order, after, limit);
+        if (sameRows(out, sql)) return out;
+        mismatches.increment();
+        log.warn("Task cache of board {} differs from SQLite ({} vs {} rows, sort {} {}), reloading it", boardId,
+                out.size(), sql.size(), sortBy, order);
+        drop(boardId);
+        return sql;
+    }
+
+    /** Re-reads the tasks from SQLite into the board's snapshot, if it has one; tasks no longer there are removed. */
+    void refresh(String boardId, Collection<String> taskIds) {
+        if (taskIds.isEmpty()) return;
+        synchronized (lock(boardId)) { // also when not cached yet: a load running now may have missed the write
+            Board b = boards.get(boardId);
+            if (b == null) return;
+            try (Connection c = dsp.getConnection()) {
+                for (String id : taskIds) {
+                    Optional<Task> t = tasks.findByIdAndBoard(c, id, boardId);
+                    if (t.isPresent()) put(b, t.get()); else remove(b, id);
+                }
+            } catch (SQLException e) {
+                log.warn("Could not refresh the task cache of board {}, dropping it: {}", boardId, e.getMessage());
+                removeBoard(boardId);
+                return;
+            }
+        }
+        evictOverflow(boardId);
+    }
+
+    /** Forgets the board, e.g. after a write too large to refresh task by task; it is loaded again when listed. */
+    void drop(String boardId) {
+        synchronized (lock(boardId)) {
+            removeBoard(boardId);
+        }
+    }
+
+    long bytes() { return bytes.get(); }
+
+    int boards() { return boards.size(); }
+
+    private Board load(String boardId) throws SQLException {
+        synchronized (lock(boardId)) {
+            Board b = boards.get(boardId);
+            if (b != null) return b;
+            List<Task> all = tasks.listByBoard(boardId, null, null, null, null, null, null);
+            b = new Board();
+            for (Task t : all) put(b, t);
+            if (b.bytes > budgetBytes / 4) {
+                if (tooLarge.size() >= MAX_TOO_LARGE) tooLarge.clear();
+                tooLarge.put(boardId, System.currentTimeMillis() + TOO_LARGE_RETRY_MILLIS);
+                return null;
+            }
+            b.lastUsed = clock.incrementAndGet();
+            boards.put(boardId, b);
+            bytes.addAndGet(b.bytes);
+            loads.increment();
+        }
+        evictOverflow(boardId);
+        return boards.get(boardId);
+    }
+
+    private boolean isTooLarge(String boardId) {
+        Long retryAt = tooLarge.get(boardId);
+        if (retryAt == null) return false;
+        if (retryAt > System.currentTimeMillis()) return true;
+        tooLarge.remove(boardId, retryAt);
+        return false;
+    }
+
+    private static List<Task> walk(Board b, Set<String> statuses, Set<String> priorities, Long dueBefore, Long dueAfter,
+                                   String sortBy, String order, Keyset after, int limit) {
+        int by = "due".equalsIgnoreCase(sortBy) ? 1 : "priority".equalsIgnoreCase(sortBy) ? 2 : 0;
+        boolean desc = "desc".equalsIgnoreCase(order);
+        boolean dueRange = dueBefore != null || dueAfter != null;
+        long lo = dueAfter != null ? dueAfter : Long.MIN_VALUE, hi = dueBefore != null ? dueBefore : Long.MAX_VALUE;
+        NavigableSet<Keyset> view = desc ? b.views.get(by).descendingSet() : b.views.get(by);
+        if (after != null) view = view.tailSet(by == 0 ? new Keyset(after.createdAt(), after.createdAt(), after.id()) : after, false);
+        List<Task> out = new ArrayList<>(limit >= 0 ? Math.min(limit, 256) : 256);
+        for (Keyset k : view) {
+            if (dueRange && by == 1 && (desc ? k.key() < lo : k.key() >= hi)) break;
+            Task t = b.byId.get(k.id());
+            if (t == null) continue; // deleted meanwhile
+            if (statuses != null && !statuses.isEmpty() && !statuses.contains(t.getStatus())) continue;
+            if (priorities != null && !priorities.isEmpty() && !priorities.contains(t.getPriority())) continue;
+            if (dueRange && (t.getDueDate() == null || t.getDueDate() < lo || t.getDueDate() >= hi)) continue;
+            out.add(t);
+            if (out.size() == limit) break;
+        }
+        return out;
+    }
+
+    private static boolean sameRows(List<Task> a, List<Task> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            Task x = a.get(i), y = b.get(i);
+            if (!x.getId().equals(y.getId()) || !x.getStatus().equals(y.getStatus())) return false;
+        }
+        return true;
+    }
+
+    private void put(Board b, Task t) {
+        Task old = b.byId.put(t.getId(), t);
+        if (old == null) {
+            for (int by = 0; by < 3; by++) b.views.get(by).add(TaskRepository.keysetOf(t, SORTS[by]));
+        }
+        long delta = size(t) - (old != null ? size(old) : 0);
+        b.bytes += delta;
+        if (boards.get(t.getBoardId()) == b) bytes.addAndGet(delta);
+    }
+
+    private void remove(Board b, String id) {
+        Task old = b.byId.get(id);
+        if (old == null) return;
+        for (int by = 0; by < 3; by++) b.views.get(by).remove(TaskRepository.keysetOf(old, SORTS[by]));
+        b.byId.remove(id);
+        b.bytes -= size(old);
+        bytes.addAndGet(-size(old));
+    }
+
+    private void removeBoard(String boardId) {
+        Board b = boards.remove(boardId);
+        if (b != null) bytes.addAndGet(-b.bytes);
+    }
+
+    private void evictOverflow(String keep) {
+        if (bytes.get() <= budgetBytes) return;
+        List<Map.Entry<String, Board>> lru = new ArrayList<>(boards.entrySet());
+        lru.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+        long target = budgetBytes - budgetBytes / 10;
+        for (Map.Entry<String, Board> e : lru) {
+            if (bytes.get() <= target) break;
+            if (e.getKey().equals(keep)) continue;
+            synchronized (lock(e.getKey())) {
+                if (boards.get(e.getKey()) != e.getValue()) continue;
+                removeBoard(e.getKey());
+            }
+            evictions.increment();
+        }
+    }
+
+    private Object lock(String boardId) {
+        return locks[(boardId.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private static long size(Task t) {
+        return TASK_OVERHEAD_BYTES + 2L * (t.getTitle().length() + (t.getDescription() != null ? t.getDescription().length() : 0));
+    }
+}
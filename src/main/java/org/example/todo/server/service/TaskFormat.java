@@ -0,0 +1,89 @@
+package org.example.todo.server.service;
+
+import org.example.todo.server.core.AppException;
+import org.example.todo.server.protocol.TaskView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.example.todo.server.protocol.ProtocolJson.GSON;
+
+/**
+ * Text formats of task import and export, one task per record. JSONL records are {@link TaskView} objects.
+ * CSV starts with a header naming the columns, so columns may come in any order and unknown ones are ignored;
+ * fields follow RFC 4180: quoted when they hold a comma, quote or line break, quotes doubled.
+ */
+public enum TaskFormat {
+    JSONL, CSV;
+
+    static final List<String> CSV_COLUMNS = List.of("id", "title", "description", "status", "priority", "dueDate", "createdAt");
+
+    public static TaskFormat parse(String s) {
+        if (s == null || s.isBlank()) return JSONL;
+        return switch (s.trim().toLowerCase(Locale.ROOT)) {
+            case "jsonl", "json" -> JSONL;
+            case "csv" -> CSV;
+            default -> throw AppException.validation("قالب نامعتبر: " + s);
+        };
+    }
+
+    void writeHeader(StringBuilder out) {
+        if (this == CSV) out.append(String.join(",", CSV_COLUMNS)).append('\n');
+    }
+
+    void write(TaskView t, StringBuilder out) {
+        if (this == JSONL) {
+            out.append(GSON.toJson(t)).append('\n');
+            return;
+        }
+        csvField(out, t.id).append(',');
+        csvField(out, t.title).append(',');
+        csvField(out, t.description).append(',');
+        out.append(t.status).append(',').append(t.priority).append(',');
+        if (t.dueDate != null) out.append(t.dueDate);
+        out.append(',').append(t.createdAt).append('\n');
+    }
+
+    private static StringBuilder csvField(StringBuilder out, String s) {
+        if (s == null) return out;
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char ch = s.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) return out.append(s);
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"') out.append('"');
+            out.append(ch);
+        }
+        return out.append('"');
+    }
+
+    /** Fields of one CSV record; an empty unquoted field is null. */
+    static List<String> csvFields(CharSequence record) {
+        List<String> fields = new ArrayList<>(CSV_COLUMNS.size());
+        StringBuilder cur = new StringBuilder();
+        boolean inQuotes = false, quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char ch = record.charAt(i);
+            if (inQuotes) {
+                if (ch != '"') cur.append(ch);
+                else if (i + 1 < record.length() && record.charAt(i + 1) == '"') { cur.append('"'); i++; }
+                else inQuotes = false;
+            } else if (ch == '"') {
+                inQuotes = quoted = true;
+            } else if (ch == ',') {
+                fields.add(cur.isEmpty() && !quoted ? null : cur.toString());
+                cur.setLength(0);
+                quoted = false;
+            } else {
+                cur.append(ch);
+            }
+        }
+        fields.add(cur.isEmpty() && !quoted ? null : cur.toString());
+        return fields;
+    }
+}
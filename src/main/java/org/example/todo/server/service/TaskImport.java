@@ -0,0 +1,173 @@
+package org.example.todo.server.service;
+
+import com.google.gson.JsonParseException;
+import org.example.todo.server.core.AppException;
+import org.example.todo.server.model.Task;
+import org.example.todo.server.protocol.TaskView;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.example.todo.server.protocol.ProtocolJson.GSON;
+
+/**
+ * One bulk import into a board, fed text in chunks of any size: a record may span chunks. Records are validated
+ * like {@code add_task} and those that fail are counted and skipped; valid tasks are written {@code batchRows}
+ * at a time, so memory stays flat however much is imported. Batches already written stay if the import is
+ * abandoned. Not thread-safe: chunks of one import are fed in order.
+ *
+ * <p>Imported tasks get time-ordered (version 7) UUIDs: every index of {@code tasks} ends in {@code id}, and
+ * rows of one import share {@code created_at}, so random ids would scatter each batch across all four indexes.
+ */
+public final class TaskImport {
+    static final int MAX_RECORD_CHARS = 1 << 20;
+    static final int MAX_REPORTED_ERRORS = 20;
+
+    public record Summary(int imported, int rejected, List<String> errors, long millis) {}
+
+    @FunctionalInterface
+    interface BatchWriter {
+        void write(List<Task> batch) throws SQLException;
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final TaskFormat format;
+    private final String boardId;
+    private final int batchRows;
+    private final BatchWriter writer;
+    private final long started = System.nanoTime();
+    private final long now = Instant.now().toEpochMilli();
+
+    private final StringBuilder record = new StringBuilder();
+    private boolean inQuotes, overflow;
+    private int line = 1, recordLine = 1;
+    private Map<String, Integer> columns; // CSV header
+    private List<Task> batch;
+    private int imported, rejected;
+    private long idMillis, idSeq;
+    private final List<String> errors = new ArrayList<>();
+
+    TaskImport(TaskFormat format, String boardId, int batchRows, BatchWriter writer) {
+        this.format = format;
+        this.boardId = boardId;
+        this.batchRows = batchRows;
+        this.writer = writer;
+        this.batch = new ArrayList<>(batchRows);
+    }
+
+    public String id() { return id; }
+    public String boardId() { return boardId; }
+
+    public void feed(CharSequence chunk) throws SQLException {
+        for (int i = 0; i < chunk.length(); i++) {
+            char ch = chunk.charAt(i);
+            if (ch == '\n') {
+                line++;
+                if (!inQuotes) { endRecord(); continue; }
+            } else if (ch == '"' && format == TaskFormat.CSV) {
+                inQuotes = !inQuotes;
+            }
+            if (record.length() < MAX_RECORD_CHARS) record.append(ch);
+            else overflow = true;
+        }
+    }
+
+    /** Parses what is left, writes the last batch and returns the totals. */
+    public Summary finish() throws SQLException {
+        endRecord();
+        flush();
+        return progress();
+    }
+
+    /** Totals so far; {@code imported} counts tasks already written. */
+    public Summary progress() {
+        return new Summary(imported, rejected, List.copyOf(errors), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void endRecord() throws SQLException {
+        int at = recordLine;
+        recordLine = line;
+        int len = record.length();
+        if (len > 0 && record.charAt(len - 1) == '\r') record.setLength(--len);
+        if (len == 0 && !overflow) return;
+        try {
+            if (overflow) throw AppException.validation("رکورد بیش از حد طولانی است");
+            if (format == TaskFormat.CSV && columns == null) {
+                readHeader();
+                return;
+            }
+            batch.add(format == TaskFormat.JSONL ? fromJson() : fromCsv());
+            if (batch.size() >= batchRows) flush();
+        } catch (AppException e) {
+            reject(at, e.getMessage());
+        } catch (JsonParseException | NumberFormatException e) {
+            reject(at, "رکورد نامعتبر");
+        } finally {
+            record.setLength(0);
+            inQuotes = overflow = false;
+        }
+    }
+
+    private void reject(int at, String message) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) errors.add("line " + at + ": " + message);
+    }
+
+    private void readHeader() {
+        columns = new HashMap<>();
+        List<String> names = TaskFormat.csvFields(record);
+        for (int i = 0; i < names.size(); i++) if (names.get(i) != null) columns.put(names.get(i).trim(), i);
+        if (!columns.containsKey("title")) throw AppException.validation("ستون title در سرآیند CSV نیست");
+    }
+
+    private Task fromJson() {
+        TaskView v = GSON.fromJson(record.toString(), TaskView.class);
+        if (v == null) throw AppException.validation("رکورد خالی است");
+        return task(v.title, v.description, v.status, v.priority, v.dueDate, v.createdAt > 0 ? v.createdAt : null);
+    }
+
+    private Task fromCsv() {
+        List<String> f = TaskFormat.csvFields(record);
+        return task(csv(f, "title"), csv(f, "description"), csv(f, "status"), csv(f, "priority"),
+                csvLong(f, "dueDate"), csvLong(f, "createdAt"));
+    }
+
+    private String csv(List<String> fields, String column) {
+        Integer i = columns.get(column);
+        return i != null && i < fields.size() ? fields.get(i) : null;
+    }
+
+    private Long csvLong(List<String> fields, String column) {
+        String s = csv(fields, column);
+        return s == null || s.isBlank() ? null : Long.parseLong(s.trim());
+    }
+
+    private Task task(String title, String description, String status, String priority, Long dueDate, Long createdAt) {
+        if (title == null || title.isBlank()) throw AppException.validation("عنوان خالی است");
+        String st = status == null || status.isBlank() ? "TODO" : TaskService.normalizeStatus(status);
+        String pr = TaskService.normalizePriority(priority == null || priority.isBlank() ? null : priority);
+        return new Task(nextId(), createdAt != null ? createdAt : now, boardId, title, description, st, pr, dueDate);
+    }
+
+    /** UUID version 7: 48 bits of milliseconds, then a 12-bit sequence so ids of one import keep increasing. */
+    private String nextId() {
+        long ms = System.currentTimeMillis();
+        if (ms > idMillis) { idMillis = ms; idSeq = 0; }
+        else if (++idSeq > 0xFFF) { idMillis++; idSeq = 0; }
+        long lo = ThreadLocalRandom.current().nextLong() >>> 2 | 1L << 63;
+        return new UUID(idMillis << 16 | 0x7000 | idSeq, lo).toString();
+    }
+
+    private void flush() throws SQLException {
+        if (batch.isEmpty()) return;
+        writer.write(batch);
+        imported += batch.size();
+        batch = new ArrayList<>(batchRows);
+    }
+}
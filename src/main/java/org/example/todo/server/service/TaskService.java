@@ -1,22 +1,46 @@
 package org.example.todo.server.service;
 
+import com.google.gson.JsonParseException;
 import org.example.todo.server.core.AppException;
+import org.example.todo.server.db.DataSourceProvider;
 import org.example.todo.server.model.Task;
 import org.example.todo.server.repository.TaskRepository;
 import org.example.todo.server.push.PushService;
-import org.example.todo.server.protocol.TaskView;
+import org.example.todo.server.protocol.*;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.util.*;
 
+import static org.example.todo.server.protocol.ProtocolJson.GSON;
+
 public class TaskService {
+    public static final int MAX_BATCH_ITEMS = 500;
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int IMPORT_BATCH_ROWS = 10_000;
+    public static final int MAX_EXPORT_CHUNK = 50_000;
+    private static final int EXPORT_PAGE_ROWS = 1000;
+    private static final int EXPORT_MAX_CHARS = 4 << 20;
+
     private final TaskRepository tasks;
     private final BoardService boards;
+    private final DataSourceProvider dsp;
     private final PushService push;
+    private final BoardTaskCache cache; // null = off
+
+    public TaskService(TaskRepository tasks, BoardService boards, DataSourceProvider dsp, PushService push) {
+        this(tasks, boards, dsp, push, 0, false);
+    }
+
+    /** With {@code cacheBytes > 0}, {@code list_tasks} is answered from a {@link BoardTaskCache} of that size. */
+    public TaskService(TaskRepository tasks, BoardService boards, DataSourceProvider dsp, PushService push, long cacheBytes, boolean verifyCache) {
+        this(tasks, boards, dsp, push, cacheBytes > 0 ? new BoardTaskCache(tasks, dsp, cacheBytes, verifyCache) : null);
+    }
 
-    public TaskService(TaskRepository tasks, BoardService boards, PushService push) {
-        this.tasks = tasks; this.boards = boards; this.push = push;
+    TaskService(TaskRepository tasks, BoardService boards, DataSourceProvider dsp, PushService push, BoardTaskCache cache) {
+        this.tasks = tasks; this.boards = boards; this.dsp = dsp; this.push = push; this.cache = cache;
     }
 
     public Task addTask(String userId, String boardId, String title, String description, String priority, Long dueDate) throws SQLException {
@@ -25,19 +49,135 @@ public class TaskService {
         String pr = normalizePriority(priority);
         long now = Instant.now().toEpochMilli();
         Task t = new Task(UUID.randomUUID().toString(), now, boardId, title, description, "TODO", pr, dueDate);
-        tasks.insert(t);
+        try {
+            tasks.insert(t);
+        } finally {
+            refreshCache(boardId, List.of(t.getId()));
+        }
         if (push != null) push.pushTaskAdded(userId, boardId, toView(t));
         return t;
     }
 
-    public List<Task> listTasks(String userId, String boardId,
-                                Set<String> statuses, Set<String> priorities,
-                                Long dueBefore, Long dueAfter,
-                                String sortBy, String order) throws SQLException {
+    /** One page of tasks and the cursor of the next one, null on the last page. */
+    public record TaskPage(List<Task> tasks, String nextCursor) {}
+
+    /**
+     * Without {@code limit} and {@code cursor} every matching task comes back in one page, as older clients expect.
+     * Otherwise pages hold {@code limit} tasks (default {@value #DEFAULT_PAGE_SIZE}, at most {@value #MAX_PAGE_SIZE})
+     * and {@code cursor} is the {@code nextCursor} of the previous page, requested with the same sort.
+     */
+    public TaskPage listTasks(String userId, String boardId,
+                              Set<String> statuses, Set<String> priorities,
+                              Long dueBefore, Long dueAfter,
+                              String sortBy, String order,
+                              Integer limit, String cursor) throws SQLException {
         ensureAccess(userId, boardId);
         Set<String> sts = normalizeStatuses(statuses);
         Set<String> prs = normalizePriorities(priorities);
-        return tasks.listByBoard(boardId, sts, prs, dueBefore, dueAfter, sortBy, order);
+        if (limit == null && cursor == null) {
+            return new TaskPage(list(boardId, sts, prs, dueBefore, dueAfter, sortBy, order, null, -1), null);
+        }
+        if (limit != null && limit < 1) throw AppException.validation("limit باید مثبت باشد");
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        String shape = sortShape(sortBy, order);
+        TaskRepository.Keyset after = cursor == null ? null : decodeCursor(cursor, shape);
+        List<Task> page = list(boardId, sts, prs, dueBefore, dueAfter, sortBy, order, after, size + 1);
+        if (page.size() <= size) return new TaskPage(page, null);
+        page = page.subList(0, size);
+        return new TaskPage(page, encodeCursor(shape, TaskRepository.keysetOf(page.get(size - 1), sortBy)));
+    }
+
+    private List<Task> list(String boardId, Set<String> sts, Set<String> prs, Long dueBefore, Long dueAfter,
+                            String sortBy, String order, TaskRepository.Keyset after, int limit) throws SQLException {
+        if (cache != null) return cache.list(boardId, sts, prs, dueBefore, dueAfter, sortBy, order, after, limit);
+        return tasks.listByBoard(boardId, sts, prs, dueBefore, dueAfter, sortBy, order, after, limit);
+    }
+
+    private void refreshCache(String boardId, Collection<String> taskIds) {
+        if (cache != null) cache.refresh(boardId, taskIds);
+    }
+
+    /** Counters of the task cache since start; all zero when it is off. */
+    public TaskCacheStats taskCacheStats() {
+        if (cache == null) return new TaskCacheStats(0, 0, 0, 0, 0, 0, 0);
+        return new TaskCacheStats(cache.hits.sum(), cache.loads.sum(), cache.uncached.sum(), cache.evictions.sum(),
+                cache.mismatches.sum(), cache.boards(), cache.bytes());
+    }
+
+    /** {@code hits} are lists answered from memory, {@code uncached} those of boards too large to cache. */
+    public record TaskCacheStats(long hits, long loads, long uncached, long evictions, long mismatches, int boards, long bytes) {
+        @Override
+        public String toString() {
+            return "hits=" + hits + " loads=" + loads + " uncached=" + uncached + " evictions=" + evictions
+                    + " mismatches=" + mismatches + " boards=" + boards + " bytes=" + bytes;
+        }
+    }
+
+    private static String sortShape(String sortBy, String order) {
+        String by = "due".equalsIgnoreCase(sortBy) ? "due" : "priority".equalsIgnoreCase(sortBy) ? "priority" : "createdAt";
+        return by + ("desc".equalsIgnoreCase(order) ? ".desc" : ".asc");
+    }
+
+    private static String encodeCursor(String shape, TaskRepository.Keyset k) {
+        String raw = shape + "|" + k.key() + "|" + k.createdAt() + "|" + k.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TaskRepository.Keyset decodeCursor(String cursor, String shape) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 4);
+            if (parts.length == 4 && parts[0].equals(shape)) {
+                return new TaskRepository.Keyset(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]);
+            }
+        } catch (IllegalArgumentException e) {
+            throw AppException.validation("cursor نامعتبر است");
+        }
+        if (parts.length == 4) throw AppException.validation("cursor با مرتب‌سازی درخواست هم‌خوانی ندارد");
+        throw AppException.validation("cursor نامعتبر است");
+    }
+
+    /** Starts a bulk import into the board, see {@link TaskImport}; {@link #finishImport} ends it. */
+    public TaskImport startImport(String userId, String boardId, String format) throws SQLException {
+        ensureAccess(userId, boardId);
+        return new TaskImport(TaskFormat.parse(format), boardId, IMPORT_BATCH_ROWS, batch -> {
+            try {
+                dsp.write(c -> { tasks.insertAll(c, batch); return null; });
+            } finally {
+                if (cache != null) cache.drop(boardId);
+            }
+        });
+    }
+
+    /** Writes the rest of the import and sends one push for all of it. */
+    public TaskImport.Summary finishImport(String userId, TaskImport imp) throws SQLException {
+        TaskImport.Summary s = imp.finish();
+        if (push != null && s.imported() > 0) push.pushTasksImported(userId, imp.boardId(), s.imported());
+        return s;
+    }
+
+    /**
+     * Appends up to {@code limit} tasks of the board to {@code out}, oldest first, from {@code cursor} on, and returns
+     * the cursor of the next chunk, null once the board is done. Tasks are read {@value #EXPORT_PAGE_ROWS} at a time
+     * and a chunk ends early past {@value #EXPORT_MAX_CHARS} chars, so memory stays flat however large the board.
+     */
+    public String exportTasks(String userId, String boardId, String format, String cursor, Integer limit, StringBuilder out) throws SQLException {
+        ensureAccess(userId, boardId);
+        if (limit != null && limit < 1) throw AppException.validation("limit باید مثبت باشد");
+        TaskFormat f = TaskFormat.parse(format);
+        String shape = sortShape(null, null);
+        TaskRepository.Keyset after = cursor == null ? null : decodeCursor(cursor, shape);
+        if (after == null) f.writeHeader(out);
+        int left = limit == null ? MAX_EXPORT_CHUNK : Math.min(limit, MAX_EXPORT_CHUNK);
+        while (left > 0 && out.length() < EXPORT_MAX_CHARS) {
+            int n = Math.min(left, EXPORT_PAGE_ROWS);
+            List<Task> page = tasks.listByBoard(boardId, null, null, null, null, null, null, after, n);
+            for (Task t : page) f.write(toView(t), out);
+            if (page.size() < n) return null;
+            left -= n;
+            after = TaskRepository.keysetOf(page.get(n - 1), null);
+        }
+        return encodeCursor(shape, after);
     }
 
     public Task updateTaskStatus(String userId, String boardId, String taskId, String newStatus) throws SQLException {
@@ -45,7 +185,11 @@ public class TaskService {
         String st = normalizeStatus(newStatus);
         var opt = tasks.findByIdAndBoard(taskId, boardId);
         if (opt.isEmpty()) throw AppException.validation("وظیفه یافت نشد");
-        tasks.updateStatus(taskId, boardId, st);
+        try {
+            tasks.updateStatus(taskId, boardId, st);
+        } finally {
+            refreshCache(boardId, List.of(taskId));
+        }
         Task updated = tasks.findByIdAndBoard(taskId, boardId).orElseThrow();
         if (push != null) push.pushTaskUpdated(userId, boardId, toView(updated));
         return updated;
@@ -55,10 +199,151 @@ public class TaskService {
         ensureAccess(userId, boardId);
         var opt = tasks.findByIdAndBoard(taskId, boardId);
         if (opt.isEmpty()) throw AppException.validation("وظیفه یافت نشد");
-        tasks.delete(taskId, boardId);
+        try {
+            tasks.delete(taskId, boardId);
+        } finally {
+            refreshCache(boardId, List.of(taskId));
+        }
         if (push != null) push.pushTaskDeleted(userId, boardId, taskId);
     }
 
+    /**
+     * Applies add/update/delete items in order on one connection and one transaction. Board access is
+     * checked once per distinct board. An item that fails validation, access or lookup gets an error
+     * result and the rest still apply; a database error rolls the whole batch back. One push per
+     * board is sent after commit.
+     */
+    public List<BatchResponse.Result> applyBatch(String userId, List<BatchRequest.Item> items) throws SQLException {
+        if (items == null || items.isEmpty()) throw AppException.validation("لیست عملیات خالی است");
+        if (items.size() > MAX_BATCH_ITEMS) throw AppException.validation("حداکثر " + MAX_BATCH_ITEMS + " عملیات در هر دسته مجاز است");
+
+        List<BatchResponse.Result> results = new ArrayList<>(items.size());
+        Object[] ops = new Object[items.size()];
+        Map<String, Boolean> access = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            BatchRequest.Item item = items.get(i);
+            BatchResponse.Result r = new BatchResponse.Result(item != null ? item.action : null);
+            results.add(r);
+            try {
+                Object op = bindBatchItem(item);
+                String boardId = switch (op) {
+                    case AddTaskRequest a -> a.boardId;
+                    case UpdateTaskStatusRequest u -> u.boardId;
+                    case DeleteTaskRequest d -> d.boardId;
+                    default -> throw new IllegalStateException();
+                };
+                Boolean allowed = access.get(boardId);
+                if (allowed == null) {
+                    allowed = boards.checkAccessRole(userId, boardId).isPresent();
+                    access.put(boardId, allowed);
+                }
+                if (!allowed) throw AppException.auth("دسترسی غیرمجاز");
+                ops[i] = op;
+            } catch (AppException e) {
+                fail(r, e);
+            }
+        }
+
+        long now = Instant.now().toEpochMilli();
+        Map<String, Map<String, TaskView>> changed = new LinkedHashMap<>();
+        Map<String, List<String>> deleted = new LinkedHashMap<>();
+        try {
+            dsp.write(c -> {
+                for (int i = 0; i < ops.length; i++) {
+                    if (ops[i] == null) continue;
+                    BatchResponse.Result r = results.get(i);
+                    try {
+                        switch (ops[i]) {
+                            case AddTaskRequest a -> {
+                                Task t = new Task(UUID.randomUUID().toString(), now, a.boardId, a.title, a.description, "TODO", a.priority, a.dueDate);
+                                tasks.insert(c, t);
+                                r.task = toView(t);
+                                changed.computeIfAbsent(a.boardId, k -> new LinkedHashMap<>()).put(t.getId(), r.task);
+                            }
+                            case UpdateTaskStatusRequest u -> {
+                                if (tasks.findByIdAndBoard(c, u.taskId, u.boardId).isEmpty()) throw AppException.validation("وظیفه یافت نشد");
+                                tasks.updateStatus(c, u.taskId, u.boardId, u.newStatus);
+                                r.task = toView(tasks.findByIdAndBoard(c, u.taskId, u.boardId).orElseThrow());
+                                changed.computeIfAbsent(u.boardId, k -> new LinkedHashMap<>()).put(u.taskId, r.task);
+                            }
+                            case DeleteTaskRequest d -> {
+                                if (tasks.findByIdAndBoard(c, d.taskId, d.boardId).isEmpty()) throw AppException.validation("وظیفه یافت نشد");
+                                tasks.delete(c, d.taskId, d.boardId);
+                                r.taskId = d.taskId;
+                                Map<String, TaskView> boardChanges = changed.get(d.boardId);
+                                if (boardChanges != null) boardChanges.remove(d.taskId);
+                                deleted.computeIfAbsent(d.boardId, k -> new ArrayList<>()).add(d.taskId);
+                            }
+                            default -> throw new IllegalStateException();
+                        }
+                        r.ok = true;
+                    } catch (AppException e) {
+                        fail(r, e);
+                    }
+                }
+                return null;
+            });
+        } finally {
+            if (cache != null) {
+                Set<String> touched = new LinkedHashSet<>(changed.keySet());
+                touched.addAll(deleted.keySet());
+                for (String boardId : touched) {
+                    Set<String> ids = new LinkedHashSet<>(changed.getOrDefault(boardId, Map.of()).keySet());
+                    ids.addAll(deleted.getOrDefault(boardId, List.of()));
+                    cache.refresh(boardId, ids);
+                }
+            }
+        }
+
+        if (push != null) {
+            Set<String> touched = new LinkedHashSet<>(changed.keySet());
+            touched.addAll(deleted.keySet());
+            for (String boardId : touched) {
+                Map<String, TaskView> views = changed.getOrDefault(boardId, Map.of());
+                push.pushTasksChanged(userId, boardId, new ArrayList<>(views.values()), deleted.getOrDefault(boardId, List.of()));
+            }
+        }
+        return results;
+    }
+
+    /** Binds one batch item to the request class of its action and normalizes it like the standalone handlers do. */
+    private static Object bindBatchItem(BatchRequest.Item item) {
+        if (item == null || item.action == null) throw AppException.validation("action required");
+        try {
+            return switch (item.action) {
+                case "add_task" -> {
+                    AddTaskRequest a = GSON.fromJson(item.payload, AddTaskRequest.class);
+                    if (a == null || a.boardId == null || a.title == null || a.priority == null)
+                        throw AppException.validation("boardId/title/priority required");
+                    if (a.title.isBlank()) throw AppException.validation("عنوان خالی است");
+                    a.priority = normalizePriority(a.priority);
+                    yield a;
+                }
+                case "update_task_status" -> {
+                    UpdateTaskStatusRequest u = GSON.fromJson(item.payload, UpdateTaskStatusRequest.class);
+                    if (u == null || u.boardId == null || u.taskId == null || u.newStatus == null)
+                        throw AppException.validation("boardId/taskId/newStatus required");
+                    u.newStatus = normalizeStatus(u.newStatus);
+                    yield u;
+                }
+                case "delete_task" -> {
+                    DeleteTaskRequest d = GSON.fromJson(item.payload, DeleteTaskRequest.class);
+                    if (d == null || d.boardId == null || d.taskId == null)
+                        throw AppException.validation("boardId/taskId required");
+                    yield d;
+                }
+                default -> throw AppException.validation("Unsupported batch action: " + item.action);
+            };
+        } catch (JsonParseException e) {
+            throw AppException.validation("Invalid payload for " + item.action);
+        }
+    }
+
+    private static void fail(BatchResponse.Result r, AppException e) {
+        r.ok = false;
+        r.error = new BatchResponse.Error(e.getCode(), e.getMessage());
+    }
+
     private void ensureAccess(String userId, String boardId) throws SQLException {
         if (boards.checkAccessRole(userId, boardId).isEmpty()) throw AppException.auth("دسترسی غیرمجاز");
     }
@@ -56,10 +56,9 @@ public class UserService {
 
 
         long exp = now + config.getTokenTtl().toMillis();
-        String token = jwt.createToken(u.getId(), u.getUsername(), now, exp);
-        String jti = jwt.getJti(token);
-        sessions.insert(new Session(jti, u.getId(), exp, now));
-        return new LoginResult(token, u, exp);
+        JwtService.Issued issued = jwt.issue(u.getId(), u.getUsername(), now, exp);
+        sessions.insert(new Session(issued.jti(), u.getId(), exp, now));
+        return new LoginResult(issued.token(), u, exp);
     }
 
     public LoginResult login(String username, char[] password) throws SQLException {
@@ -75,10 +74,9 @@ public class UserService {
 
         long now = Instant.now().toEpochMilli();
         long exp = now + config.getTokenTtl().toMillis();
-        String token = jwt.createToken(u.getId(), u.getUsername(), now, exp);
-        String jti = jwt.getJti(token);
-        sessions.insert(new Session(jti, u.getId(), exp, now));
-        return new LoginResult(token, u, exp);
+        JwtService.Issued issued = jwt.issue(u.getId(), u.getUsername(), now, exp);
+        sessions.insert(new Session(issued.jti(), u.getId(), exp, now));
+        return new LoginResult(issued.token(), u, exp);
     }
 
     public void logout(String token) throws SQLException {
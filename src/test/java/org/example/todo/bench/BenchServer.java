@@ -0,0 +1,120 @@
+package org.example.todo.bench;
+
+import com.google.gson.JsonObject;
+import org.example.todo.client.net.TcpClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A {@code ServerApp} in its own JVM, on free ports and a fresh database, for the end-to-end benchmarks in this
+ * package. Environment pairs passed to {@link #start} override the server's defaults, so one run can compare
+ * configurations. The server inherits this JVM's class path; its log goes to {@code server.log} in its directory.
+ */
+final class BenchServer implements AutoCloseable {
+    private final Process process;
+    private final Path dir;
+    private final int port;
+
+    private BenchServer(Process process, Path dir, int port) {
+        this.process = process;
+        this.dir = dir;
+        this.port = port;
+    }
+
+    static BenchServer start(String... envPairs) throws Exception {
+        Path dir = Files.createTempDirectory("todo-bench");
+        int tcp, udp;
+        try (ServerSocket s = new ServerSocket(0); DatagramSocket d = new DatagramSocket(0)) {
+            tcp = s.getLocalPort();
+            udp = d.getLocalPort();
+        }
+        List<String> cmd = List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), "org.example.todo.server.app.ServerApp");
+        ProcessBuilder pb = new ProcessBuilder(new ArrayList<>(cmd)).redirectErrorStream(true)
+                .redirectOutput(dir.resolve("server.log").toFile());
+        Map<String, String> env = pb.environment();
+        env.put("TODO_TCP_PORT", String.valueOf(tcp));
+        env.put("TODO_UDP_PORT", String.valueOf(udp));
+        env.put("TODO_DB_FILE", dir.resolve("bench.db").toString());
+        for (int i = 0; i + 1 < envPairs.length; i += 2) env.put(envPairs[i], envPairs[i + 1]);
+        BenchServer server = new BenchServer(pb.start(), dir, tcp);
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (true) {
+            try (Socket s = new Socket()) {
+                s.connect(new InetSocketAddress("127.0.0.1", tcp), 200);
+                return server;
+            } catch (IOException e) {
+                if (!server.process.isAlive() || System.currentTimeMillis() > deadline) {
+                    server.close();
+                    throw new IOException("Server did not start, see " + dir.resolve("server.log"), e);
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    TcpClient client() throws IOException {
+        return new TcpClient("127.0.0.1", port);
+    }
+
+    @Override
+    public void close() throws IOException {
+        process.destroy();
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).filter(p -> !p.endsWith("server.log") && !p.equals(dir))
+                    .map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /** Sends one request and returns its payload; anything but a response is an error. */
+    static JsonObject call(TcpClient c, String action, JsonObject payload, String token) throws Exception {
+        TcpClient.Env env = c.sendAndAwait(action, payload, token, 20_000);
+        if (!"response".equals(env.type)) throw new IllegalStateException(action + " failed: " + env.payload);
+        return env.payload;
+    }
+
+    /** Registers a new user and returns its token. */
+    static String register(TcpClient c, String prefix) throws Exception {
+        JsonObject p = new JsonObject();
+        p.addProperty("username", prefix + System.nanoTime());
+        p.addProperty("password", "pw123456");
+        return call(c, "register", p, null).get("token").getAsString();
+    }
+
+    static String createBoard(TcpClient c, String token, String name) throws Exception {
+        JsonObject p = new JsonObject();
+        p.addProperty("name", name);
+        return call(c, "create_board", p, token).getAsJsonObject("board").get("id").getAsString();
+    }
+
+    /** Adds {@code n} low-priority tasks and returns their ids. */
+    static List<String> addTasks(TcpClient c, String token, String boardId, int n) throws Exception {
+        List<String> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            JsonObject p = new JsonObject();
+            p.addProperty("boardId", boardId);
+            p.addProperty("title", "Task " + i);
+            p.addProperty("priority", "low");
+            ids.add(call(c, "add_task", p, token).getAsJsonObject("task").get("id").getAsString());
+        }
+        return ids;
+    }
+}
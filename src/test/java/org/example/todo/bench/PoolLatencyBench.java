@@ -0,0 +1,100 @@
+package org.example.todo.bench;
+
+import com.google.gson.JsonObject;
+import org.example.todo.client.net.TcpClient;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Request latency with and without JDBC connection pooling: one client on a 20-task board times each action
+ * {@value #CALLS} times after {@value #WARMUP} warm-up calls and prints p50/p90 in microseconds, then
+ * {@value #CLIENTS} clients run {@code list_tasks}/{@code view_board} for a req/s figure. Without the pool every
+ * request opens its own connection: no read or write pool, no group-commit writer.
+ *
+ * <p>Run from the project directory after {@code mvn test-compile}, with {@code target/classes},
+ * {@code target/test-classes} and the dependencies on the class path.
+ */
+public final class PoolLatencyBench {
+    private static final int WARMUP = 20;
+    private static final int CALLS = 300;
+    private static final int CLIENTS = 8;
+    private static final int CALLS_PER_CLIENT = 150;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String[]> modes = new LinkedHashMap<>();
+        modes.put("no pool", new String[]{"TODO_DB_READ_POOL_SIZE", "0", "TODO_DB_WRITE_POOL_SIZE", "0", "TODO_DB_GROUP_COMMIT", "false"});
+        modes.put("pool (default)", new String[0]);
+        for (Map.Entry<String, String[]> mode : modes.entrySet()) {
+            System.out.println(mode.getKey() + ":");
+            try (BenchServer server = BenchServer.start(mode.getValue())) {
+                run(server);
+            }
+        }
+    }
+
+    private static void run(BenchServer server) throws Exception {
+        String token, boardId;
+        try (TcpClient c = server.client()) {
+            token = BenchServer.register(c, "pool");
+            boardId = BenchServer.createBoard(c, token, "bench");
+            List<String> ids = BenchServer.addTasks(c, token, boardId, 20);
+            Random r = new Random(1);
+            String[] statuses = {"todo", "inProgress", "done"};
+            Map<String, Supplier<JsonObject>> actions = new LinkedHashMap<>();
+            actions.put("list_tasks", () -> board(boardId));
+            actions.put("view_board", () -> board(boardId));
+            actions.put("list_boards", JsonObject::new);
+            actions.put("update_task_status", () -> {
+                JsonObject p = board(boardId);
+                p.addProperty("taskId", ids.get(r.nextInt(ids.size())));
+                p.addProperty("newStatus", statuses[r.nextInt(statuses.length)]);
+                return p;
+            });
+            actions.put("add_task", () -> {
+                JsonObject p = board(boardId);
+                p.addProperty("title", "n");
+                p.addProperty("priority", "high");
+                return p;
+            });
+            for (Map.Entry<String, Supplier<JsonObject>> a : actions.entrySet()) {
+                long[] t = new long[CALLS];
+                for (int i = 0; i < WARMUP + CALLS; i++) {
+                    long start = System.nanoTime();
+                    BenchServer.call(c, a.getKey(), a.getValue().get(), token);
+                    if (i >= WARMUP) t[i - WARMUP] = System.nanoTime() - start;
+                }
+                Arrays.sort(t);
+                System.out.printf("  %-20s p50=%6.0fus p90=%6.0fus%n", a.getKey(), t[CALLS / 2] / 1e3, t[CALLS * 9 / 10] / 1e3);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int k = 0; k < CLIENTS; k++) {
+                clients.add(pool.submit(() -> {
+                    try (TcpClient c = server.client()) {
+                        for (int i = 0; i < CALLS_PER_CLIENT; i++) {
+                            BenchServer.call(c, i % 2 == 0 ? "list_tasks" : "view_board", board(boardId), token);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : clients) f.get();
+            System.out.printf("  %d clients, reads     %.0f req/s%n", CLIENTS,
+                    CLIENTS * CALLS_PER_CLIENT / ((System.nanoTime() - start) / 1e9));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static JsonObject board(String boardId) {
+        JsonObject p = new JsonObject();
+        p.addProperty("boardId", boardId);
+        return p;
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.todo.bench;
+
+import com.google.gson.JsonObject;
+import org.example.todo.client.net.TcpClient;
+import org.example.todo.server.app.ServerConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mixed read/write throughput of each {@link ServerConfig.StorageProfile}: every client works on its own 30-task
+ * board, sending {@code update_task_status} for the given share of requests and {@code list_tasks} otherwise.
+ * Each profile and write share gets a fresh server and database. Prints reads, writes and total req/s.
+ *
+ * <p>Arguments, all optional: clients (8), seconds per run (8), write percentages (20 50). Run like
+ * {@link PoolLatencyBench}.
+ */
+public final class StorageProfileBench {
+    private static final int TASKS_PER_BOARD = 30;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        long millis = TimeUnit.SECONDS.toMillis(args.length > 1 ? Long.parseLong(args[1]) : 8);
+        List<Integer> writePercents = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) writePercents.add(Integer.parseInt(args[i]));
+        if (writePercents.isEmpty()) writePercents = List.of(20, 50);
+
+        for (ServerConfig.StorageProfile profile : ServerConfig.StorageProfile.values()) {
+            for (int writePct : writePercents) {
+                try (BenchServer server = BenchServer.start("TODO_DB_PROFILE", profile.name().toLowerCase(Locale.ROOT))) {
+                    System.out.printf("%-10s %2d%% writes: %s%n", profile.name().toLowerCase(Locale.ROOT), writePct,
+                            run(server, clients, millis, writePct));
+                }
+            }
+        }
+    }
+
+    private static String run(BenchServer server, int clients, long millis, int writePct) throws Exception {
+        LongAdder reads = new LongAdder(), writes = new LongAdder();
+        CyclicBarrier ready = new CyclicBarrier(clients);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int k = 0; k < clients; k++) {
+                running.add(pool.submit(() -> {
+                    try (TcpClient c = server.client()) {
+                        String token = BenchServer.register(c, "mix");
+                        String boardId = BenchServer.createBoard(c, token, "mix");
+                        List<String> ids = BenchServer.addTasks(c, token, boardId, TASKS_PER_BOARD);
+                        Random r = new Random();
+                        String[] statuses = {"todo", "inProgress", "done"};
+                        ready.await();
+                        long end = System.currentTimeMillis() + millis;
+                        while (System.currentTimeMillis() < end) {
+                            JsonObject p = new JsonObject();
+                            p.addProperty("boardId", boardId);
+                            if (r.nextInt(100) < writePct) {
+                                p.addProperty("taskId", ids.get(r.nextInt(ids.size())));
+                                p.addProperty("newStatus", statuses[r.nextInt(statuses.length)]);
+                                BenchServer.call(c, "update_task_status", p, token);
+                                writes.increment();
+                            } else {
+                                BenchServer.call(c, "list_tasks", p, token);
+                                reads.increment();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : running) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        double s = millis / 1000.0;
+        return String.format("reads=%.0f/s writes=%.0f/s total=%.0f/s", reads.sum() / s, writes.sum() / s,
+                (reads.sum() + writes.sum()) / s);
+    }
+}
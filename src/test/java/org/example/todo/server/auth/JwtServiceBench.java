@@ -0,0 +1,43 @@
+package org.example.todo.server.auth;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Throughput and allocation of token validation, run as a plain main (JMH is not available offline):
+ * 5 s warmup, then 5 runs of 2 s per operation, printing ops/s with its standard deviation and bytes allocated per call.
+ */
+public final class JwtServiceBench {
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        JwtService jwt = new JwtService("dev-secret-change-me".getBytes(StandardCharsets.UTF_8));
+        long now = System.currentTimeMillis();
+        String token = jwt.createToken("92525cda-8791-4df6-8f74-a1cbc15dac02", "alice", now, now + 86_400_000L);
+        ThreadMXBean tmx = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (String op : new String[]{"parseAndValidate", "getJti"}) {
+            boolean validate = op.equals("parseAndValidate");
+            long end = System.nanoTime() + 5_000_000_000L;
+            while (System.nanoTime() < end) for (int i = 0; i < 1000; i++) sink = validate ? jwt.parseAndValidate(token) : jwt.getJti(token);
+            double[] rates = new double[5];
+            long alloc0 = tmx.getCurrentThreadAllocatedBytes(), ops = 0;
+            for (int k = 0; k < rates.length; k++) {
+                long n = 0, start = System.nanoTime();
+                end = start + 2_000_000_000L;
+                while (System.nanoTime() < end) {
+                    for (int i = 0; i < 1000; i++) sink = validate ? jwt.parseAndValidate(token) : jwt.getJti(token);
+                    n += 1000;
+                }
+                rates[k] = n / ((System.nanoTime() - start) / 1e9);
+                ops += n;
+            }
+            double mean = 0, var = 0;
+            for (double r : rates) mean += r / rates.length;
+            for (double r : rates) var += (r - mean) * (r - mean) / (rates.length - 1);
+            System.out.printf("%s: %.0f ops/s ± %.0f, %.0f B/op%n", op, mean, Math.sqrt(var),
+                    (tmx.getCurrentThreadAllocatedBytes() - alloc0) / (double) ops);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.todo.server.auth;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+    private static final byte[] SECRET = "k3y".getBytes(StandardCharsets.UTF_8);
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final String[] USERNAMES = {"alice", "علی", "a\"b", "x<y>&z='q'", "back\\slash", "tab\tnl\n", "😀", ""};
+    private static final String[] PAYLOADS = {
+            "{\"sub\":\"u\",\"exp\":99999999999,\"jti\":\"j\",\"extra\":{\"a\":1}}",
+            "{\"sub\":\"u\",\"exp\":99999999999,\"jti\":null}",
+            " { \"jti\" : \"j\" , \"exp\" : 99999999999 } ",
+            "{\"exp\":\"99999999999\"}",
+            "{\"exp\":1e20}",
+            "not json",
+            "{\"jti\":\"j\",\"exp\":99999999999,}",
+            "[]",
+            "{\"sub\":\"\\u0061\",\"exp\":99999999999,\"jti\":\"j\\\"q\"}",
+            "{\"sub\":\"é\",\"iat\":-5,\"exp\":99999999999,\"jti\":\"j\"}",
+            "{\"exp\":99999999999,\"exp\":1}",
+            "{\"exp\":123456789012345678901}",
+            "{\"exp\":99999999999} x",
+            "{\"exp\":true}"};
+
+    private final JwtService jwt = new JwtService(SECRET);
+    private final Reference reference = new Reference();
+
+    @Test
+    void issuedTokensRoundTripEveryUsername() {
+        long now = System.currentTimeMillis();
+        for (String u : USERNAMES) {
+            JwtService.Issued issued = jwt.issue("uid-" + u, u, now, now + 100_000);
+            JwtService.Claims c = jwt.parseAndValidate(issued.token());
+            assertEquals("uid-" + u, c.userId);
+            assertEquals(u, c.username);
+            assertEquals(now / 1000 * 1000, c.issuedAtMillis);
+            assertEquals((now + 100_000) / 1000 * 1000, c.expiresAtMillis);
+            assertEquals(issued.jti(), c.jti);
+            assertEquals(issued.jti(), jwt.getJti(issued.token()));
+        }
+    }
+
+    @Test
+    void expiredAndTamperedTokensAreRejected() {
+        long now = System.currentTimeMillis();
+        String expired = jwt.createToken("u", "alice", now - 200_000, now - 100_000);
+        assertEquals("Token expired", assertThrows(SecurityException.class, () -> jwt.parseAndValidate(expired)).getMessage());
+        String good = jwt.createToken("u", "alice", now, now + 100_000);
+        String flipped = good.substring(0, good.length() - 1) + (good.endsWith("A") ? "B" : "A");
+        assertThrows(SecurityException.class, () -> jwt.parseAndValidate(flipped));
+        assertThrows(SecurityException.class, () -> new JwtService("other".getBytes(StandardCharsets.UTF_8)).parseAndValidate(good));
+        assertThrows(IllegalArgumentException.class, () -> jwt.parseAndValidate("a.b"));
+        assertThrows(IllegalArgumentException.class, () -> jwt.getJti("a.b.c.d"));
+    }
+
+    /** Every token shape gives the same claims or the same failure as the plain split-and-Gson implementation it replaced. */
+    @Test
+    void matchesGsonImplementationOnEveryShape() throws Exception {
+        long now = System.currentTimeMillis();
+        List<String> tokens = new ArrayList<>();
+        for (String u : USERNAMES)
+            for (long exp : new long[]{now + 100_000, now - 100_000}) tokens.add(jwt.createToken("uid-" + u.length(), u, now, exp));
+        String good = tokens.get(0), hdr = good.substring(0, good.indexOf('.')), sig = good.substring(good.lastIndexOf('.') + 1);
+        for (String payload : PAYLOADS) {
+            String in = hdr + "." + B64.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+            tokens.add(in + "." + B64.encodeToString(hmac(in)));
+            tokens.add(in + "." + sig);
+        }
+        tokens.add(good + "x");
+        tokens.add(good.substring(0, good.length() - 1) + (good.endsWith("A") ? "B" : "A"));
+        tokens.add("a.b");
+        tokens.add("a.b.c.d");
+        tokens.add(good.replace('.', ','));
+        tokens.add(hdr + ".." + sig);
+        tokens.add(good + "é");
+        tokens.add(good + "=");
+        tokens.add(good.substring(0, good.length() - 1) + (char) (good.charAt(good.length() - 1) ^ 1));
+
+        int cases = 0;
+        for (String t : tokens) {
+            assertEquals(outcome(() -> reference.parseAndValidate(t)), outcome(() -> jwt.parseAndValidate(t)), "parseAndValidate " + t);
+            assertEquals(outcome(() -> reference.getJti(t)), outcome(() -> jwt.getJti(t)), "getJti " + t);
+            cases += 2;
+        }
+        assertEquals(106, cases);
+    }
+
+    private static String outcome(Supplier<Object> call) {
+        try {
+            Object r = call.get();
+            if (!(r instanceof JwtService.Claims c)) return String.valueOf(r);
+            return c.userId + "|" + c.username + "|" + c.issuedAtMillis + "|" + c.expiresAtMillis + "|" + c.jti;
+        } catch (SecurityException e) {
+            return "Security: " + e.getMessage();
+        } catch (RuntimeException e) {
+            return "Failed: " + e.getClass().getSimpleName();
+        }
+    }
+
+    private static byte[] hmac(String signingInput) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET, "HmacSHA256"));
+        return mac.doFinal(signingInput.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** The split-and-Gson parsing JwtService used before the byte-level fast path. */
+    private static final class Reference {
+        private static final Gson GSON = new Gson();
+        private static final Base64.Decoder B64_URL_DECODER = Base64.getUrlDecoder();
+
+        JwtService.Claims parseAndValidate(String token) {
+            String[] parts = token.split("\\.");
+            if (parts.length != 3) throw new IllegalArgumentException("Invalid JWT format");
+            byte[] expectedSig;
+            try {
+                expectedSig = hmac(parts[0] + "." + parts[1]);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            if (!PasswordHasher.constantTimeEquals(expectedSig, B64_URL_DECODER.decode(parts[2])))
+                throw new SecurityException("Invalid JWT signature");
+            Payload p = GSON.fromJson(new String(B64_URL_DECODER.decode(parts[1]), StandardCharsets.UTF_8), Payload.class);
+            if (p.exp < System.currentTimeMillis() / 1000L) throw new SecurityException("Token expired");
+            return new JwtService.Claims(p.sub, p.username, p.iat * 1000L, p.exp * 1000L, p.jti);
+        }
+
+        String getJti(String token) {
+            String[] parts = token.split("\\.");
+            if (parts.length != 3) throw new IllegalArgumentException("Invalid JWT");
+            return GSON.fromJson(new String(B64_URL_DECODER.decode(parts[1]), StandardCharsets.UTF_8), Payload.class).jti;
+        }
+
+        private static class Payload {
+            String sub;
+            String username;
+            long iat;
+            long exp;
+            String jti;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.todo.server.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitWriterTest {
+    @TempDir Path dir;
+    Connection connection;
+    GroupCommitWriter writer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("w.db"));
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate("CREATE TABLE t (v INTEGER PRIMARY KEY)");
+        }
+        writer = new GroupCommitWriter(connection, null, 64, TimeUnit.MILLISECONDS.toNanos(50), 1000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writer.close();
+        connection.close();
+    }
+
+    private static SqlWork<Void> insert(int v) {
+        return c -> {
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO t(v) VALUES(?)")) {
+                ps.setInt(1, v);
+                ps.executeUpdate();
+            }
+            return null;
+        };
+    }
+
+    private List<Integer> rows() throws SQLException {
+        List<Integer> out = new ArrayList<>();
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery("SELECT v FROM t ORDER BY v")) {
+            while (rs.next()) out.add(rs.getInt(1));
+        }
+        return out;
+    }
+
+    private String awaitStats(String part) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        String stats;
+        while (!(stats = writer.toString()).contains(part)) {
+            assertTrue(System.nanoTime() < deadline, stats);
+            Thread.sleep(5);
+        }
+        return stats;
+    }
+
+    @Test
+    void errorInOneWriteFailsOnlyItsCaller() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> ok = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                int v = i;
+                ok.add(pool.submit(() -> writer.submit(insert(v))));
+            }
+            Future<?> bad = pool.submit(() -> writer.submit(c -> {
+                insert(100).apply(c);
+                throw new StackOverflowError("deep");
+            }));
+            for (Future<?> f : ok) f.get(10, TimeUnit.SECONDS);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(List.of(1, 2, 3, 4, 5), rows()); // the failed write's own insert was rolled back
+
+        writer.submit(insert(6)); // and the writer is still alive
+        assertThrows(AssertionError.class, () -> writer.submit(c -> { throw new AssertionError("boom"); }));
+        writer.submit(insert(7));
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), rows());
+    }
+
+    @Test
+    void failedWriteInAGroupKeepsTheOthersCommitted() throws Exception {
+        // Hold the writer thread so the next six writes queue up and are committed as one group
+        CountDownLatch running = new CountDownLatch(1), release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(7);
+        try {
+            Future<?> blocker = pool.submit(() -> writer.submit(c -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                return insert(1).apply(c);
+            }));
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+            List<Future<?>> ok = new ArrayList<>();
+            for (int i = 2; i <= 6; i++) {
+                int v = i;
+                ok.add(pool.submit(() -> writer.submit(insert(v))));
+            }
+            Future<?> bad = pool.submit(() -> writer.submit(c -> {
+                insert(100).apply(c);
+                return insert(1).apply(c); // duplicate key, the whole write fails
+            }));
+            awaitStats("queued=6");
+            release.countDown();
+
+            blocker.get(10, TimeUnit.SECONDS);
+            for (Future<?> f : ok) f.get(10, TimeUnit.SECONDS);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(SQLException.class, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(List.of(1, 2, 3, 4, 5, 6), rows());
+        // Callers are completed before the writer updates its counters
+        String stats = awaitStats("groups=2 ");
+        assertTrue(stats.contains("groups=2 writes=7"), stats);
+        assertTrue(stats.contains("largestGroup=6 failedWrites=1 failedGroups=0"), stats);
+    }
+
+    @Test
+    void writesAfterCloseFailInsteadOfBlocking() throws Exception {
+        writer.submit(insert(1));
+        writer.close();
+        Future<?> f = Executors.newSingleThreadExecutor().submit(() -> writer.submit(insert(2)));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SQLException.class, e.getCause());
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.todo.server.db;
+
+import org.example.todo.server.app.ServerConfig;
+import org.example.todo.server.model.User;
+import org.example.todo.server.repository.UserRepository;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/** A migrated SQLite file in a test's temp directory; {@code env} pairs override the server defaults. */
+public final class TestDatabase implements AutoCloseable {
+    public final ServerConfig config;
+    public final DataSourceProvider dsp;
+
+    private TestDatabase(ServerConfig config, DataSourceProvider dsp) {
+        this.config = config;
+        this.dsp = dsp;
+    }
+
+    public static TestDatabase open(Path dir, String... env) throws Exception {
+        Map<String, String> vars = new HashMap<>();
+        vars.put("TODO_DB_FILE", dir.resolve("test.db").toString());
+        for (int i = 0; i + 1 < env.length; i += 2) vars.put(env[i], env[i + 1]);
+        ServerConfig config = ServerConfig.fromEnv(vars::get);
+        DataSourceProvider dsp = new DataSourceProvider(config);
+        new SchemaMigrator(dsp, config).ensureSchema();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (appliedMigrations(dsp) < SchemaMigrator.latestVersion()) {
+            if (System.currentTimeMillis() > deadline) throw new IllegalStateException("Schema migration did not finish");
+            Thread.sleep(10);
+        }
+        return new TestDatabase(config, dsp);
+    }
+
+    private static int appliedMigrations(DataSourceProvider dsp) throws SQLException {
+        try (Connection c = dsp.getConnection(); Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /** Inserts a user row and returns its id. */
+    public String createUser(String username) throws SQLException {
+        String id = UUID.randomUUID().toString();
+        new UserRepository(dsp).insert(new User(id, System.currentTimeMillis(), username, "hash", "salt"));
+        return id;
+    }
+
+    @Override
+    public void close() {
+        dsp.close();
+    }
+}
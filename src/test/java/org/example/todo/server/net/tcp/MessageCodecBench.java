@@ -0,0 +1,105 @@
+package org.example.todo.server.net.tcp;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.management.ThreadMXBean;
+import org.example.todo.server.protocol.Envelope;
+import org.example.todo.server.protocol.FrameCompression;
+import org.example.todo.server.protocol.TaskView;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.example.todo.server.protocol.ProtocolJson.GSON;
+
+/**
+ * Bytes allocated and time per request on the transport path: decode one {@code list_tasks} request frame and
+ * encode a JSON response carrying n tasks. "before" is the per-frame codec this class replaced (a
+ * DataInputStream per frame, the body as a String, a byte[] per encoded response); "after" is
+ * {@link MessageCodec} with its reused buffers. Plain main, 20k requests per round after warm-up rounds;
+ * arguments are the task counts (0 20 200).
+ */
+public final class MessageCodecBench {
+    private static final int REQUESTS = 20_000;
+    private static final int ROUNDS = 5;
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        int[] counts = args.length > 0 ? new int[args.length] : new int[]{0, 20, 200};
+        for (int i = 0; i < args.length; i++) counts[i] = Integer.parseInt(args[i]);
+        ThreadMXBean tmx = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Envelope req = new Envelope();
+        req.type = "request";
+        req.reqId = "r-123";
+        req.action = "list_tasks";
+        req.token = "x".repeat(180);
+        req.payload = new JsonObject();
+        req.payload.addProperty("boardId", UUID.randomUUID().toString());
+        byte[] reqBody = GSON.toJson(req).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(frames);
+        for (int i = 0; i < REQUESTS; i++) {
+            dos.writeInt(reqBody.length);
+            dos.write(reqBody);
+        }
+        byte[] input = frames.toByteArray();
+
+        for (int tasks : counts) {
+            Envelope resp = response(tasks);
+            long beforeB = 0, beforeNs = 0, afterB = 0, afterNs = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                InputStream in = new ByteArrayInputStream(input);
+                OutputStream out = OutputStream.nullOutputStream();
+                long a0 = tmx.getCurrentThreadAllocatedBytes(), t0 = System.nanoTime();
+                for (int i = 0; i < REQUESTS; i++) {
+                    sink = GSON.fromJson(new String(readFrame(in), StandardCharsets.UTF_8), Envelope.class);
+                    writeFrame(out, GSON.toJson(resp).getBytes(StandardCharsets.UTF_8));
+                }
+                beforeB = (tmx.getCurrentThreadAllocatedBytes() - a0) / REQUESTS;
+                beforeNs = (System.nanoTime() - t0) / REQUESTS;
+
+                MessageCodec codec = new MessageCodec(new ByteArrayInputStream(input), out, new FrameCompression(-1));
+                a0 = tmx.getCurrentThreadAllocatedBytes();
+                t0 = System.nanoTime();
+                for (int i = 0; i < REQUESTS; i++) {
+                    sink = codec.read();
+                    codec.write(resp, false);
+                }
+                afterB = (tmx.getCurrentThreadAllocatedBytes() - a0) / REQUESTS;
+                afterNs = (System.nanoTime() - t0) / REQUESTS;
+            }
+            System.out.printf("tasks=%-4d before: %,8d B/req %,6d ns/req   after: %,8d B/req %,6d ns/req%n",
+                    tasks, beforeB, beforeNs, afterB, afterNs);
+        }
+    }
+
+    private static Envelope response(int tasks) {
+        Envelope resp = new Envelope();
+        resp.type = "response";
+        resp.reqId = "r-123";
+        resp.action = "list_tasks";
+        JsonArray arr = new JsonArray();
+        for (int i = 0; i < tasks; i++) {
+            arr.add(GSON.toJsonTree(new TaskView(UUID.randomUUID().toString(), "b", "Task " + i, "desc " + i, "todo", "medium", null, 1_700_000_000_000L + i)));
+        }
+        resp.payload = new JsonObject();
+        resp.payload.add("tasks", arr);
+        return resp;
+    }
+
+    private static byte[] readFrame(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        return body;
+    }
+
+    private static void writeFrame(OutputStream os, byte[] body) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(body.length);
+        out.write(body);
+        out.flush();
+    }
+}
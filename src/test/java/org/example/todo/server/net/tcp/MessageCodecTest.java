@@ -0,0 +1,80 @@
+package org.example.todo.server.net.tcp;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.example.todo.server.protocol.BinaryProtocol;
+import org.example.todo.server.protocol.Utf8Source;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Frames that fail to decode still get an error reply the client can match: same encoding, same reqId. */
+class MessageCodecTest {
+    private final Utf8Source chars = new Utf8Source();
+
+    @Test
+    void brokenBinaryBodyKeepsItsReqIdAndEncoding() {
+        for (String reqId : new String[]{UUID.randomUUID().toString(), "r-7"}) {
+            JsonObject payload = new JsonObject();
+            payload.addProperty("boardId", UUID.randomUUID().toString());
+            payload.addProperty("title", "x".repeat(100));
+            byte[] frame = BinaryProtocol.encode(request(reqId, payload));
+            MessageCodec.Decoded ok = decode(frame);
+            assertTrue(ok.binary());
+            assertEquals("add_task", ok.env().action);
+
+            for (int cut = frame.length - 1; cut > frame.length - 100; cut -= 9) {
+                MessageCodec.Decoded d = decode(Arrays.copyOf(frame, cut));
+                assertTrue(d.binary(), "cut at " + cut);
+                assertEquals(reqId, d.env().reqId, "cut at " + cut);
+                assertNull(d.env().action);
+            }
+        }
+    }
+
+    @Test
+    void binaryBodyThatDoesNotBindKeepsItsReqId() {
+        JsonObject env = request("r-1", new JsonObject());
+        env.add("payload", new JsonArray());
+        MessageCodec.Decoded d = decode(BinaryProtocol.encode(env));
+        assertTrue(d.binary());
+        assertEquals("r-1", d.env().reqId);
+    }
+
+    @Test
+    void brokenBinaryHeaderIsStillAnsweredInBinary() {
+        byte[] frame = BinaryProtocol.encode(request("r-2", new JsonObject()));
+        for (int cut = 1; cut < 5; cut++) {
+            MessageCodec.Decoded d = decode(Arrays.copyOf(frame, cut));
+            assertTrue(d.binary(), "cut at " + cut);
+            assertNull(d.env(), "cut at " + cut);
+        }
+    }
+
+    @Test
+    void brokenJsonBodyKeepsItsReqId() {
+        MessageCodec.Decoded d = decode("{\"type\":\"request\",\"reqId\":\"r-3\",\"action\":\"add_task\",\"payload\":{\"title\":".getBytes(StandardCharsets.UTF_8));
+        assertFalse(d.binary());
+        assertEquals("r-3", d.env().reqId);
+        d = decode("{\"type\":".getBytes(StandardCharsets.UTF_8));
+        assertFalse(d.binary());
+        assertNull(d.env());
+    }
+
+    private MessageCodec.Decoded decode(byte[] frame) {
+        return MessageCodec.decode(frame, 0, frame.length, chars);
+    }
+
+    private static JsonObject request(String reqId, JsonObject payload) {
+        JsonObject env = new JsonObject();
+        env.addProperty("type", "request");
+        env.addProperty("reqId", reqId);
+        env.addProperty("action", "add_task");
+        env.add("payload", payload);
+        return env;
+    }
+}
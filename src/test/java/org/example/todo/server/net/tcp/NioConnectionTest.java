@@ -0,0 +1,137 @@
+package org.example.todo.server.net.tcp;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.example.todo.client.net.MessageCodec;
+import org.example.todo.server.auth.AuthService;
+import org.example.todo.server.auth.JwtService;
+import org.example.todo.server.auth.PasswordHasher;
+import org.example.todo.server.db.TestDatabase;
+import org.example.todo.server.protocol.FrameCompression;
+import org.example.todo.server.push.PushService;
+import org.example.todo.server.push.SubscriptionRegistry;
+import org.example.todo.server.push.UdpPushServer;
+import org.example.todo.server.repository.*;
+import org.example.todo.server.service.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.net.DatagramSocket;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Large and compressed frames are decoded off the event loop without reordering the requests around them. */
+class NioConnectionTest {
+    @TempDir Path dir;
+
+    @ParameterizedTest(name = "pipelining={0} deflate={1}")
+    @CsvSource({"false,false", "false,true", "true,false", "true,true"})
+    void largeFramesKeepTheirPlaceAmongSmallOnes(boolean pipelining, boolean deflate) throws Exception {
+        int tcp, udp;
+        try (ServerSocket s = new ServerSocket(0); DatagramSocket d = new DatagramSocket(0)) {
+            tcp = s.getLocalPort();
+            udp = d.getLocalPort();
+        }
+        try (TestDatabase db = TestDatabase.open(dir, "TODO_TCP_PORT", String.valueOf(tcp), "TODO_TCP_TRANSPORT", "nio",
+                "TODO_PIPELINING", String.valueOf(pipelining), "TODO_MAX_IN_FLIGHT", "4", "TODO_NIO_EVENT_LOOPS", "1");
+             UdpPushServer push = new UdpPushServer(udp);
+             NioTcpServer server = server(db, push)) {
+            server.start();
+            try (Socket socket = new Socket("127.0.0.1", tcp)) {
+                FrameCompression compression = new FrameCompression(1024);
+                MessageCodec codec = new MessageCodec(socket.getInputStream(), socket.getOutputStream(), compression);
+                if (deflate) {
+                    JsonObject hello = new JsonObject();
+                    JsonArray offered = new JsonArray();
+                    offered.add(FrameCompression.DEFLATE);
+                    hello.add("compression", offered);
+                    assertEquals(FrameCompression.DEFLATE, call(codec, "hello", hello, null).get("compression").getAsString());
+                    compression.enable();
+                }
+                JsonObject reg = new JsonObject();
+                reg.addProperty("username", "nio");
+                reg.addProperty("password", "pw123456");
+                String token = call(codec, "register", reg, null).get("token").getAsString();
+                JsonObject board = new JsonObject();
+                board.addProperty("name", "frames");
+                String boardId = call(codec, "create_board", board, token).getAsJsonObject("board").get("id").getAsString();
+
+                // every third request is a task whose description alone is over the loop's decode limit
+                Random r = new Random(5);
+                List<String> sent = new ArrayList<>();
+                Map<String, String> descriptions = new HashMap<>();
+                for (int i = 0; i < 40; i++) {
+                    JsonObject p = new JsonObject();
+                    p.addProperty("boardId", boardId);
+                    p.addProperty("title", "t" + i);
+                    p.addProperty("priority", "low");
+                    String description = i % 3 == 0 ? text(r, NioConnection.LOOP_DECODE_MAX + r.nextInt(100_000)) : "d" + i;
+                    p.addProperty("description", description);
+                    descriptions.put("t" + i, description);
+                    sent.add(send(codec, "add_task", p, token));
+                }
+                List<String> answered = new ArrayList<>();
+                for (int i = 0; i < sent.size(); i++) {
+                    JsonObject resp = codec.read();
+                    assertEquals("response", resp.get("type").getAsString(), resp.toString());
+                    answered.add(resp.get("reqId").getAsString());
+                }
+                if (pipelining) assertEquals(new HashSet<>(sent), new HashSet<>(answered));
+                else assertEquals(sent, answered);
+
+                JsonObject list = new JsonObject();
+                list.addProperty("boardId", boardId);
+                Map<String, String> stored = new HashMap<>();
+                for (var t : call(codec, "list_tasks", list, token).getAsJsonArray("tasks")) {
+                    JsonObject task = t.getAsJsonObject();
+                    stored.put(task.get("title").getAsString(), task.get("description").getAsString());
+                }
+                assertEquals(descriptions, stored);
+            }
+        }
+    }
+
+    private static NioTcpServer server(TestDatabase db, UdpPushServer udp) throws Exception {
+        JwtService jwt = new JwtService(db.config.getJwtSecret());
+        UserRepository users = new UserRepository(db.dsp);
+        SessionRepository sessions = new SessionRepository(db.dsp, db.config.getSessionCacheSize());
+        PushService push = new PushService(new SubscriptionRegistry(), udp);
+        BoardService boards = new BoardService(new BoardRepository(db.dsp), new MembershipRepository(db.dsp), users, db.dsp, push,
+                db.config.getBoardAccessCacheSize());
+        TaskService tasks = new TaskService(new TaskRepository(db.dsp), boards, db.dsp, push, db.config.getTaskCacheBytes(),
+                db.config.isTaskCacheVerify());
+        return new NioTcpServer(db.config, new UserService(db.config, new PasswordHasher(), jwt, users, sessions),
+                new AuthService(jwt, sessions), boards, tasks, push);
+    }
+
+    private static String text(Random r, int len) {
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) sb.append((char) ('a' + r.nextInt(26)));
+        return sb.toString();
+    }
+
+    private static String send(MessageCodec codec, String action, JsonObject payload, String token) throws Exception {
+        JsonObject env = new JsonObject();
+        String reqId = UUID.randomUUID().toString();
+        env.addProperty("type", "request");
+        env.addProperty("reqId", reqId);
+        env.addProperty("action", action);
+        if (token != null) env.addProperty("token", token);
+        env.add("payload", payload);
+        codec.write(env, false);
+        return reqId;
+    }
+
+    private static JsonObject call(MessageCodec codec, String action, JsonObject payload, String token) throws Exception {
+        String reqId = send(codec, action, payload, token);
+        JsonObject resp = codec.read();
+        assertEquals(reqId, resp.get("reqId").getAsString());
+        assertEquals("response", resp.get("type").getAsString(), resp.toString());
+        return resp.getAsJsonObject("payload");
+    }
+}
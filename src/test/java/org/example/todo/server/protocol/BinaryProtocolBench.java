@@ -0,0 +1,60 @@
+package org.example.todo.server.protocol;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.example.todo.server.protocol.ProtocolJson.GSON;
+
+/**
+ * Frame size and encode+decode time of a {@code list_tasks} response in JSON and in {@link BinaryProtocol}, as a
+ * plain main: 10 000 tasks by default, or the count given as argument; 5 rounds after 5 warm-up rounds.
+ */
+public final class BinaryProtocolBench {
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        JsonObject payload = new JsonObject();
+        payload.add("tasks", GSON.toJsonTree(tasks(n)));
+        Envelope env = new Envelope();
+        env.type = "response";
+        env.reqId = UUID.randomUUID().toString();
+        env.action = "list_tasks";
+        env.payload = payload;
+        JsonObject tree = GSON.toJsonTree(env).getAsJsonObject();
+
+        System.out.printf("%d tasks: JSON %,d B, binary %,d B%n", n,
+                GSON.toJson(tree).getBytes(StandardCharsets.UTF_8).length, BinaryProtocol.encode(tree).length);
+        int iters = Math.max(10, 200_000 / Math.max(1, n));
+        for (int round = 0; round < 10; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iters; i++) {
+                byte[] json = GSON.toJson(tree).getBytes(StandardCharsets.UTF_8);
+                sink = JsonParser.parseString(new String(json, StandardCharsets.UTF_8));
+            }
+            long jsonNs = (System.nanoTime() - t0) / iters;
+            t0 = System.nanoTime();
+            for (int i = 0; i < iters; i++) sink = BinaryProtocol.decode(BinaryProtocol.encode(tree));
+            long binaryNs = (System.nanoTime() - t0) / iters;
+            if (round >= 5) System.out.printf("encode+decode per frame: JSON %.2f ms, binary %.2f ms%n", jsonNs / 1e6, binaryNs / 1e6);
+        }
+    }
+
+    /** Tasks shaped like real ones: UUID ids, enum status and priority, every third without a due date. */
+    static List<TaskView> tasks(int n) {
+        String boardId = UUID.randomUUID().toString();
+        String[] statuses = {"todo", "inProgress", "done"}, priorities = {"low", "medium", "high"};
+        List<TaskView> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(new TaskView(UUID.randomUUID().toString(), boardId, "Task number " + i, "some description text " + i,
+                    statuses[i % 3], priorities[i / 3 % 3], i % 3 == 0 ? null : 1_700_000_000_000L + i * 60_000L,
+                    1_700_000_000_000L + i));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.todo.server.protocol;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.example.todo.server.protocol.ProtocolJson.GSON;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Whatever JSON carries, the binary encoding gives back the same tree and binds to the same objects. */
+class BinaryProtocolTest {
+    static final List<TaskView> TASKS = List.of(
+            new TaskView(UUID.randomUUID().toString(), UUID.randomUUID().toString(), "plain", "text", "todo", "low", null, 1_700_000_000_000L),
+            new TaskView("not-a-uuid", UUID.randomUUID().toString().toUpperCase(), "کار شماره ۱ 😀", null, "inProgress", "high", 1_800_000_000_000L, 0),
+            new TaskView(UUID.randomUUID().toString(), "b", "done", "say \"hi\"\n\ttab", "done", "medium", -1L, Long.MAX_VALUE),
+            new TaskView(null, null, "", "", "IN_PROGRESS", "HIGH", Long.MIN_VALUE, -5));
+    static final List<BoardSummary> BOARDS = List.of(
+            new BoardSummary(UUID.randomUUID().toString(), "بورد", UUID.randomUUID().toString(), 1_700_000_000_000L, "OWNER"),
+            new BoardSummary(UUID.randomUUID().toString(), "OWNER", "owner", 0, "MEMBER"),
+            new BoardSummary(UUID.randomUUID().toString(), "no role", UUID.randomUUID().toString(), 1, null));
+    static final List<BoardMemberView> MEMBERS = List.of(
+            new BoardMemberView(UUID.randomUUID().toString(), "alice", "OWNER", 1_700_000_000_000L),
+            new BoardMemberView(UUID.randomUUID().toString(), "علی", "MEMBER", 42),
+            new BoardMemberView("user-1", "", "guest", -42));
+
+    @Test
+    void envelopesRoundTrip() {
+        JsonObject viewBoard = new JsonObject();
+        viewBoard.add("board", GSON.toJsonTree(BOARDS.get(0)));
+        viewBoard.add("members", GSON.toJsonTree(MEMBERS));
+        viewBoard.add("tasks", GSON.toJsonTree(TASKS));
+        viewBoard.addProperty("nextCursor", "Y3JlYXRlZEF0fGFzYw");
+
+        JsonObject request = new JsonObject();
+        request.addProperty("boardId", UUID.randomUUID().toString());
+        JsonObject filters = new JsonObject();
+        JsonArray status = new JsonArray();
+        status.add("todo");
+        status.add("custom");
+        filters.add("status", status);
+        filters.addProperty("dueBefore", 1_800_000_000_000L);
+        request.add("filters", filters);
+        request.addProperty("limit", 50);
+
+        JsonObject odd = new JsonObject();
+        odd.addProperty("ratio", 0.25);
+        odd.addProperty("big", 1e300);
+        odd.addProperty("negative", -7);
+        odd.addProperty("flag", true);
+        odd.addProperty("off", false);
+        odd.add("nothing", JsonNull.INSTANCE);
+        odd.add("empty", new JsonArray());
+        odd.add("nested", GSON.toJsonTree(List.of(List.of(1, 2), List.of())));
+        odd.addProperty("", "empty key");
+        odd.addProperty("unknown key ✓", "value");
+
+        List<Envelope> envelopes = new ArrayList<>();
+        envelopes.add(envelope("request", "view_board", "eyJhbGciOiJIUzI1NiJ9.e30.sig", request));
+        envelopes.add(envelope("response", "view_board", null, viewBoard));
+        envelopes.add(envelope("response", "list_tasks", null, payload("tasks", GSON.toJsonTree(TASKS))));
+        envelopes.add(envelope("response", "list_tasks", null, payload("tasks", GSON.toJsonTree(TASKS.subList(0, 1)))));
+        envelopes.add(envelope("response", "list_boards", null, payload("boards", GSON.toJsonTree(BOARDS))));
+        envelopes.add(envelope("push", null, null, payload("task", GSON.toJsonTree(TASKS.get(1)))));
+        envelopes.add(envelope("error", "future_action", null, odd));
+        envelopes.add(envelope("unknown type", null, null, null));
+
+        for (Envelope env : envelopes) {
+            JsonObject tree = GSON.toJsonTree(env).getAsJsonObject();
+            byte[] frame = BinaryProtocol.encode(tree);
+            assertTrue(BinaryProtocol.isBinary(frame));
+            JsonObject back = BinaryProtocol.decode(frame);
+            if (!"unknown type".equals(env.type)) assertEquals(tree, back);
+            else assertNull(back.get("type"), "a type outside the table does not survive");
+            // member order may differ: table columns come back in first-seen order
+            assertEquals(withoutType(tree), withoutType(GSON.toJsonTree(GSON.fromJson(back, Envelope.class)).getAsJsonObject()));
+        }
+    }
+
+    @Test
+    void listsBindToTheSameObjects() {
+        JsonObject payload = new JsonObject();
+        payload.add("tasks", GSON.toJsonTree(TASKS));
+        payload.add("boards", GSON.toJsonTree(BOARDS));
+        payload.add("members", GSON.toJsonTree(MEMBERS));
+        JsonObject back = BinaryProtocol.decode(BinaryProtocol.encode(GSON.toJsonTree(envelope("response", "batch", null, payload)).getAsJsonObject()))
+                .getAsJsonObject("payload");
+        assertBindsTo(TASKS, back.getAsJsonArray("tasks"), TaskView[].class);
+        assertBindsTo(BOARDS, back.getAsJsonArray("boards"), BoardSummary[].class);
+        assertBindsTo(MEMBERS, back.getAsJsonArray("members"), BoardMemberView[].class);
+    }
+
+    @Test
+    void largeTaskListIsMuchSmallerThanJson() {
+        JsonObject tree = GSON.toJsonTree(envelope("response", "list_tasks", null, payload("tasks", GSON.toJsonTree(BinaryProtocolBench.tasks(10_000))))).getAsJsonObject();
+        byte[] json = GSON.toJson(tree).getBytes(StandardCharsets.UTF_8);
+        byte[] binary = BinaryProtocol.encode(tree);
+        assertEquals(tree, BinaryProtocol.decode(binary));
+        assertTrue(binary.length * 2 < json.length, binary.length + " vs " + json.length + " bytes");
+    }
+
+    @Test
+    void jsonAndTruncatedFramesAreRejected() {
+        byte[] json = "{\"type\":\"request\"}".getBytes(StandardCharsets.UTF_8);
+        assertFalse(BinaryProtocol.isBinary(json));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decode(json));
+        byte[] frame = BinaryProtocol.encode(GSON.toJsonTree(envelope("response", "list_tasks", null, payload("tasks", GSON.toJsonTree(TASKS)))).getAsJsonObject());
+        for (int len = 1; len < frame.length; len += 7) {
+            byte[] cut = Arrays.copyOf(frame, len);
+            assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decode(cut), "cut at " + len);
+        }
+    }
+
+    private static <T> void assertBindsTo(List<T> expected, JsonArray actual, Class<T[]> type) {
+        assertEquals(GSON.toJson(expected), GSON.toJson(GSON.fromJson(actual, type)));
+    }
+
+    private static JsonObject withoutType(JsonObject o) {
+        JsonObject c = o.deepCopy();
+        c.remove("type");
+        return c;
+    }
+
+    private static JsonObject payload(String key, JsonElement value) {
+        JsonObject p = new JsonObject();
+        p.add(key, value);
+        return p;
+    }
+
+    private static Envelope envelope(String type, String action, String token, JsonObject payload) {
+        Envelope e = new Envelope();
+        e.type = type;
+        e.reqId = UUID.randomUUID().toString();
+        e.action = action;
+        e.token = token;
+        e.payload = payload;
+        return e;
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.todo.server.protocol;
+
+import org.example.todo.server.net.tcp.MessageCodec;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** One deflate stream per direction, flushed at every frame boundary and bounded when inflated. */
+class FrameCompressionTest {
+    private static final int THRESHOLD = 1024;
+    private static final int MAX_FRAME = 16 * 1024 * 1024; // MessageCodec.MAX_FRAME
+
+    @Test
+    void framesRoundTripInOrderOverOneStream() throws IOException {
+        FrameCompression sender = new FrameCompression(THRESHOLD), receiver = new FrameCompression(THRESHOLD);
+        sender.enable();
+        Random r = new Random(7);
+        String repeated = text(r, 3000);
+        ByteSink sink = new ByteSink(4 * 1024);
+        int compressed = 0;
+        for (int i = 0; i < 200; i++) {
+            byte[] body = switch (i % 4) {
+                case 0 -> Arrays.copyOf(text(r, THRESHOLD).getBytes(StandardCharsets.UTF_8), r.nextInt(THRESHOLD));
+                case 1 -> (repeated + i).getBytes(StandardCharsets.UTF_8);
+                case 2 -> random(r, THRESHOLD + r.nextInt(300_000));
+                default -> text(r, THRESHOLD + r.nextInt(100_000)).getBytes(StandardCharsets.UTF_8);
+            };
+            sink.reset();
+            sink.putInt(0);
+            sink.put(body, 0, body.length);
+            boolean flagged = sender.compress(sink, 4);
+            assertEquals(body.length >= THRESHOLD, flagged, "frame " + i);
+            if (!flagged) {
+                // not compressed, and the stream was not touched: the receiver never sees it
+                assertArrayEquals(body, Arrays.copyOfRange(sink.array(), 4, sink.size()));
+                continue;
+            }
+            compressed++;
+            ByteSink plain = receiver.inflate(sink.array(), 4, sink.size() - 4, MAX_FRAME);
+            assertArrayEquals(body, Arrays.copyOf(plain.array(), plain.size()), "frame " + i);
+        }
+        assertEquals(150, compressed);
+    }
+
+    @Test
+    void laterFramesCompressAgainstEarlierOnes() throws IOException {
+        FrameCompression sender = new FrameCompression(THRESHOLD), receiver = new FrameCompression(THRESHOLD);
+        sender.enable();
+        byte[] body = random(new Random(3), 4096);
+        int[] sizes = new int[2];
+        for (int i = 0; i < 2; i++) {
+            ByteSink sink = new ByteSink(64);
+            sink.putInt(0);
+            sink.put(body, 0, body.length);
+            assertTrue(sender.compress(sink, 4));
+            sizes[i] = sink.size() - 4;
+            ByteSink plain = receiver.inflate(sink.array(), 4, sizes[i], MAX_FRAME);
+            assertArrayEquals(body, Arrays.copyOf(plain.array(), plain.size()));
+        }
+        assertTrue(sizes[0] > body.length, "random bytes do not compress: " + sizes[0]);
+        assertTrue(sizes[1] < 100, "a repeat within the window is a back-reference: " + sizes[1]);
+    }
+
+    @Test
+    void frameInflatingPastMaxFrameIsRefused() throws IOException {
+        FrameCompression sender = new FrameCompression(THRESHOLD);
+        sender.enable();
+        ByteSink sink = new ByteSink(64);
+        sink.putInt(0);
+        byte[] zeros = new byte[MAX_FRAME + 1];
+        sink.put(zeros, 0, zeros.length);
+        assertTrue(sender.compress(sink, 4));
+        assertTrue(sink.size() < 100_000, "compressed to " + sink.size());
+        sink.putIntAt(0, (sink.size() - 4) | FrameCompression.FLAG);
+
+        MessageCodec codec = new MessageCodec(new ByteArrayInputStream(Arrays.copyOf(sink.array(), sink.size())),
+                OutputStream.nullOutputStream(), new FrameCompression(THRESHOLD));
+        IOException e = assertThrows(IOException.class, codec::read);
+        assertTrue(e.getMessage().startsWith("Inflated frame exceeds"), e.getMessage());
+    }
+
+    @Test
+    void limitIsInclusive() throws IOException {
+        FrameCompression sender = new FrameCompression(0), receiver = new FrameCompression(0);
+        sender.enable();
+        byte[] body = new byte[50_000];
+        ByteSink sink = new ByteSink(64);
+        sink.put(body, 0, body.length);
+        assertTrue(sender.compress(sink, 0));
+        assertEquals(body.length, receiver.inflate(sink.array(), 0, sink.size(), body.length).size());
+
+        sink.reset();
+        sink.put(body, 0, body.length);
+        assertTrue(sender.compress(sink, 0));
+        IOException e = assertThrows(IOException.class, () -> receiver.inflate(sink.array(), 0, sink.size(), body.length - 1));
+        assertEquals("Inflated frame exceeds " + (body.length - 1) + " bytes", e.getMessage());
+    }
+
+    @Test
+    void corruptAndClosedStreamsAreErrors() {
+        FrameCompression receiver = new FrameCompression(THRESHOLD);
+        byte[] garbage = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01, 0x02};
+        IOException e = assertThrows(IOException.class, () -> receiver.inflate(garbage, 0, garbage.length, MAX_FRAME));
+        assertEquals("Corrupt compressed frame", e.getMessage());
+
+        FrameCompression sender = new FrameCompression(0);
+        sender.enable();
+        sender.end();
+        ByteSink sink = new ByteSink(64);
+        sink.put(new byte[2048], 0, 2048);
+        assertFalse(sender.compress(sink, 0), "an ended stream sends frames uncompressed");
+        assertEquals(2048, sink.size());
+        receiver.end();
+        assertThrows(IOException.class, () -> receiver.inflate(garbage, 0, garbage.length, MAX_FRAME));
+    }
+
+    @Test
+    void disabledSenderLeavesFramesAlone() {
+        FrameCompression sender = new FrameCompression(0);
+        ByteSink sink = new ByteSink(64);
+        sink.put(new byte[4096], 0, 4096);
+        assertFalse(sender.compress(sink, 0));
+        assertEquals(4096, sink.size());
+    }
+
+    private static String text(Random r, int len) {
+        String[] words = {"task", "board", "todo", "inProgress", "done", "priority", "high", "low", "کار", "😀"};
+        StringBuilder sb = new StringBuilder(len + 16);
+        while (sb.length() < len) sb.append(words[r.nextInt(words.length)]).append(r.nextBoolean() ? ' ' : ',');
+        return sb.substring(0, len);
+    }
+
+    private static byte[] random(Random r, int len) {
+        byte[] b = new byte[len];
+        r.nextBytes(b);
+        return b;
+    }
+}
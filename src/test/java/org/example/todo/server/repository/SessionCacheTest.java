@@ -0,0 +1,66 @@
+package org.example.todo.server.repository;
+
+import org.example.todo.server.model.Session;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionCacheTest {
+    private static Session session(String jti, long expiresAt) {
+        return new Session(jti, "user", expiresAt, 0);
+    }
+
+    @Test
+    void entryExpiresAtItsSessionExpiry() {
+        SessionCache cache = new SessionCache(100);
+        cache.put(session("a", 1000), 0);
+        assertEquals("a", cache.get("a", 999).session().getJti());
+        assertNull(cache.get("a", 1000));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.hits.sum());
+        assertEquals(1, cache.misses.sum());
+
+        cache.put(session("b", 1000), 1000);
+        cache.putLoaded("c", session("c", 500), cache.generation(), 1000);
+        assertEquals(0, cache.size(), "expired sessions are not cached");
+    }
+
+    @Test
+    void absentSessionIsCachedForTheNegativeTtl() {
+        SessionCache cache = new SessionCache(100);
+        cache.putLoaded("x", null, cache.generation(), 1000);
+        SessionCache.Entry e = cache.get("x", 1000 + SessionCache.NEGATIVE_TTL_MS - 1);
+        assertNotNull(e);
+        assertNull(e.session());
+        assertEquals(1, cache.negativeHits.sum());
+        assertNull(cache.get("x", 1000 + SessionCache.NEGATIVE_TTL_MS));
+        assertEquals(1, cache.misses.sum());
+    }
+
+    @Test
+    void lookupStartedBeforeRevokeDoesNotCacheWhatItRead() {
+        SessionCache cache = new SessionCache(100);
+        long generation = cache.generation();    // the lookup misses and reads the row...
+        cache.revoke("a", 0);                     // ...logout deletes it...
+        cache.putLoaded("a", session("a", 10_000), generation, 0); // ...and the lookup returns
+        assertNull(cache.get("a", 1).session());
+
+        cache.putLoaded("a", session("a", 10_000), cache.generation(), 2);
+        assertEquals("a", cache.get("a", 3).session().getJti(), "a later lookup may cache again");
+    }
+
+    @Test
+    void overCapacityDropsExpiredFirstThenDownToNinetyPercent() {
+        SessionCache cache = new SessionCache(10);
+        for (int i = 0; i < 5; i++) cache.put(session("old" + i, 2000), 0);
+        for (int i = 0; i < 5; i++) cache.put(session("live" + i, 10_000), 0);
+        assertEquals(10, cache.size());
+
+        cache.put(session("next", 10_000), 3000);
+        assertEquals(6, cache.size(), "the five expired entries made room");
+        assertEquals(0, cache.evictions.sum());
+        for (int i = 0; i < 5; i++) cache.revoke("gone" + i, 3000);
+        assertEquals(9, cache.size());
+        assertEquals(2, cache.evictions.sum());
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.todo.server.repository;
+
+import org.example.todo.server.db.TestDatabase;
+import org.example.todo.server.model.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** The cached session lookup against logouts running at the same time. */
+class SessionRepositoryTest {
+    @TempDir static Path dir;
+    static TestDatabase db;
+    static String userId;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        db = TestDatabase.open(dir);
+        userId = db.createUser("sessions");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void noLookupAfterLogoutFindsTheSession() throws Exception {
+        // unknown tokens looked up in between overflow a tiny cache, so the session keeps being evicted and re-read
+        SessionRepository sessions = new SessionRepository(db.dsp, 3);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicInteger stale = new AtomicInteger(), found = new AtomicInteger();
+        try {
+            for (int round = 0; round < 300; round++) {
+                String jti = UUID.randomUUID().toString();
+                sessions.insert(new Session(jti, userId, System.currentTimeMillis() + 60_000, System.currentTimeMillis()));
+                AtomicBoolean deleted = new AtomicBoolean();
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<?>> readers = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    String other = "unknown-" + t;
+                    readers.add(pool.submit(() -> {
+                        go.await();
+                        for (int i = 0; i < 200; i++) {
+                            boolean after = deleted.get();
+                            boolean present = sessions.findByJti(jti).isPresent();
+                            if (present) found.incrementAndGet();
+                            if (after && present) stale.incrementAndGet();
+                            sessions.findByJti(other + i);
+                        }
+                        return null;
+                    }));
+                }
+                go.countDown();
+                sessions.deleteByJti(jti);
+                deleted.set(true);
+                for (Future<?> f : readers) f.get(30, TimeUnit.SECONDS);
+                assertTrue(sessions.findByJti(jti).isEmpty(), "round " + round);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, stale.get(), "lookups that found a logged-out session");
+        assertTrue(found.get() > 0, "the race never let a lookup see the session");
+    }
+
+    @Test
+    void unknownTokenIsAnsweredFromTheCacheAfterOneQuery() throws Exception {
+        SessionRepository sessions = new SessionRepository(db.dsp, 1000);
+        for (int i = 0; i < 3; i++) assertTrue(sessions.findByJti("never-issued").isEmpty());
+        SessionRepository.CacheStats s = sessions.cacheStats();
+        assertEquals(1, s.misses());
+        assertEquals(2, s.negativeHits());
+    }
+}
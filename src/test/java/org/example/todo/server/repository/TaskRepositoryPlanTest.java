@@ -0,0 +1,57 @@
+package org.example.todo.server.repository;
+
+import org.example.todo.server.db.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskRepositoryPlanTest {
+    @TempDir Path dir;
+    TestDatabase db;
+    TaskRepository tasks;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = TestDatabase.open(dir);
+        tasks = new TaskRepository(db.dsp);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void everyListShapeIsReadFromItsIndex() throws Exception {
+        List<String> problems = tasks.checkListPlans();
+        assertTrue(problems.isEmpty(), () -> String.join("\n", problems));
+    }
+
+    @Test
+    void missingIndexIsReported() throws Exception {
+        db.dsp.write(c -> {
+            List<String> names = new ArrayList<>();
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = 'tasks' AND sql LIKE '%due_key%'")) {
+                while (rs.next()) names.add(rs.getString(1));
+            }
+            assertFalse(names.isEmpty());
+            try (Statement st = c.createStatement()) {
+                for (String n : names) st.executeUpdate("DROP INDEX " + n);
+            }
+            return null;
+        });
+        List<String> problems = tasks.checkListPlans();
+        assertEquals(4, problems.size(), () -> String.join("\n", problems)); // due sort without a due range: asc/desc, first/next page
+        assertTrue(problems.stream().allMatch(p -> p.contains("ORDER BY due_key")), () -> String.join("\n", problems));
+    }
+}
@@ -0,0 +1,202 @@
+package org.example.todo.server.service;
+
+import com.google.gson.JsonObject;
+import org.example.todo.server.db.TestDatabase;
+import org.example.todo.server.model.Task;
+import org.example.todo.server.protocol.BatchRequest;
+import org.example.todo.server.protocol.BatchResponse;
+import org.example.todo.server.repository.BoardRepository;
+import org.example.todo.server.repository.MembershipRepository;
+import org.example.todo.server.repository.TaskRepository;
+import org.example.todo.server.repository.TaskRepository.Keyset;
+import org.example.todo.server.repository.UserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.example.todo.server.service.TaskTestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** {@link BoardTaskCache} answers like {@link TaskRepository#listByBoard} after every kind of write, and stays in budget. */
+class BoardTaskCacheTest {
+    @TempDir static Path dir;
+    static TestDatabase db;
+    static TaskRepository tasks;
+    static BoardService boardService;
+    static String userId;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        db = TestDatabase.open(dir);
+        tasks = new TaskRepository(db.dsp);
+        boardService = new BoardService(new BoardRepository(db.dsp), new MembershipRepository(db.dsp), new UserRepository(db.dsp), db.dsp, null);
+        userId = db.createUser("cacher");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void listsMatchSqliteAfterEveryWrite() throws Exception {
+        BoardTaskCache cache = new BoardTaskCache(tasks, db.dsp, 64L << 20, false);
+        TaskService service = new TaskService(tasks, boardService, db.dsp, null, cache);
+        Random r = new Random(11);
+        String boardId = board("writes", 150, r);
+        List<Keyset> gone = new ArrayList<>(); // tasks deleted since, still valid as cursors
+        assertMatches(cache, boardId, gone);
+        assertEquals(1, cache.loads.sum());
+
+        for (int i = 0; i < 5; i++) {
+            service.addTask(userId, boardId, "added " + i, null, PRIORITIES.get(i % 3), i % 2 == 0 ? null : BASE_TIME + i * 3000L);
+        }
+        assertMatches(cache, boardId, gone);
+
+        List<Task> all = tasks.listByBoard(boardId, null, null, null, null, null, null);
+        for (int i = 0; i < 5; i++) service.updateTaskStatus(userId, boardId, all.get(i * 7).getId(), STATUSES.get(i % 3));
+        assertMatches(cache, boardId, gone);
+
+        for (int i = 0; i < 5; i++) {
+            Task t = all.get(100 + i * 3);
+            service.deleteTask(userId, boardId, t.getId());
+            for (String sort : SORTS) gone.add(TaskRepository.keysetOf(t, sort));
+        }
+        assertMatches(cache, boardId, gone);
+
+        List<BatchRequest.Item> items = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            items.add(item("add_task", "boardId", boardId, "title", "batch " + i, "priority", "high", "dueDate", BASE_TIME + i * 5000L));
+            items.add(item("update_task_status", "boardId", boardId, "taskId", all.get(50 + i).getId(), "newStatus", "done"));
+        }
+        for (int i = 0; i < 3; i++) items.add(item("delete_task", "boardId", boardId, "taskId", all.get(60 + i).getId()));
+        items.add(item("update_task_status", "boardId", boardId, "taskId", "missing", "newStatus", "done"));
+        List<BatchResponse.Result> results = service.applyBatch(userId, items);
+        assertEquals(11, results.stream().filter(x -> x.ok).count());
+        for (int i = 0; i < 3; i++) for (String sort : SORTS) gone.add(TaskRepository.keysetOf(all.get(60 + i), sort));
+        assertMatches(cache, boardId, gone);
+
+        TaskImport imp = service.startImport(userId, boardId, "jsonl");
+        for (int i = 0; i < 30; i++) imp.feed("{\"title\":\"imported " + i + "\",\"status\":\"" + STATUSES.get(i % 3) + "\",\"dueDate\":" + (BASE_TIME + i * 700L) + "}\n");
+        assertEquals(30, service.finishImport(userId, imp).imported());
+        assertMatches(cache, boardId, gone);
+
+        assertEquals(2, cache.loads.sum(), "the import drops the board, the next list loads it again");
+        assertEquals(0, cache.uncached.sum());
+        assertEquals(0, cache.mismatches.sum());
+    }
+
+    @Test
+    void verifyCatchesAWriteTheCacheWasNotTold() throws Exception {
+        BoardTaskCache cache = new BoardTaskCache(tasks, db.dsp, 64L << 20, true);
+        String boardId = board("verify", 40, new Random(5));
+        assertEquals(sql(boardId, null), ids(cache.list(boardId, null, null, null, null, null, null, null, -1)));
+
+        tasks.insert(randomTask(new Random(6), boardId)); // no refresh
+        assertEquals(sql(boardId, null), ids(cache.list(boardId, null, null, null, null, null, null, null, -1)), "SQLite wins");
+        assertEquals(1, cache.mismatches.sum());
+        assertEquals(0, cache.boards(), "the board is dropped");
+
+        assertEquals(sql(boardId, null), ids(cache.list(boardId, null, null, null, null, null, null, null, -1)));
+        assertEquals(2, cache.loads.sum());
+        assertEquals(1, cache.mismatches.sum());
+    }
+
+    @Test
+    void leastRecentlyListedBoardsAreEvictedOverBudget() throws Exception {
+        long perBoard = 10 * (600 + 2 * "t00".length());
+        BoardTaskCache cache = new BoardTaskCache(tasks, db.dsp, 40_000, false);
+        List<String> boards = new ArrayList<>();
+        for (int b = 0; b < 7; b++) boards.add(fixedBoard("lru " + b, 10));
+        for (int b = 0; b < 6; b++) cache.list(boards.get(b), null, null, null, null, null, null, null, -1);
+        assertEquals(6 * perBoard, cache.bytes());
+        cache.list(boards.get(0), null, null, null, null, null, null, null, -1); // now board 1 is the oldest
+
+        cache.list(boards.get(6), null, null, null, null, null, null, null, -1);
+        assertEquals(2, cache.evictions.sum());
+        assertEquals(5, cache.boards());
+        assertEquals(5 * perBoard, cache.bytes());
+        assertTrue(cache.bytes() <= 40_000);
+
+        long loads = cache.loads.sum();
+        cache.list(boards.get(0), null, null, null, null, null, null, null, -1);
+        cache.list(boards.get(3), null, null, null, null, null, null, null, -1);
+        assertEquals(loads, cache.loads.sum(), "boards 0 and 3 stayed");
+        assertEquals(sql(boards.get(1), null), ids(cache.list(boards.get(1), null, null, null, null, null, null, null, -1)));
+        assertEquals(loads + 1, cache.loads.sum(), "board 1 was evicted");
+        assertTrue(cache.bytes() <= 40_000);
+    }
+
+    @Test
+    void boardOverAQuarterOfTheBudgetIsListedFromSqlite() throws Exception {
+        BoardTaskCache cache = new BoardTaskCache(tasks, db.dsp, 40_000, false);
+        String boardId = fixedBoard("large", 20);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(sql(boardId, "priority"), ids(cache.list(boardId, null, null, null, null, "priority", null, null, -1)));
+        }
+        assertEquals(2, cache.uncached.sum());
+        assertEquals(0, cache.loads.sum());
+        assertEquals(0, cache.boards());
+        assertEquals(0, cache.bytes());
+    }
+
+    /** Every sort, order and filter, from the start and from cursors on rows still there and on rows deleted. */
+    private static void assertMatches(BoardTaskCache cache, String boardId, List<Keyset> gone) throws Exception {
+        for (String sort : SORTS)
+            for (String order : List.of("asc", "desc"))
+                for (Filter f : FILTERS) {
+                    String what = sort + " " + order + " " + f;
+                    List<Task> full = tasks.listByBoard(boardId, f.statuses(), f.priorities(), f.dueBefore(), f.dueAfter(), sort, order, null, -1);
+                    assertEquals(ids(full), ids(cache.list(boardId, f.statuses(), f.priorities(), f.dueBefore(), f.dueAfter(), sort, order, null, -1)), what);
+                    List<Keyset> cursors = new ArrayList<>();
+                    for (int i = 0; i < full.size(); i += 17) cursors.add(TaskRepository.keysetOf(full.get(i), sort));
+                    for (int i = sortIndex(sort); i < gone.size(); i += SORTS.size()) cursors.add(gone.get(i));
+                    for (Keyset after : cursors)
+                        for (int limit : new int[]{1, 10, -1}) {
+                            assertEquals(ids(tasks.listByBoard(boardId, f.statuses(), f.priorities(), f.dueBefore(), f.dueAfter(), sort, order, after, limit)),
+                                    ids(cache.list(boardId, f.statuses(), f.priorities(), f.dueBefore(), f.dueAfter(), sort, order, after, limit)),
+                                    what + " after " + after + " limit " + limit);
+                        }
+                }
+    }
+
+    private static int sortIndex(String sort) { return SORTS.indexOf(sort); }
+
+    private static String board(String name, int n, Random r) throws Exception {
+        String boardId = boardService.createBoard(userId, name).getId();
+        for (int i = 0; i < n; i++) tasks.insert(randomTask(r, boardId));
+        return boardId;
+    }
+
+    /** Tasks of a known cache size: three-char titles, no description. */
+    private static String fixedBoard(String name, int n) throws Exception {
+        String boardId = boardService.createBoard(userId, name).getId();
+        for (int i = 0; i < n; i++) {
+            tasks.insert(new Task(UUID.randomUUID().toString(), BASE_TIME + i, boardId, String.format("t%02d", i), null, "TODO", "MEDIUM", null));
+        }
+        return boardId;
+    }
+
+    private static List<String> sql(String boardId, String sort) throws Exception {
+        return ids(tasks.listByBoard(boardId, null, null, null, null, sort, null, null, -1));
+    }
+
+    private static List<String> ids(List<Task> ts) {
+        List<String> out = new ArrayList<>(ts.size());
+        for (Task t : ts) out.add(t.getId() + ":" + t.getStatus());
+        return out;
+    }
+
+    private static BatchRequest.Item item(String action, Object... pairs) {
+        JsonObject payload = new JsonObject();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (pairs[i + 1] instanceof Number n) payload.addProperty((String) pairs[i], n);
+            else payload.addProperty((String) pairs[i], (String) pairs[i + 1]);
+        }
+        return new BatchRequest.Item(action, payload);
+    }
+}
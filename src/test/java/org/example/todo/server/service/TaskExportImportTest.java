@@ -0,0 +1,92 @@
+package org.example.todo.server.service;
+
+import org.example.todo.server.db.TestDatabase;
+import org.example.todo.server.model.Task;
+import org.example.todo.server.repository.BoardRepository;
+import org.example.todo.server.repository.MembershipRepository;
+import org.example.todo.server.repository.TaskRepository;
+import org.example.todo.server.repository.UserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** A board exported in chunks and imported into another board, chunks cut anywhere, comes back unchanged. */
+class TaskExportImportTest {
+    static final String[] TEXTS = {"plain", "comma, inside", "say \"hi\"", "two\nlines", "crlf\r\nline", "é 😀 علی",
+            "trailing\r", "\"", ",", "  spaced  "};
+
+    @TempDir static Path dir;
+    static TestDatabase db;
+    static TaskRepository tasks;
+    static BoardService boardService;
+    static TaskService service;
+    static String userId;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        db = TestDatabase.open(dir);
+        tasks = new TaskRepository(db.dsp);
+        boardService = new BoardService(new BoardRepository(db.dsp), new MembershipRepository(db.dsp), new UserRepository(db.dsp), db.dsp, null);
+        service = new TaskService(tasks, boardService, db.dsp, null);
+        userId = db.createUser("porter");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        db.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(TaskFormat.class)
+    void exportThenImportKeepsEveryTask(TaskFormat format) throws Exception {
+        Random r = new Random(format.ordinal());
+        String source = boardService.createBoard(userId, "source " + format).getId();
+        for (int i = 0; i < 300; i++) {
+            String title = TEXTS[r.nextInt(TEXTS.length)] + " " + i;
+            String description = r.nextInt(3) == 0 ? null : TEXTS[r.nextInt(TEXTS.length)];
+            Long due = r.nextInt(4) == 0 ? null : TaskTestData.BASE_TIME + r.nextInt(1000) * 1000L;
+            tasks.insert(new Task(UUID.randomUUID().toString(), TaskTestData.BASE_TIME + r.nextInt(50), source, title, description,
+                    TaskTestData.STATUSES.get(r.nextInt(3)), TaskTestData.PRIORITIES.get(r.nextInt(3)), due));
+        }
+
+        StringBuilder exported = new StringBuilder();
+        String cursor = null;
+        int chunks = 0;
+        do {
+            cursor = service.exportTasks(userId, source, format.name(), cursor, 37, exported);
+            chunks++;
+        } while (cursor != null);
+        assertEquals(9, chunks);
+
+        String target = boardService.createBoard(userId, "target " + format).getId();
+        TaskImport imp = service.startImport(userId, target, format.name());
+        for (String chunk : TaskImportTest.randomSplit(exported.toString(), r)) imp.feed(chunk);
+        TaskImport.Summary s = service.finishImport(userId, imp);
+        assertEquals(300, s.imported(), s.errors().toString());
+        assertEquals(0, s.rejected());
+
+        assertEquals(describe(source), describe(target));
+    }
+
+    /** The board's tasks without id and board, sorted: imported ids order ties on createdAt differently. */
+    private static List<String> describe(String boardId) throws Exception {
+        List<String> out = new ArrayList<>();
+        for (Task t : tasks.listByBoard(boardId, null, null, null, null, null, null, null, 1000)) {
+            out.add(t.getTitle() + "|" + t.getDescription() + "|" + t.getStatus() + "|" + t.getPriority() + "|"
+                    + t.getDueDate() + "|" + t.getCreatedAt());
+        }
+        assertEquals(300, out.size());
+        out.sort(null);
+        return out;
+    }
+}
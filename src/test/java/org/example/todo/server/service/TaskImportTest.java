@@ -0,0 +1,153 @@
+package org.example.todo.server.service;
+
+import org.example.todo.server.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Parsing of {@link TaskImport}: the result may not depend on where the text is cut into chunks. */
+class TaskImportTest {
+    /** Columns out of order plus an unknown one; quoted commas, line breaks and quotes; CRLF line ends. */
+    static final String CSV = "priority,extra,title,dueDate,description,status,createdAt\r\n"
+            + "HIGH,x,plain,1700000000000,,TODO,1600000000000\r\n"
+            + "low,,\"comma, inside\",,\"two\nlines\",inProgress,\r\n"
+            + ",,\"say \"\"hi\"\"\",,\"crlf\r\ninside\",done,\n"
+            + "MEDIUM,,\"\"\"\",,\"\",,\n"
+            + "\n"
+            + "HIGH,,,,no title,TODO,\n"
+            + "HIGH,,bad due,soon,,TODO,\n"
+            + ",,last without newline,,,,";
+
+    static final String JSONL = "{\"title\":\"a\",\"priority\":\"high\",\"dueDate\":1700000000000}\n"
+            + "{\"title\":\"quote \\\" and \\n newline\",\"description\":\"d\",\"status\":\"done\",\"createdAt\":5}\r\n"
+            + "\n"
+            + "{\"title\":\"\"}\n"
+            + "{not json\n"
+            + "{\"title\":\"é 😀\"}";
+
+    @Test
+    void csvFieldsFollowRfc4180() {
+        assertEquals(Arrays.asList("a", null, "b"), TaskFormat.csvFields("a,,b"));
+        assertEquals(Arrays.asList("", null), TaskFormat.csvFields("\"\","));
+        assertEquals(List.of("x,y", "say \"hi\"", "two\nlines"), TaskFormat.csvFields("\"x,y\",\"say \"\"hi\"\"\",\"two\nlines\""));
+        assertEquals(List.of("\""), TaskFormat.csvFields("\"\"\"\""));
+        assertEquals(Arrays.asList(null, null), TaskFormat.csvFields(","));
+    }
+
+    @Test
+    void csvImportsAndRejectsByLine() throws Exception {
+        Result r = run(TaskFormat.CSV, List.of(CSV), 2);
+        assertEquals(List.of(
+                "plain|null|TODO|HIGH|1700000000000|1600000000000",
+                "comma, inside|two\nlines|IN_PROGRESS|LOW|null|now",
+                "say \"hi\"|crlf\r\ninside|DONE|MEDIUM|null|now",
+                "\"||TODO|MEDIUM|null|now",
+                "last without newline|null|TODO|MEDIUM|null|now"), r.tasks);
+        assertEquals(5, r.summary.imported());
+        assertEquals(2, r.summary.rejected());
+        assertEquals(2, r.summary.errors().size());
+        assertTrue(r.summary.errors().get(0).startsWith("line 9: "), r.summary.errors().toString());
+        assertEquals("line 10: رکورد نامعتبر", r.summary.errors().get(1));
+    }
+
+    @Test
+    void jsonlImportsAndRejectsByLine() throws Exception {
+        Result r = run(TaskFormat.JSONL, List.of(JSONL), 100);
+        assertEquals(List.of(
+                "a|null|TODO|HIGH|1700000000000|now",
+                "quote \" and \n newline|d|DONE|MEDIUM|null|5",
+                "é 😀|null|TODO|MEDIUM|null|now"), r.tasks);
+        assertEquals(List.of("line 4: عنوان خالی است", "line 5: رکورد نامعتبر"), r.summary.errors());
+    }
+
+    @Test
+    void csvWithoutTitleColumnRejectsHeader() throws Exception {
+        Result r = run(TaskFormat.CSV, List.of("name,status\nx,TODO\n"), 10);
+        assertEquals(0, r.summary.imported());
+        assertEquals("line 1: ستون title در سرآیند CSV نیست", r.summary.errors().get(0));
+    }
+
+    @Test
+    void chunkBoundariesDoNotChangeTheResult() throws Exception {
+        for (TaskFormat format : TaskFormat.values()) {
+            String text = format == TaskFormat.CSV ? CSV : JSONL;
+            Result whole = run(format, List.of(text), 3);
+            Random random = new Random(7);
+            for (int round = 0; round < 200; round++) {
+                List<String> chunks = round == 0 ? split(text, 1) : randomSplit(text, random);
+                Result r = run(format, chunks, 1 + round % 4);
+                assertEquals(whole.tasks, r.tasks, format + " split " + chunks);
+                assertEquals(whole.summary.errors(), r.summary.errors(), format + " split " + chunks);
+                assertEquals(whole.summary.imported(), r.summary.imported());
+            }
+        }
+    }
+
+    @Test
+    void oversizedRecordIsRejectedAndLinesStillCount() throws Exception {
+        String huge = "{\"title\":\"" + "x".repeat(TaskImport.MAX_RECORD_CHARS) + "\"}";
+        String text = "{\"title\":\"before\"}\n" + huge + "\n{\"title\":\"after\"}\n{\n";
+        Result r = run(TaskFormat.JSONL, randomSplit(text, new Random(3)), 10);
+        assertEquals(List.of("before|null|TODO|MEDIUM|null|now", "after|null|TODO|MEDIUM|null|now"), r.tasks);
+        assertEquals(List.of("line 2: رکورد بیش از حد طولانی است", "line 4: رکورد نامعتبر"), r.summary.errors());
+
+        String csvHuge = "title,description\nbefore,\"" + "y".repeat(TaskImport.MAX_RECORD_CHARS) + "\nstill quoted\"\nafter,\n";
+        Result c = run(TaskFormat.CSV, randomSplit(csvHuge, new Random(4)), 10);
+        assertEquals(List.of("after|null|TODO|MEDIUM|null|now"), c.tasks);
+        assertEquals(List.of("line 2: رکورد بیش از حد طولانی است"), c.summary.errors());
+    }
+
+    @Test
+    void reportedErrorsAreCappedButAllCounted() throws Exception {
+        Result r = run(TaskFormat.JSONL, List.of("{\"title\":\"\"}\n".repeat(TaskImport.MAX_REPORTED_ERRORS + 5)), 10);
+        assertEquals(TaskImport.MAX_REPORTED_ERRORS + 5, r.summary.rejected());
+        assertEquals(TaskImport.MAX_REPORTED_ERRORS, r.summary.errors().size());
+    }
+
+    record Result(List<String> tasks, TaskImport.Summary summary) {}
+
+    /** Imports the chunks in order; tasks are described without their generated id, created "now" shown as such. */
+    static Result run(TaskFormat format, List<String> chunks, int batchRows) throws SQLException {
+        List<Task> written = new ArrayList<>();
+        long before = System.currentTimeMillis();
+        TaskImport imp = new TaskImport(format, "board", batchRows, batch -> {
+            assertTrue(batch.size() <= batchRows);
+            written.addAll(batch);
+        });
+        for (String chunk : chunks) imp.feed(chunk);
+        TaskImport.Summary s = imp.finish();
+        long after = System.currentTimeMillis();
+        List<String> out = new ArrayList<>();
+        for (Task t : written) {
+            assertEquals("board", t.getBoardId());
+            boolean now = t.getCreatedAt() >= before - 1000 && t.getCreatedAt() <= after;
+            out.add(t.getTitle() + "|" + t.getDescription() + "|" + t.getStatus() + "|" + t.getPriority() + "|"
+                    + t.getDueDate() + "|" + (now ? "now" : t.getCreatedAt()));
+        }
+        return new Result(out, s);
+    }
+
+    static List<String> split(String text, int size) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += size) out.add(text.substring(i, Math.min(text.length(), i + size)));
+        return out;
+    }
+
+    /** Cuts at random points, including between a CR and its LF and inside quotes and escapes. */
+    static List<String> randomSplit(String text, Random r) {
+        List<String> out = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            int n = r.nextInt(4) == 0 ? 1 + r.nextInt(Math.max(1, text.length() / 3)) : 1 + r.nextInt(12);
+            out.add(text.substring(i, Math.min(text.length(), i + n)));
+            i += n;
+        }
+        return out;
+    }
+}
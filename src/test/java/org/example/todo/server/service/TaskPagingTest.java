@@ -0,0 +1,128 @@
+package org.example.todo.server.service;
+
+import org.example.todo.server.db.TestDatabase;
+import org.example.todo.server.model.Task;
+import org.example.todo.server.repository.BoardRepository;
+import org.example.todo.server.repository.MembershipRepository;
+import org.example.todo.server.repository.TaskRepository;
+import org.example.todo.server.repository.UserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.example.todo.server.service.TaskTestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Keyset paging of {@code list_tasks}: every sort and direction, several page sizes, rows added between pages. */
+class TaskPagingTest {
+    @TempDir static Path dir;
+    static TestDatabase db;
+    static TaskRepository tasks;
+    static BoardService boardService;
+    static TaskService service;
+    static String userId;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        db = TestDatabase.open(dir);
+        tasks = new TaskRepository(db.dsp);
+        UserRepository users = new UserRepository(db.dsp);
+        boardService = new BoardService(new BoardRepository(db.dsp), new MembershipRepository(db.dsp), users, db.dsp, null);
+        service = new TaskService(tasks, boardService, db.dsp, null);
+        userId = db.createUser("pager");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        db.close();
+    }
+
+    static Stream<Arguments> cases() {
+        List<Arguments> out = new ArrayList<>();
+        for (String sort : SORTS)
+            for (String order : List.of("asc", "desc"))
+                for (int size : new int[]{1, 7, 200})
+                    for (Filter f : FILTERS) out.add(Arguments.of(sort, order, size, f));
+        return out.stream();
+    }
+
+    @ParameterizedTest(name = "{0} {1} page {2}, filter {3}")
+    @MethodSource("cases")
+    void pagesMatchTheFullList(String sort, String order, int size, Filter f) throws Exception {
+        String boardId = newBoard(250, new Random(Objects.hash(sort, order, size, f.name())));
+        List<Task> all = list(boardId, sort, order, f, null, null).tasks();
+        List<Task> paged = pageThrough(boardId, sort, order, f, size, null);
+        assertEquals(ids(all), ids(paged));
+        List<Task> expected = new ArrayList<>(all);
+        expected.sort(order(sort, order));
+        assertEquals(ids(expected), ids(all), "full list out of order");
+        assertTrue(all.stream().allMatch(f::matches));
+    }
+
+    @ParameterizedTest(name = "{0} {1} page {2}, filter {3}")
+    @MethodSource("cases")
+    void rowsAddedBetweenPagesNeitherRepeatNorHideOthers(String sort, String order, int size, Filter f) throws Exception {
+        Random r = new Random(Objects.hash(sort, order, size, f.name(), "inserts"));
+        String boardId = newBoard(120, r);
+        List<Task> before = list(boardId, sort, order, f, null, null).tasks();
+        List<Task> paged = pageThrough(boardId, sort, order, f, size, () -> {
+            for (int i = 0; i < 3; i++) tasks.insert(randomTask(r, boardId));
+        });
+        Comparator<Task> cmp = order(sort, order);
+        for (int i = 1; i < paged.size(); i++) {
+            assertTrue(cmp.compare(paged.get(i - 1), paged.get(i)) < 0, "not strictly ordered at " + i);
+        }
+        Set<String> seen = new HashSet<>(ids(paged));
+        for (Task t : before) assertTrue(seen.contains(t.getId()), "lost " + t.getId());
+        assertTrue(paged.stream().allMatch(f::matches));
+    }
+
+    @Test
+    void cursorOfAnotherSortIsRejected() throws Exception {
+        String boardId = newBoard(10, new Random(1));
+        var first = service.listTasks(userId, boardId, null, null, null, null, "due", "asc", 3, null);
+        assertNotNull(first.nextCursor());
+        assertThrows(RuntimeException.class,
+                () -> service.listTasks(userId, boardId, null, null, null, null, "priority", "asc", 3, first.nextCursor()));
+    }
+
+    private String newBoard(int n, Random r) throws Exception {
+        String boardId = boardService.createBoard(userId, "board").getId();
+        for (int i = 0; i < n; i++) tasks.insert(randomTask(r, boardId));
+        return boardId;
+    }
+
+    interface Between { void run() throws Exception; }
+
+    private List<Task> pageThrough(String boardId, String sort, String order, Filter f, int size, Between between) throws Exception {
+        List<Task> out = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var page = list(boardId, sort, order, f, size, cursor);
+            assertTrue(page.tasks().size() <= size);
+            if (page.nextCursor() != null) assertEquals(size, page.tasks().size(), "short page before the last");
+            out.addAll(page.tasks());
+            cursor = page.nextCursor();
+            if (between != null) between.run();
+            assertTrue(++pages < 10_000, "paging does not end");
+        } while (cursor != null);
+        return out;
+    }
+
+    private static TaskService.TaskPage list(String boardId, String sort, String order, Filter f, Integer limit, String cursor) throws Exception {
+        return service.listTasks(userId, boardId, f.statuses(), f.priorities(), f.dueBefore(), f.dueAfter(), sort, order, limit, cursor);
+    }
+
+    private static List<String> ids(List<Task> ts) {
+        return ts.stream().map(Task::getId).toList();
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.todo.server.service;
+
+import org.example.todo.server.model.Task;
+import org.example.todo.server.repository.TaskRepository;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/** Tasks with many ties on every sort key, and the order and filters {@code list_tasks} must apply to them. */
+final class TaskTestData {
+    static final List<String> SORTS = List.of("createdAt", "due", "priority");
+    static final List<String> STATUSES = List.of("TODO", "IN_PROGRESS", "DONE");
+    static final List<String> PRIORITIES = List.of("LOW", "MEDIUM", "HIGH");
+    static final long BASE_TIME = 1_700_000_000_000L;
+
+    private TaskTestData() {}
+
+    /** Creation times and due dates come from small sets, so most rows tie on their sort key; a quarter have no due date. */
+    static Task randomTask(Random r, String boardId) {
+        Long due = r.nextInt(4) == 0 ? null : BASE_TIME + r.nextInt(20) * 1000L;
+        return new Task(UUID.randomUUID().toString(), BASE_TIME + r.nextInt(40), boardId, "task " + r.nextInt(1000),
+                r.nextBoolean() ? null : "description", STATUSES.get(r.nextInt(3)), PRIORITIES.get(r.nextInt(3)), due);
+    }
+
+    static Comparator<Task> order(String sortBy, String order) {
+        Comparator<Task> c = Comparator.comparing((Task t) -> TaskRepository.keysetOf(t, sortBy),
+                Comparator.comparingLong(TaskRepository.Keyset::key).thenComparingLong(TaskRepository.Keyset::createdAt)
+                        .thenComparing(TaskRepository.Keyset::id));
+        return "desc".equals(order) ? c.reversed() : c;
+    }
+
+    /** One filter case of {@code list_tasks}: nulls and empty sets mean no filter. */
+    record Filter(String name, Set<String> statuses, Set<String> priorities, Long dueBefore, Long dueAfter) {
+        boolean matches(Task t) {
+            if (statuses != null && !statuses.isEmpty() && !statuses.contains(t.getStatus())) return false;
+            if (priorities != null && !priorities.isEmpty() && !priorities.contains(t.getPriority())) return false;
+            if (dueBefore == null && dueAfter == null) return true;
+            Long due = t.getDueDate();
+            return due != null && (dueAfter == null || due >= dueAfter) && (dueBefore == null || due < dueBefore);
+        }
+
+        @Override
+        public String toString() { return name; }
+    }
+
+    static final List<Filter> FILTERS = List.of(
+            new Filter("none", null, null, null, null),
+            new Filter("status TODO+DONE", Set.of("TODO", "DONE"), null, null, null),
+            new Filter("priority HIGH, status IN_PROGRESS", Set.of("IN_PROGRESS"), Set.of("HIGH"), null, null),
+            new Filter("due range", null, null, BASE_TIME + 15_000, BASE_TIME + 5_000),
+            new Filter("due after, LOW+MEDIUM", null, Set.of("LOW", "MEDIUM"), null, BASE_TIME + 10_000));
+}